@@ -0,0 +1,267 @@
+package kr.tanbbang01.converter.db.catalog;
+
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대상 DB 의 테이블 / 인덱스 / 제약조건 / 시퀀스 / DB LINK 목록
+ *
+ * 객체마다 존재 여부를 조회하지 않고 처음에 owner 의 목록을 한번에 읽어서 메모리에 들고 있는다.
+ * DDL 을 실행한 뒤에는 다시 조회하지 않고 add* 로 직접 반영한다.
+ * 여러 쓰레드에서 동시에 사용해도 된다.
+ *
+ * 스키마 비교 ({@code withColumns}) 용으로 읽으면 테이블별 컬럼 정의와 인덱스 / 제약조건의 컬럼 목록도 들고 있는다.
+ */
+public class CatalogSnapshot {
+  private static Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  private final String owner;
+  private final Set<String> tables = newSet();
+  private final Set<String> indexes = newSet();        // TABLE.INDEX
+  private final Set<String> constraints = newSet();    // TABLE.CONSTRAINT
+  private final Set<String> sequences = newSet();
+  private final Set<String> databaseLinks = newSet();
+
+  private final ConcurrentHashMap<String, Map<String, ColumnDefinition>> columns = new ConcurrentHashMap<String, Map<String, ColumnDefinition>>();
+  private final Map<String, List<String>> indexColumns = new ConcurrentHashMap<String, List<String>>();        // TABLE.INDEX
+  private final Map<String, List<String>> constraintColumns = new ConcurrentHashMap<String, List<String>>();   // TABLE.CONSTRAINT
+
+  private CatalogSnapshot(String owner) {
+    this.owner = owner.toUpperCase();
+  }
+
+  /**
+   * owner 의 객체 목록을 읽어온다.
+   * @param conn 대상 DB Connection
+   * @param owner 스키마
+   */
+  public static CatalogSnapshot load(Connection conn, String owner) throws SQLException {
+    return load(conn, owner, false);
+  }
+
+  /**
+   * owner 의 객체 목록을 읽어온다.
+   * @param conn 대상 DB Connection
+   * @param owner 스키마
+   * @param withColumns 컬럼 정의와 인덱스 / 제약조건의 컬럼 목록도 읽을지 여부
+   */
+  public static CatalogSnapshot load(Connection conn, String owner, boolean withColumns) throws SQLException {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    CatalogSnapshot snapshot = new CatalogSnapshot(owner);
+    String o = snapshot.owner;
+
+    for (String[] row : query(conn, " SELECT table_name FROM all_tables WHERE owner = ? ", o)) {
+      snapshot.tables.add(row[0]);
+    }
+    for (String[] row : query(conn, " SELECT table_name, index_name FROM all_indexes WHERE owner = ? ", o)) {
+      snapshot.indexes.add(key(row[0], row[1]));
+    }
+    for (String[] row : query(conn, " SELECT table_name, constraint_name FROM all_constraints WHERE owner = ? ", o)) {
+      snapshot.constraints.add(key(row[0], row[1]));
+    }
+    for (String[] row : query(conn, " SELECT sequence_name FROM all_sequences WHERE sequence_owner = ? ", o)) {
+      snapshot.sequences.add(row[0]);
+    }
+    for (String[] row : query(conn, " SELECT db_link FROM all_db_links WHERE owner IN (?, 'PUBLIC') ", o)) {
+      snapshot.addDatabaseLink(row[0]);
+    }
+    if (withColumns) {
+      snapshot.loadColumns(conn);
+    }
+
+    stopwatch.stop();
+    logger.info("[CATALOG] {} - tables : {} / indexes : {} / constraints : {} / sequences : {} / db links : {} ({} ms)",
+        o, snapshot.tables.size(), snapshot.indexes.size(), snapshot.constraints.size(),
+        snapshot.sequences.size(), snapshot.databaseLinks.size(), stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    return snapshot;
+  }
+
+  /**
+   * owner 의 카탈로그 지문 (객체 수 / 마지막 DDL 시간 / 제약조건 수 / 활성화 / 검증된 제약조건 수)
+   * 객체 목록을 읽지 않고 집계 쿼리 두번으로 DDL 변경 여부만 확인할 때 사용한다.
+   */
+  public static String fingerprint(Connection conn, String owner) throws SQLException {
+    String o = owner.toUpperCase();
+    String[] objects = query(conn, " SELECT count(1), to_char(max(last_ddl_time), 'YYYYMMDDHH24MISS') FROM all_objects WHERE owner = ? ", o).get(0);
+    String[] constraints = query(conn, " SELECT count(1), count(decode(status, 'ENABLED', 1)), count(decode(validated, 'VALIDATED', 1)) FROM all_constraints WHERE owner = ? ", o).get(0);
+    return "objects:" + objects[0] + "/ddl:" + objects[1] + "/constraints:" + constraints[0] + "/enabled:" + constraints[1] + "/validated:" + constraints[2];
+  }
+
+  private void loadColumns(Connection conn) throws SQLException {
+    StringBuilder sb = new StringBuilder();
+    sb.append(" SELECT table_name, column_name, data_type, char_length, char_used, data_precision, data_scale, nullable ");
+    sb.append("   FROM all_tab_columns ");
+    sb.append("  WHERE owner = ? ");
+    sb.append("  ORDER BY table_name, column_id ");
+    for (String[] row : query(conn, sb.toString(), owner)) {
+      String semantics = "C".equals(row[4]) ? "CHAR" : ("B".equals(row[4]) ? "BYTE" : null);
+      addColumn(row[0], new ColumnDefinition(row[1], row[2], toInteger(row[3]), semantics,
+          toInteger(row[5]), toInteger(row[6]), "Y".equals(row[7]), null));
+    }
+
+    for (String[] row : query(conn, " SELECT table_name, index_name, column_name FROM all_ind_columns WHERE index_owner = ? ORDER BY table_name, index_name, column_position ", owner)) {
+      append(indexColumns, key(row[0], row[1]), row[2]);
+    }
+    for (String[] row : query(conn, " SELECT table_name, constraint_name, column_name FROM all_cons_columns WHERE owner = ? ORDER BY table_name, constraint_name, position ", owner)) {
+      append(constraintColumns, key(row[0], row[1]), row[2]);
+    }
+    logger.info("[CATALOG] {} - columns : {} tables / index columns : {} / constraint columns : {}",
+        owner, columns.size(), indexColumns.size(), constraintColumns.size());
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public boolean hasTable(String tableName) {
+    return tables.contains(tableName.toUpperCase());
+  }
+
+  public boolean hasIndex(String tableName, String indexName) {
+    return indexes.contains(key(tableName, indexName));
+  }
+
+  public boolean hasConstraint(String tableName, String constraintName) {
+    return constraints.contains(key(tableName, constraintName));
+  }
+
+  public boolean hasSequence(String sequenceName) {
+    return sequences.contains(sequenceName.toUpperCase());
+  }
+
+  /**
+   * @param linkName 도메인(.xxx) 을 붙이지 않은 이름으로 찾아도 된다.
+   */
+  public boolean hasDatabaseLink(String linkName) {
+    return databaseLinks.contains(linkName.toUpperCase());
+  }
+
+  /**
+   * @return 컬럼명 < 컬럼 정의 > (컬럼 순서). 읽지 않았거나 없는 테이블이면 빈 Map
+   */
+  public Map<String, ColumnDefinition> getColumns(String tableName) {
+    Map<String, ColumnDefinition> map = columns.get(tableName.toUpperCase());
+    return map == null ? Collections.<String, ColumnDefinition>emptyMap() : map;
+  }
+
+  /**
+   * @return 인덱스의 컬럼 목록 (함수 기반 인덱스는 SYS_NC... 컬럼), 없으면 null
+   */
+  public List<String> getIndexColumns(String tableName, String indexName) {
+    return indexColumns.get(key(tableName, indexName));
+  }
+
+  /**
+   * @return 제약조건의 컬럼 목록, 없으면 null
+   */
+  public List<String> getConstraintColumns(String tableName, String constraintName) {
+    return constraintColumns.get(key(tableName, constraintName));
+  }
+
+  public void addColumn(String tableName, ColumnDefinition column) {
+    String table = tableName.toUpperCase();
+    Map<String, ColumnDefinition> map = columns.get(table);
+    if (map == null) {
+      columns.putIfAbsent(table, Collections.synchronizedMap(new LinkedHashMap<String, ColumnDefinition>()));
+      map = columns.get(table);
+    }
+    map.put(column.getName(), column);
+  }
+
+  public void addTable(String tableName) {
+    tables.add(tableName.toUpperCase());
+  }
+
+  public void addIndex(String tableName, String indexName) {
+    indexes.add(key(tableName, indexName));
+  }
+
+  public void addConstraint(String tableName, String constraintName) {
+    constraints.add(key(tableName, constraintName));
+  }
+
+  public void addSequence(String sequenceName) {
+    sequences.add(sequenceName.toUpperCase());
+  }
+
+  public void addDatabaseLink(String linkName) {
+    String name = linkName.toUpperCase();
+    databaseLinks.add(name);
+    if (name.indexOf('.') > 0) {
+      databaseLinks.add(name.substring(0, name.indexOf('.')));
+    }
+  }
+
+  private static String key(String tableName, String objectName) {
+    return tableName.toUpperCase() + "." + objectName.toUpperCase();
+  }
+
+  private static void append(Map<String, List<String>> map, String key, String value) {
+    List<String> list = map.get(key);
+    if (list == null) {
+      list = new ArrayList<String>();
+      map.put(key, list);
+    }
+    list.add(value);
+  }
+
+  private static Integer toInteger(String value) {
+    return value == null ? null : Integer.valueOf(value);
+  }
+
+  private static Set<String> newSet() {
+    return Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  }
+
+  private static List<String[]> query(Connection conn, String sql, String owner) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    List<String[]> rows = new ArrayList<String[]>();
+
+    try {
+      pstmt = conn.prepareStatement(sql);
+      pstmt.setFetchSize(FETCH_SIZE);
+      pstmt.setString(1, owner);
+      rs = pstmt.executeQuery();
+
+      int columnCount = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        String[] row = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+          row[i] = rs.getString(i + 1);
+        }
+        rows.add(row);
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,102 @@
+package kr.tanbbang01.converter.db.catalog;
+
+/**
+ * 컬럼 정의 (ERD 스크립트의 CREATE TABLE / 대상 DB 의 ALL_TAB_COLUMNS)
+ *
+ * 길이는 VARCHAR2 / NVARCHAR2 / CHAR / NCHAR / RAW, 정밀도 / 소수 자리수는 NUMBER 일 때만 의미가 있다.
+ * 지정하지 않은 값은 null 이다.
+ */
+public class ColumnDefinition {
+  private final String name;
+  private final String dataType;
+  private final Integer length;
+  private final String lengthSemantics;
+  private final Integer precision;
+  private final Integer scale;
+  private final boolean nullable;
+  private final String definition;
+
+  /**
+   * @param lengthSemantics 길이 단위 BYTE / CHAR (지정하지 않았으면 null)
+   * @param definition ERD 스크립트의 컬럼 정의 원문 (대상 DB 에서 읽은 컬럼은 null)
+   */
+  public ColumnDefinition(String name, String dataType, Integer length, String lengthSemantics,
+                          Integer precision, Integer scale, boolean nullable, String definition) {
+    this.name = name;
+    this.dataType = dataType;
+    this.length = length;
+    this.lengthSemantics = lengthSemantics;
+    this.precision = precision;
+    this.scale = scale;
+    this.nullable = nullable;
+    this.definition = definition;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDataType() {
+    return dataType;
+  }
+
+  public Integer getLength() {
+    return length;
+  }
+
+  /**
+   * 길이 단위 BYTE / CHAR (지정하지 않았으면 null)
+   */
+  public String getLengthSemantics() {
+    return lengthSemantics;
+  }
+
+  public Integer getPrecision() {
+    return precision;
+  }
+
+  public Integer getScale() {
+    return scale;
+  }
+
+  public boolean isNullable() {
+    return nullable;
+  }
+
+  public String getDefinition() {
+    return definition;
+  }
+
+  /**
+   * 길이로 크기를 정하는 문자 / RAW 타입이면 true
+   */
+  public boolean isSizedByLength() {
+    return "VARCHAR2".equals(dataType) || "NVARCHAR2".equals(dataType) || "VARCHAR".equals(dataType)
+        || "CHAR".equals(dataType) || "NCHAR".equals(dataType) || "RAW".equals(dataType);
+  }
+
+  public boolean isNumber() {
+    return "NUMBER".equals(dataType);
+  }
+
+  /**
+   * ALTER TABLE ... MODIFY 에 쓸 타입 (예: VARCHAR2(100) , NUMBER(10,2), NUMBER(*,0))
+   */
+  public String getTypeSql() {
+    if (isSizedByLength() && length != null) {
+      return dataType + "(" + length + (lengthSemantics != null ? " " + lengthSemantics : "") + ")";
+    }
+    if (isNumber() && precision != null) {
+      return dataType + "(" + precision + (scale != null ? "," + scale : "") + ")";
+    }
+    if (isNumber() && scale != null) {
+      return dataType + "(*," + scale + ")";    // INTEGER
+    }
+    return dataType;
+  }
+
+  @Override
+  public String toString() {
+    return name + " " + getTypeSql() + (nullable ? "" : " NOT NULL");
+  }
+}
@@ -1,8 +1,17 @@
 package kr.tanbbang01.converter.db.init;
 
+import kr.tanbbang01.converter.db.init.data.DeltaSyncInit;
 import kr.tanbbang01.converter.db.init.data.FirstDataInit;
+import kr.tanbbang01.converter.db.init.data.RepairInit;
+import kr.tanbbang01.converter.db.init.data.SnapshotExportInit;
+import kr.tanbbang01.converter.db.init.data.SnapshotImportInit;
+import kr.tanbbang01.converter.db.init.data.VerifyInit;
 import kr.tanbbang01.converter.db.init.sequence.SeqAndFuncInit;
+import kr.tanbbang01.converter.db.init.sequence.SequenceReseedInit;
+import kr.tanbbang01.converter.db.init.table.ForeignKeyInit;
+import kr.tanbbang01.converter.db.init.table.IndexBuildInit;
 import kr.tanbbang01.converter.db.init.table.TableInit;
+import kr.tanbbang01.converter.util.RunState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +24,17 @@ import java.text.ParseException;
  * 1. table : DBLINK & TABLE 생성
  * 2. seqFunc : 시퀀스 및 변환시 필요한 Function 생성
  * 3. data : SOLARS8_CODE 에서 기초 데이터를 가져온다.
+ * 4. index : DEFER_INDEXES=true 일 때 미뤄둔 PK / INDEX / FK 생성
+ * 5. reseed : SEQ_<테이블> 시퀀스를 적재된 MAX(ID) + 1 로 맞춤
+ * 6. enableFk : 비활성화한 FK 를 다시 활성화 (ENABLE NOVALIDATE -> VALIDATE)
+ * delta : data 이후 원본에서 바뀐 행만 MERGE (전환 기간 동안 반복 실행)
+ * export / import : 원본과 대상에 동시에 접속할 수 없을 때 data 대신 사용. export 는 원본만 접속해서 SNAPSHOT_DIR 에 파일로,
+ *                   import 는 대상만 접속해서 그 파일을 넣는다.
+ * verify : data 이후 원본과 대상을 범위별 행 수 / 해시로 비교 (VERIFY_REPORT)
+ * repair : 해시가 다른 구간만 찾아서 대상에서 지우고 다시 복사
+ *
+ * table / seqFunc / index / enableFk 는 입력과 대상 DB 가 마지막 성공 실행과 같으면 건너뛴다. (RUN_STATE_FILE)
+ * 세번째 인자로 --force 를 주면 모두 다시 실행한다.
  *
  * Uses ConfigFile target
  * Created by InSeong on 17. 11. 20..
@@ -23,11 +43,12 @@ public class ConvertStarter {
   private static Logger logger = LoggerFactory.getLogger(ConvertStarter.class);
 
   public static void main(String[] args) throws SQLException, IOException, ParseException {
-    if (args.length != 2) {
-      System.err.println("Usage: configFile target");
+    if (args.length != 2 && !(args.length == 3 && args[2].equals("--force"))) {
+      System.err.println("Usage: configFile target [--force]");
       System.exit(-1);
     } else {
       logger.info("Converter Started !!");
+      RunState.getInstance(args[0]).setForce(args.length == 3);
       ConvertStarter convert = new ConvertStarter();
       convert.convert(args[0], args[1]);
       logger.info("Converter End !!");
@@ -44,6 +65,30 @@ public class ConvertStarter {
     } else if(target.equals("data")) {
       FirstDataInit init = new FirstDataInit(configFileName);
       init.create();
+    } else if(target.equals("delta")) {
+      DeltaSyncInit init = new DeltaSyncInit(configFileName);
+      init.create();
+    } else if(target.equals("export")) {
+      SnapshotExportInit init = new SnapshotExportInit(configFileName);
+      init.create();
+    } else if(target.equals("import")) {
+      SnapshotImportInit init = new SnapshotImportInit(configFileName);
+      init.create();
+    } else if(target.equals("verify")) {
+      VerifyInit init = new VerifyInit(configFileName);
+      init.create();
+    } else if(target.equals("repair")) {
+      RepairInit init = new RepairInit(configFileName);
+      init.create();
+    } else if(target.equals("index")) {
+      IndexBuildInit init = new IndexBuildInit(configFileName);
+      init.create();
+    } else if(target.equals("reseed")) {
+      SequenceReseedInit init = new SequenceReseedInit(configFileName);
+      init.create();
+    } else if(target.equals("enableFk")) {
+      ForeignKeyInit init = new ForeignKeyInit(configFileName);
+      init.create();
     } else if (target.equals("all")) {
       TableInit table = new TableInit(configFileName);
       table.create();
@@ -51,6 +96,12 @@ public class ConvertStarter {
       seqAndFuncInit.create();
       FirstDataInit firstDataInit = new FirstDataInit(configFileName);
       firstDataInit.create();
+      IndexBuildInit indexBuildInit = new IndexBuildInit(configFileName);
+      indexBuildInit.create();
+      SequenceReseedInit sequenceReseedInit = new SequenceReseedInit(configFileName);
+      sequenceReseedInit.create();
+      ForeignKeyInit foreignKeyInit = new ForeignKeyInit(configFileName);
+      foreignKeyInit.create();
     }
   }
 
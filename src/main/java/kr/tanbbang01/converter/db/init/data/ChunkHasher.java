@@ -0,0 +1,207 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 범위 하나의 행 수와 순서에 상관없는 해시 합계를 DB 안에서 계산한다.
+ *
+ * 행 해시는 컬럼마다 ORA_HASH 를 구해서 이어붙인 문자열의 ORA_HASH 이고
+ * (이어붙인 문자열이 VARCHAR2 4000 byte 를 넘으면 ORA-01489 이므로, 결과 길이가 4000 이하가 되도록 나눠서 더한다),
+ * 범위의 값은 COUNT(*) 와 SUM(행 해시) 이다. 행을 가져오지 않으므로 원본 / 대상에서 같은 쿼리를 동시에 실행한다.
+ *  - CLOB / BLOB : 길이와 앞부분 (CLOB 1000 자 / BLOB 2000 byte) 의 ORA_HASH
+ *  - LONG / LONG RAW / BFILE : SQL 함수에 쓸 수 없으므로 해시에서 뺀다.
+ * 컬럼 타입은 원본 기준이며, 원본과 대상의 타입이 다르면 (CHAR <-> VARCHAR2 등) 값이 같아도 해시가 다를 수 있다.
+ */
+class ChunkHasher {
+  private static final int MAX_CONCAT_LENGTH = 4000;              // VARCHAR2 최대 byte
+  private static final int HASH_LENGTH = 10;                      // ORA_HASH 최대값 4294967295
+  private static final int LOB_LENGTH = 20 + 1 + HASH_LENGTH;     // 길이 (최대 20 자리) || ':' || ORA_HASH
+  private static final String SEPARATOR = " || '|' || ";
+
+  private final String rowHash;
+
+  /**
+   * @param columns 원본 / 대상에 모두 있는 컬럼 [ 이름, ALL_TAB_COLUMNS 타입 ]
+   */
+  ChunkHasher(List<String[]> columns) {
+    StringBuilder sb = new StringBuilder();
+    int groupLength = 0;    // 현재 그룹을 이어붙인 결과의 최대 길이
+    for (String[] column : columns) {
+      String expression = expression('"' + column[0] + '"', column[1]);
+      if (expression == null) {
+        continue;
+      }
+      int length = isLob(column[1]) ? LOB_LENGTH : HASH_LENGTH;
+      if (groupLength > 0 && groupLength + 1 + length <= MAX_CONCAT_LENGTH) {
+        sb.append(SEPARATOR).append(expression);
+        groupLength += 1 + length;
+      } else {
+        sb.append(groupLength == 0 ? "" : ") + ").append("ORA_HASH(").append(expression);
+        groupLength = length;
+      }
+    }
+    if (groupLength > 0) {
+      sb.append(')');
+    }
+    this.rowHash = sb.length() == 0 ? "0" : sb.toString();
+  }
+
+  private static boolean isLob(String dataType) {
+    return dataType.endsWith("CLOB") || "BLOB".equals(dataType);
+  }
+
+  private static String expression(String column, String dataType) {
+    if ("LONG".equals(dataType) || "LONG RAW".equals(dataType) || "BFILE".equals(dataType)) {
+      return null;
+    }
+    if (dataType.endsWith("CLOB")) {
+      return "DBMS_LOB.GETLENGTH(" + column + ") || ':' || ORA_HASH(DBMS_LOB.SUBSTR(" + column + ", 1000, 1))";
+    }
+    if ("BLOB".equals(dataType)) {
+      return "DBMS_LOB.GETLENGTH(" + column + ") || ':' || ORA_HASH(DBMS_LOB.SUBSTR(" + column + ", 2000, 1))";
+    }
+    return "ORA_HASH(" + column + ")";
+  }
+
+  /**
+   * @param table 조회할 테이블 (원본은 스키마.테이블)
+   * @return [ 행 수, 해시 합계 ]
+   */
+  long[] hash(Connection conn, String table, CopyChunk chunk) throws SQLException {
+    String sql = " SELECT COUNT(*), NVL(SUM(" + rowHash + "), 0) FROM " + table
+        + (chunk.getPredicate() == null ? "" : " WHERE " + chunk.getPredicate());
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      if (chunk.getPredicate() != null) {
+        pstmt.setObject(1, chunk.getLow());
+        pstmt.setObject(2, chunk.getHigh());
+      }
+      rs = pstmt.executeQuery();
+      rs.next();
+      return new long[] { rs.getLong(1), rs.getLong(2) };
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  /**
+   * [low, high) 의 ID 범위를 width 폭 구간으로 나눠서 구간별로 계산한다. (쿼리 한번)
+   * @return 구간 번호 < [ 행 수, 해시 합계 ] > (행이 없는 구간은 없다)
+   */
+  Map<Long, long[]> hashBuckets(Connection conn, String table, long low, long high, long width) throws SQLException {
+    String sql = " SELECT b, COUNT(*), NVL(SUM(h), 0) FROM ( SELECT FLOOR((ID - ?) / ?) b, " + rowHash + " h FROM " + table
+        + " WHERE ID >= ? AND ID < ? ) GROUP BY b ";
+    Map<Long, long[]> buckets = new HashMap<Long, long[]>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      pstmt.setLong(1, low);
+      pstmt.setLong(2, width);
+      pstmt.setLong(3, low);
+      pstmt.setLong(4, high);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        buckets.put(rs.getLong(1), new long[] { rs.getLong(2), rs.getLong(3) });
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * 원본 해시는 별도 쓰레드에서, 대상 해시는 이 쓰레드에서 동시에 계산한다.
+   * @return [ 원본 [행 수, 해시], 대상 [행 수, 해시] ]
+   */
+  long[][] hashBoth(Connection source, String sourceTable, Connection dest, String destTable, final CopyChunk chunk)
+      throws SQLException {
+    List<long[]> result = both(new Query<long[]>() {
+      @Override
+      public long[] run(Connection conn, String table) throws SQLException {
+        return hash(conn, table, chunk);
+      }
+    }, source, sourceTable, dest, destTable, chunk.toString());
+    return new long[][] { result.get(0), result.get(1) };
+  }
+
+  /**
+   * {@link #hashBuckets} 를 원본 / 대상에서 동시에 계산한다.
+   * @return [ 원본, 대상 ]
+   */
+  List<Map<Long, long[]>> hashBucketsBoth(Connection source, String sourceTable, Connection dest, String destTable,
+                                          final long low, final long high, final long width) throws SQLException {
+    return both(new Query<Map<Long, long[]>>() {
+      @Override
+      public Map<Long, long[]> run(Connection conn, String table) throws SQLException {
+        return hashBuckets(conn, table, low, high, width);
+      }
+    }, source, sourceTable, dest, destTable, destTable + " [" + low + " ~ " + high + "]");
+  }
+
+  private interface Query<T> {
+    T run(Connection conn, String table) throws SQLException;
+  }
+
+  private static <T> List<T> both(final Query<T> query, final Connection source, final String sourceTable, Connection dest,
+                                  String destTable, String name) throws SQLException {
+    final List<T> result = new ArrayList<T>(Collections.<T>nCopies(2, null));
+    final SQLException[] error = new SQLException[1];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.set(0, query.run(source, sourceTable));
+        } catch (SQLException e) {
+          error[0] = e;
+        }
+      }
+    }, "hash-source " + name);
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      result.set(1, query.run(dest, destTable));
+    } finally {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (error[0] != null) {
+      throw error[0];
+    }
+    if (result.get(0) == null) {
+      throw new SQLException(name + " : 원본 해시 계산 중 인터럽트");
+    }
+    return result;
+  }
+}
@@ -0,0 +1,310 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 큰 테이블을 여러 범위 ({@link CopyChunk}) 로 나눈다.
+ *
+ * 원본 테이블은 조회하는 사용자 (DB LINK 사용자 또는 원본 Connection 사용자) 소유여야 ROWID 로 나눌 수 있다.
+ * user_tables / user_extents / user_objects 를 DB LINK 로, 또는 원본 Connection 에서 바로 조회한다.
+ *  - ROWID : extent 를 (파일, 블럭) 순서로 묶어서 ROWID 범위로 나눈다. 범위 사이에 빠지는 블럭이 없다.
+ *  - ID : 숫자 ID 컬럼의 min / max 를 같은 폭으로 나눈다. ID 가 NULL 인 행은 어느 범위에도 들지 않으므로
+ *         ID 가 NOT NULL 인 NUMBER 컬럼일 때만 쓴다.
+ * 통계 (num_rows / blocks) 로 한 범위가 COPY_CHUNK_ROWS 행 정도가 되도록 한다.
+ * ROWID 로 나눌 수 없는 테이블 (파티션 테이블, extent 조회 불가) 은 ID 로, ID 도 없으면 통째로 복사한다.
+ * 범위마다 예상 크기 (행 수 * avg_row_len, 통계가 없으면 세그먼트 크기를 나눈 값) 를 넣어둔다.
+ */
+public class ChunkPlanner {
+  private static Logger logger = LoggerFactory.getLogger(ChunkPlanner.class);
+
+  public enum Mode {
+    ROWID, ID
+  }
+
+  private static final String ROWID_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+  private static final int MAX_ROW_IN_BLOCK = 32767;
+  private static final long DEFAULT_ROWS_PER_BLOCK = 50;    // 통계가 없을 때
+
+  private final Connection conn;
+  private final String link;
+  private final String schema;
+  private final long chunkRows;
+  private final Mode mode;
+
+  /**
+   * @param conn 대상 DB Connection (DB LINK 로 원본을 조회한다)
+   * @param dbLinkName DB LINK 이름
+   * @param chunkRows 한 범위의 목표 행 수
+   * @param mode 우선 사용할 분할 방식
+   */
+  public ChunkPlanner(Connection conn, String dbLinkName, long chunkRows, Mode mode) {
+    this(conn, dbLinkName, null, chunkRows, mode);
+  }
+
+  /**
+   * @param conn 대상 DB Connection 또는 원본 DB Connection
+   * @param dbLinkName DB LINK 이름 (원본 Connection 이면 null)
+   * @param schema 테이블 앞에 붙일 스키마 (null 이면 붙이지 않는다)
+   * @param chunkRows 한 범위의 목표 행 수
+   * @param mode 우선 사용할 분할 방식
+   */
+  public ChunkPlanner(Connection conn, String dbLinkName, String schema, long chunkRows, Mode mode) {
+    this.conn = conn;
+    this.link = dbLinkName == null ? "" : "@" + dbLinkName.toUpperCase();
+    this.schema = schema;
+    this.chunkRows = Math.max(1, chunkRows);
+    this.mode = mode;
+  }
+
+  /**
+   * @return 복사 범위 (작은 테이블은 하나)
+   */
+  public List<CopyChunk> plan(String tableName) {
+    long[] stats = readStats(tableName);      // num_rows , blocks , partitioned(1/0) , avg_row_len , segment bytes
+    List<CopyChunk> chunks = split(tableName, stats);
+    estimateBytes(chunks, stats[0], stats[3], stats[4]);
+    return chunks;
+  }
+
+  private List<CopyChunk> split(String tableName, long[] stats) {
+    long numRows = stats[0];
+    if (numRows >= 0 && numRows <= chunkRows) {
+      return single(tableName, numRows);
+    }
+
+    List<CopyChunk> chunks = null;
+    if (mode == Mode.ROWID && stats[2] == 0) {
+      chunks = rowidChunks(tableName, numRows, stats[1]);
+    }
+    if (chunks == null) {
+      chunks = idChunks(tableName, numRows);
+    }
+    if (chunks == null) {
+      logger.info("[CHUNK] {} - 나눌 수 없는 테이블. 한번에 복사", tableName);
+      return single(tableName, Math.max(numRows, 0));
+    }
+    logger.info("[CHUNK] {} - {} 개 범위 (행 : {})", tableName, chunks.size(), numRows);
+    return chunks;
+  }
+
+  /**
+   * 통계가 있으면 행 수 * avg_row_len, 없으면 세그먼트 크기를 범위 수로 나눈다.
+   */
+  private static void estimateBytes(List<CopyChunk> chunks, long numRows, long avgRowLength, long segmentBytes) {
+    for (CopyChunk chunk : chunks) {
+      if (numRows >= 0 && avgRowLength > 0) {
+        chunk.setEstimatedBytes(chunk.getEstimatedRows() * avgRowLength);
+      } else if (segmentBytes > 0) {
+        chunk.setEstimatedBytes(segmentBytes / chunks.size());
+      }
+    }
+  }
+
+  private static List<CopyChunk> single(String tableName, long numRows) {
+    List<CopyChunk> chunks = new ArrayList<CopyChunk>();
+    chunks.add(CopyChunk.whole(tableName, numRows));
+    return chunks;
+  }
+
+  /**
+   * @return [ num_rows (통계가 없으면 -1) , blocks , 파티션 여부 , avg_row_len , 세그먼트 크기 (byte) ]
+   */
+  private long[] readStats(String tableName) {
+    long[] stats = new long[] { -1, -1, 0, 0, 0 };
+    String sql = " SELECT t.num_rows, t.blocks, t.partitioned, t.avg_row_len, "
+        + " ( SELECT sum(s.bytes) FROM user_segments" + link + " s WHERE s.segment_name = t.table_name ) "
+        + " FROM user_tables" + link + " t WHERE t.table_name = ? ";
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      pstmt.setString(1, tableName);
+      rs = pstmt.executeQuery();
+      if (rs.next()) {
+        long numRows = rs.getLong(1);
+        stats[0] = rs.wasNull() ? -1 : numRows;
+        long blocks = rs.getLong(2);
+        stats[1] = rs.wasNull() ? -1 : blocks;
+        stats[2] = "YES".equals(rs.getString(3)) ? 1 : 0;
+        stats[3] = rs.getLong(4);
+        stats[4] = rs.getLong(5);
+      }
+    } catch (SQLException e) {
+      logger.warn("[CHUNK] {} - 통계 조회 실패 : {}", tableName, e.getMessage());
+    } finally {
+      close(rs, pstmt);
+    }
+    return stats;
+  }
+
+  /**
+   * extent 목록으로 ROWID 범위를 만든다.
+   * @return 조회하지 못하면 null
+   */
+  private List<CopyChunk> rowidChunks(String tableName, long numRows, long tableBlocks) {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(" SELECT data_object_id FROM user_objects" + link + " WHERE object_name = ? AND object_type = 'TABLE' ");
+      pstmt.setString(1, tableName);
+      rs = pstmt.executeQuery();
+      if (!rs.next() || rs.getObject(1) == null) {
+        return null;
+      }
+      long objectId = rs.getLong(1);
+      close(rs, pstmt);
+
+      long rowsPerBlock = numRows > 0 && tableBlocks > 0 ? Math.max(1, (numRows + tableBlocks - 1) / tableBlocks) : DEFAULT_ROWS_PER_BLOCK;
+      long chunkBlocks = Math.max(1, chunkRows / rowsPerBlock);
+
+      pstmt = conn.prepareStatement(" SELECT relative_fno, block_id, blocks FROM user_extents" + link
+          + " WHERE segment_name = ? AND segment_type = 'TABLE' ORDER BY relative_fno, block_id ");
+      pstmt.setString(1, tableName);
+      rs = pstmt.executeQuery();
+
+      List<CopyChunk> chunks = new ArrayList<CopyChunk>();
+      String low = null;
+      long filled = 0;
+      long lastFile = 0;
+      long lastBlock = 0;
+      while (rs.next()) {
+        long file = rs.getLong(1);
+        long block = rs.getLong(2);
+        long blocks = rs.getLong(3);
+
+        // 큰 extent 는 chunkBlocks 단위로 자른다.
+        while (blocks > 0) {
+          if (low == null) {
+            low = encodeRowid(objectId, file, block, 0);
+          }
+          long take = Math.min(blocks, chunkBlocks - filled);
+          filled += take;
+          block += take;
+          blocks -= take;
+          lastFile = file;
+          lastBlock = block - 1;
+
+          if (filled >= chunkBlocks) {
+            chunks.add(rowidChunk(tableName, chunks.size(), low, encodeRowid(objectId, lastFile, lastBlock, MAX_ROW_IN_BLOCK), filled * rowsPerBlock));
+            low = null;
+            filled = 0;
+          }
+        }
+      }
+      if (low != null) {
+        chunks.add(rowidChunk(tableName, chunks.size(), low, encodeRowid(objectId, lastFile, lastBlock, MAX_ROW_IN_BLOCK), filled * rowsPerBlock));
+      }
+      return chunks.isEmpty() ? null : chunks;
+    } catch (SQLException e) {
+      logger.warn("[CHUNK] {} - extent 조회 실패 : {}", tableName, e.getMessage());
+      return null;
+    } finally {
+      close(rs, pstmt);
+    }
+  }
+
+  private static CopyChunk rowidChunk(String tableName, int seq, String low, String high, long estimatedRows) {
+    return new CopyChunk(tableName, seq, "rowid BETWEEN CHARTOROWID(?) AND CHARTOROWID(?)", low, high, estimatedRows);
+  }
+
+  /**
+   * 숫자 ID 컬럼의 min ~ max 를 같은 폭으로 나눈다.
+   * @return ID 컬럼이 없거나, NUMBER 가 아니거나, NULL 을 허용하면 null
+   */
+  private List<CopyChunk> idChunks(String tableName, long numRows) {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      if (!isNotNullNumberId(tableName)) {
+        logger.debug("[CHUNK] {} - NOT NULL NUMBER ID 컬럼 없음", tableName);
+        return null;
+      }
+      pstmt = conn.prepareStatement(" SELECT min(ID), max(ID) FROM " + (schema == null ? "" : schema + ".") + tableName + link);
+      rs = pstmt.executeQuery();
+      if (!rs.next() || rs.getObject(1) == null) {
+        return null;
+      }
+      long min = rs.getLong(1);
+      long max = rs.getLong(2);
+
+      long span = max - min + 1;
+      long rows = numRows > 0 ? numRows : span;
+      long width = Math.max(1, (long) Math.ceil((double) span * chunkRows / rows));
+
+      List<CopyChunk> chunks = new ArrayList<CopyChunk>();
+      for (long low = min; low <= max; low += width) {
+        long high = Math.min(low + width, max + 1);
+        chunks.add(new CopyChunk(tableName, chunks.size(), "ID >= ? AND ID < ?", low, high, rows * (high - low) / span));
+      }
+      return chunks;
+    } catch (SQLException e) {
+      logger.debug("[CHUNK] {} - ID 범위 조회 실패 : {}", tableName, e.getMessage());
+      return null;
+    } finally {
+      close(rs, pstmt);
+    }
+  }
+
+  /**
+   * @return ID 컬럼이 NUMBER 이고 NOT NULL 인가 ?
+   */
+  private boolean isNotNullNumberId(String tableName) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      if (schema == null) {
+        pstmt = conn.prepareStatement(" SELECT data_type, nullable FROM user_tab_columns" + link
+            + " WHERE table_name = ? AND column_name = 'ID' ");
+        pstmt.setString(1, tableName);
+      } else {
+        pstmt = conn.prepareStatement(" SELECT data_type, nullable FROM all_tab_columns" + link
+            + " WHERE owner = ? AND table_name = ? AND column_name = 'ID' ");
+        pstmt.setString(1, schema.toUpperCase());
+        pstmt.setString(2, tableName);
+      }
+      rs = pstmt.executeQuery();
+      return rs.next() && "NUMBER".equals(rs.getString(1)) && "N".equals(rs.getString(2));
+    } finally {
+      close(rs, pstmt);
+    }
+  }
+
+  /**
+   * 확장 ROWID (OOOOOOFFFBBBBBBRRR) 를 만든다. DBMS_ROWID.ROWID_CREATE(1, ...) 와 같다.
+   */
+  static String encodeRowid(long objectId, long relativeFileNo, long blockNo, long rowNo) {
+    StringBuilder sb = new StringBuilder(18);
+    appendBase64(sb, objectId, 6);
+    appendBase64(sb, relativeFileNo, 3);
+    appendBase64(sb, blockNo, 6);
+    appendBase64(sb, rowNo, 3);
+    return sb.toString();
+  }
+
+  private static void appendBase64(StringBuilder sb, long value, int digits) {
+    for (int i = digits - 1; i >= 0; i--) {
+      sb.append(ROWID_DIGITS.charAt((int) ((value >> (6 * i)) & 0x3F)));
+    }
+  }
+
+  private static void close(ResultSet rs, PreparedStatement pstmt) {
+    if (rs != null) {
+      try {
+        rs.close();
+      } catch (SQLException e) {  }
+    }
+    if (pstmt != null) {
+      try {
+        pstmt.close();
+      } catch (SQLException e) {  }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 원본에서 읽은 행을 대상에 바인딩할 때까지 담아두는 컬럼 단위 버퍼
+ *
+ * 컬럼마다 {@link ColumnCodec} 이 만든 버퍼 (정수 NUMBER 는 long[], 실수는 double[], 나머지는 드라이버가 만든 객체의 참조) 와
+ * NULL 비트맵을 두고, 같은 버퍼를 계속 다시 쓴다. 행마다 Object[] 나 박싱 객체를 만들지 않는다.
+ * 읽는 쪽은 {@link #readFrom(ResultSet)} 으로 채우고 쓰는 쪽은 {@link #bind(PreparedStatement, int)} 로 비운다.
+ * 한 버퍼를 동시에 두 쓰레드가 쓰지 않는다. (읽기 / 쓰기가 버퍼를 주고받는다)
+ */
+class ColumnBatch {
+  private final ColumnCodec.Buffer[] buffers;
+  private final int capacity;
+  private int size = 0;
+  private long bytes = 0;
+
+  /**
+   * @param codecs SELECT / INSERT 컬럼 순서의 codec
+   * @param capacity 담을 수 있는 행 수
+   */
+  ColumnBatch(List<ColumnCodec> codecs, int capacity) {
+    this.capacity = capacity;
+    this.buffers = new ColumnCodec.Buffer[codecs.size()];
+    for (int c = 0; c < buffers.length; c++) {
+      buffers[c] = codecs.get(c).newBuffer(capacity);
+    }
+  }
+
+  /**
+   * 버퍼를 비우고 ResultSet 에서 최대 capacity 행을 읽는다.
+   * @return 읽은 행 수 (0 이면 끝)
+   */
+  int readFrom(ResultSet rs) throws SQLException {
+    for (ColumnCodec.Buffer buffer : buffers) {
+      buffer.clear();
+    }
+    size = 0;
+    bytes = 0;
+    while (size < capacity && rs.next()) {
+      for (int c = 0; c < buffers.length; c++) {
+        bytes += buffers[c].read(rs, c + 1, size);
+      }
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * 행 하나를 INSERT 의 바인드 변수 (1 부터 컬럼 순서) 에 넣는다.
+   */
+  void bind(PreparedStatement pstmt, int row) throws SQLException {
+    for (int c = 0; c < buffers.length; c++) {
+      buffers[c].bind(pstmt, c + 1, row);
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * 담긴 값의 대략적인 크기 (byte)
+   */
+  long bytes() {
+    return bytes;
+  }
+}
@@ -0,0 +1,821 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 컬럼 하나를 원본에서 읽고 대상에 바인딩하는 방법
+ *
+ * 테이블마다 ALL_TAB_COLUMNS 의 타입 / 정밀도 / 소수 자리로 한번 정한다.
+ *  - NUMBER(p, 0) (p <= 18)          : long
+ *  - 그 외 NUMBER / FLOAT            : BigDecimal
+ *  - BINARY_FLOAT / BINARY_DOUBLE    : double
+ *  - CHAR / VARCHAR2                 : String
+ *  - DATE / TIMESTAMP                : Timestamp
+ *  - RAW                             : byte[]
+ *  - LONG / CLOB / NCLOB             : 문자 스트림
+ *  - LONG RAW / BLOB                 : 바이트 스트림
+ *  - 그 외                           : getObject / setObject
+ * 컬럼마다 {@link Buffer} 를 만들어 {@link ColumnBatch} 에 넣으며, 행을 옮길 때는 컬럼 순서대로 버퍼의 read / bind 만 부른다.
+ * (값마다 타입을 확인하지 않는다)
+ * 스트림 컬럼 ({@link #isStream()}) 은 버퍼에 담지 않고 {@link #transfer} 로 원본 스트림을 대상 바인드 변수에 바로 넘긴다.
+ * 값 전체를 메모리에 올리지 않으며 길이 제한 없이 그대로 옮긴다.
+ * 스냅샷 파일 ({@link SnapshotFile}) 에는 {@link #exportValue} / {@link #importValue} 로 값 하나씩 쓰고 읽는다.
+ * (앞에 NULL 여부 1 byte, 문자열은 UTF-8, LONG / LOB 은 길이를 붙인 조각들과 끝 표시 0)
+ */
+abstract class ColumnCodec {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int PIECE_LENGTH = 8192;    // 스냅샷에 LONG / LOB 을 나눠 쓰는 조각 크기 (문자 또는 byte)
+
+  private final String name;
+  private final int sqlType;
+
+  private ColumnCodec(String name, int sqlType) {
+    this.name = name;
+    this.sqlType = sqlType;
+  }
+
+  /**
+   * @param dataType ALL_TAB_COLUMNS.DATA_TYPE
+   * @param precision DATA_PRECISION (없으면 null)
+   * @param scale DATA_SCALE (없으면 null)
+   */
+  static ColumnCodec of(String name, String dataType, Integer precision, Integer scale) {
+    if ("NUMBER".equals(dataType)) {
+      if (scale != null && scale == 0 && precision != null && precision <= 18) {
+        return new LongCodec(name);
+      }
+      return new DecimalCodec(name);
+    }
+    if ("FLOAT".equals(dataType)) {
+      return new DecimalCodec(name);    // Oracle FLOAT 은 10 진수 NUMBER
+    }
+    if ("BINARY_FLOAT".equals(dataType) || "BINARY_DOUBLE".equals(dataType)) {
+      return new DoubleCodec(name);
+    }
+    if (dataType.endsWith("CHAR") || dataType.endsWith("CHAR2")) {
+      return new StringCodec(name, Types.VARCHAR);
+    }
+    if ("LONG".equals(dataType)) {
+      return new CharStreamCodec(name, Types.LONGVARCHAR, false);
+    }
+    if (dataType.endsWith("CLOB")) {
+      return new CharStreamCodec(name, Types.CLOB, true);
+    }
+    if ("DATE".equals(dataType) || (dataType.startsWith("TIMESTAMP") && !dataType.contains("ZONE"))) {
+      return new TimestampCodec(name);    // Oracle DATE 는 시간까지 있으므로 Timestamp 로 읽는다.
+    }
+    if ("RAW".equals(dataType)) {
+      return new BytesCodec(name, Types.VARBINARY);
+    }
+    if ("LONG RAW".equals(dataType)) {
+      return new ByteStreamCodec(name, Types.LONGVARBINARY, false);
+    }
+    if ("BLOB".equals(dataType)) {
+      return new ByteStreamCodec(name, Types.BLOB, true);
+    }
+    return new ObjectCodec(name);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * NULL 을 바인딩할 때의 java.sql.Types
+   */
+  int getSqlType() {
+    return sqlType;
+  }
+
+  /**
+   * LONG / LOB 처럼 버퍼에 담지 않고 스트림으로 옮기는 컬럼인가 ?
+   */
+  boolean isStream() {
+    return false;
+  }
+
+  /**
+   * 스트림 컬럼 값을 원본에서 대상 바인드 변수로 넘긴다.
+   * 대상 문장을 실행할 때 드라이버가 원본 스트림을 조금씩 읽어서 쓰므로, 실행이 끝날 때까지 rs 를 다음 행으로 옮기면 안 된다.
+   * LONG 은 앞 컬럼을 모두 읽은 뒤에 읽어야 하므로 스트림 컬럼은 SELECT 의 마지막에 둔다.
+   * @return 실행 후 옮긴 크기를 알려주고 LOB 을 해제하는 객체
+   */
+  Transfer transfer(ResultSet rs, int index, PreparedStatement pstmt, int bindIndex) throws SQLException {
+    throw new UnsupportedOperationException(name + " 은 스트림 컬럼이 아닙니다.");
+  }
+
+  /**
+   * @param capacity 담을 수 있는 행 수
+   */
+  abstract Buffer newBuffer(int capacity);
+
+  /**
+   * rs 의 현재 행에서 값을 읽어서 스냅샷 블럭에 쓴다.
+   */
+  abstract void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException;
+
+  /**
+   * 스냅샷 블럭에서 값 하나를 읽어서 바인딩한다.
+   * @param pstmt null 이면 읽기만 한다. (대상에 없는 컬럼)
+   */
+  abstract void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException;
+
+  /**
+   * NULL 이면 바인딩하고 true
+   */
+  final boolean importNull(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+    if (in.readBoolean()) {
+      return false;
+    }
+    if (pstmt != null) {
+      pstmt.setNull(index, sqlType);
+    }
+    return true;
+  }
+
+  static void writeBytes(DataOutput out, byte[] value) throws IOException {
+    if (value == null) {
+      out.writeBoolean(false);
+      return;
+    }
+    out.writeBoolean(true);
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  static byte[] readBytes(DataInput in) throws IOException {
+    byte[] value = new byte[in.readInt()];
+    in.readFully(value);
+    return value;
+  }
+
+  /**
+   * 조각 하나를 길이와 함께 쓴다. (길이 0 은 끝 표시이므로 빈 조각은 쓰지 않는다)
+   */
+  static void writePiece(DataOutput out, byte[] piece, int length) throws IOException {
+    if (length > 0) {
+      out.writeInt(length);
+      out.write(piece, 0, length);
+    }
+  }
+
+  /**
+   * {@link #writePiece} 로 쓴 조각들을 끝 표시까지 읽어서 차례로 읽는 스트림으로 만든다.
+   * @return 조각을 이어 읽는 스트림과 전체 길이 (byte)
+   */
+  static InputStream readPieces(DataInput in, long[] length) throws IOException {
+    List<InputStream> pieces = new ArrayList<InputStream>();
+    long total = 0;
+    int n;
+    while ((n = in.readInt()) > 0) {
+      byte[] piece = new byte[n];
+      in.readFully(piece);
+      pieces.add(new ByteArrayInputStream(piece));
+      total += n;
+    }
+    length[0] = total;
+    return new SequenceInputStream(Collections.enumeration(pieces));
+  }
+
+  /**
+   * 컬럼 하나의 값 배열과 NULL 비트맵. 같은 버퍼를 계속 다시 쓴다.
+   */
+  abstract class Buffer {
+    private final long[] nulls;
+
+    Buffer(int capacity) {
+      nulls = new long[(capacity + 63) / 64];
+    }
+
+    /**
+     * rs 의 현재 행에서 값을 읽어서 row 번째에 넣는다.
+     * @return 값의 대략적인 크기 (byte)
+     */
+    abstract int read(ResultSet rs, int index, int row) throws SQLException;
+
+    /**
+     * row 번째 값을 바인딩한다.
+     */
+    void bind(PreparedStatement pstmt, int index, int row) throws SQLException {
+      if ((nulls[row >>> 6] & (1L << (row & 63))) != 0) {
+        pstmt.setNull(index, sqlType);
+      } else {
+        bindValue(pstmt, index, row);
+      }
+    }
+
+    abstract void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException;
+
+    final void setNull(int row) {
+      nulls[row >>> 6] |= 1L << (row & 63);
+    }
+
+    void clear() {
+      Arrays.fill(nulls, 0L);
+    }
+  }
+
+  /**
+   * 참조 값 (String / Timestamp / BigDecimal / byte[] 등) 을 담는 버퍼
+   */
+  abstract class RefBuffer<T> extends Buffer {
+    final Object[] values;
+
+    RefBuffer(int capacity) {
+      super(capacity);
+      values = new Object[capacity];
+    }
+
+    final int put(int row, T value, int length) {
+      values[row] = value;
+      if (value == null) {
+        setNull(row);
+        return 0;
+      }
+      return length;
+    }
+
+    @SuppressWarnings("unchecked")
+    final T get(int row) {
+      return (T) values[row];
+    }
+  }
+
+  private static class LongCodec extends ColumnCodec {
+    LongCodec(String name) {
+      super(name, Types.NUMERIC);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      final long[] values = new long[capacity];
+      return new Buffer(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          values[row] = rs.getLong(index);
+          if (rs.wasNull()) {
+            setNull(row);
+            return 0;
+          }
+          return 8;
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setLong(index, values[row]);
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      long value = rs.getLong(index);
+      out.writeBoolean(!rs.wasNull());
+      if (!rs.wasNull()) {
+        out.writeLong(value);
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        long value = in.readLong();
+        if (pstmt != null) {
+          pstmt.setLong(index, value);
+        }
+      }
+    }
+  }
+
+  private static class DoubleCodec extends ColumnCodec {
+    DoubleCodec(String name) {
+      super(name, Types.DOUBLE);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      final double[] values = new double[capacity];
+      return new Buffer(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          values[row] = rs.getDouble(index);
+          if (rs.wasNull()) {
+            setNull(row);
+            return 0;
+          }
+          return 8;
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setDouble(index, values[row]);
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      double value = rs.getDouble(index);
+      out.writeBoolean(!rs.wasNull());
+      if (!rs.wasNull()) {
+        out.writeDouble(value);
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        double value = in.readDouble();
+        if (pstmt != null) {
+          pstmt.setDouble(index, value);
+        }
+      }
+    }
+  }
+
+  private static class DecimalCodec extends ColumnCodec {
+    DecimalCodec(String name) {
+      super(name, Types.NUMERIC);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      return new RefBuffer<BigDecimal>(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          return put(row, rs.getBigDecimal(index), 8);
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setBigDecimal(index, get(row));
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      BigDecimal value = rs.getBigDecimal(index);
+      out.writeBoolean(value != null);
+      if (value != null) {
+        out.writeInt(value.scale());
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        if (pstmt != null) {
+          pstmt.setBigDecimal(index, new BigDecimal(new BigInteger(unscaled), scale));
+        }
+      }
+    }
+  }
+
+  private static class StringCodec extends ColumnCodec {
+    StringCodec(String name, int sqlType) {
+      super(name, sqlType);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      return new RefBuffer<String>(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          String value = rs.getString(index);
+          return put(row, value, value == null ? 0 : value.length());
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setString(index, get(row));
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      String value = rs.getString(index);
+      writeBytes(out, value == null ? null : value.getBytes(UTF_8));
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        byte[] value = readBytes(in);
+        if (pstmt != null) {
+          pstmt.setString(index, new String(value, UTF_8));
+        }
+      }
+    }
+  }
+
+  private static class TimestampCodec extends ColumnCodec {
+    TimestampCodec(String name) {
+      super(name, Types.TIMESTAMP);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      return new RefBuffer<Timestamp>(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          return put(row, rs.getTimestamp(index), 7);
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setTimestamp(index, get(row));
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      Timestamp value = rs.getTimestamp(index);
+      out.writeBoolean(value != null);
+      if (value != null) {
+        out.writeLong(value.getTime());
+        out.writeInt(value.getNanos());
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        Timestamp value = new Timestamp(in.readLong());
+        value.setNanos(in.readInt());
+        if (pstmt != null) {
+          pstmt.setTimestamp(index, value);
+        }
+      }
+    }
+  }
+
+  private static class BytesCodec extends ColumnCodec {
+    BytesCodec(String name, int sqlType) {
+      super(name, sqlType);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      return new RefBuffer<byte[]>(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          byte[] value = rs.getBytes(index);
+          return put(row, value, value == null ? 0 : value.length);
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setBytes(index, get(row));
+        }
+      };
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      writeBytes(out, rs.getBytes(index));
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        byte[] value = readBytes(in);
+        if (pstmt != null) {
+          pstmt.setBytes(index, value);
+        }
+      }
+    }
+  }
+
+  private static class ObjectCodec extends ColumnCodec {
+    ObjectCodec(String name) {
+      super(name, Types.VARCHAR);
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      return new RefBuffer<Object>(capacity) {
+        @Override
+        int read(ResultSet rs, int index, int row) throws SQLException {
+          return put(row, rs.getObject(index), 8);
+        }
+
+        @Override
+        void bindValue(PreparedStatement pstmt, int index, int row) throws SQLException {
+          pstmt.setObject(index, get(row));
+        }
+      };
+    }
+
+    /**
+     * 그 외 타입 (INTERVAL / TIMESTAMP WITH TIME ZONE 등) 은 파일에 문자열로 남기고 대상에서 변환한다.
+     */
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      String value = rs.getString(index);
+      writeBytes(out, value == null ? null : value.getBytes(UTF_8));
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        byte[] value = readBytes(in);
+        if (pstmt != null) {
+          pstmt.setString(index, new String(value, UTF_8));
+        }
+      }
+    }
+  }
+
+  /**
+   * 스트림 컬럼 하나를 옮긴 결과
+   */
+  static class Transfer {
+    static final Transfer NULL = new Transfer(null, null, null, null);
+
+    private final Reader reader;
+    private final InputStream in;
+    private final Clob clob;
+    private final Blob blob;
+
+    private Transfer(CountingReader reader, CountingInputStream in, Clob clob, Blob blob) {
+      this.reader = reader;
+      this.in = in;
+      this.clob = clob;
+      this.blob = blob;
+    }
+
+    /**
+     * 대상 문장을 실행하면서 읽은 크기 (문자 또는 byte)
+     */
+    long count() {
+      if (reader != null) {
+        return ((CountingReader) reader).count;
+      }
+      return in == null ? 0 : ((CountingInputStream) in).count;
+    }
+
+    /**
+     * 원본 스트림 / LOB 을 닫는다.
+     */
+    void release() {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+        if (in != null) {
+          in.close();
+        }
+      } catch (IOException e) {  }
+      try {
+        if (clob != null) {
+          clob.free();
+        }
+        if (blob != null) {
+          blob.free();
+        }
+      } catch (SQLException e) {  }
+    }
+  }
+
+  private abstract static class StreamCodec extends ColumnCodec {
+    final boolean locator;
+
+    /**
+     * @param locator LOB (locator 로 읽는다) 이면 true, LONG / LONG RAW 이면 false
+     */
+    StreamCodec(String name, int sqlType, boolean locator) {
+      super(name, sqlType);
+      this.locator = locator;
+    }
+
+    @Override
+    boolean isStream() {
+      return true;
+    }
+
+    @Override
+    Buffer newBuffer(int capacity) {
+      throw new UnsupportedOperationException(getName() + " 은 스트림으로만 옮깁니다.");
+    }
+  }
+
+  private static class CharStreamCodec extends StreamCodec {
+    CharStreamCodec(String name, int sqlType, boolean locator) {
+      super(name, sqlType, locator);
+    }
+
+    @Override
+    Transfer transfer(ResultSet rs, int index, PreparedStatement pstmt, int bindIndex) throws SQLException {
+      Clob clob = locator ? rs.getClob(index) : null;
+      Reader source = locator ? (clob == null ? null : clob.getCharacterStream()) : rs.getCharacterStream(index);
+      if (source == null) {
+        pstmt.setNull(bindIndex, getSqlType());
+        return Transfer.NULL;
+      }
+      CountingReader reader = new CountingReader(source);
+      if (clob != null) {
+        pstmt.setCharacterStream(bindIndex, reader, clob.length());
+      } else {
+        pstmt.setCharacterStream(bindIndex, reader);
+      }
+      return new Transfer(reader, null, clob, null);
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      Transfer transfer = Transfer.NULL;
+      Reader reader = null;
+      try {
+        Clob clob = locator ? rs.getClob(index) : null;
+        reader = locator ? (clob == null ? null : clob.getCharacterStream()) : rs.getCharacterStream(index);
+        if (clob != null) {
+          transfer = new Transfer(null, null, clob, null);
+        }
+        if (reader == null) {
+          out.writeBoolean(false);
+          return;
+        }
+        out.writeBoolean(true);
+        char[] buffer = new char[PIECE_LENGTH + 1];
+        int carry = 0;    // 조각 끝의 high surrogate 는 다음 조각으로 넘긴다.
+        int n;
+        while ((n = reader.read(buffer, carry, PIECE_LENGTH)) > 0) {
+          int end = carry + n;
+          carry = Character.isHighSurrogate(buffer[end - 1]) ? 1 : 0;
+          byte[] piece = new String(buffer, 0, end - carry).getBytes(UTF_8);
+          writePiece(out, piece, piece.length);
+          if (carry > 0) {
+            buffer[0] = buffer[end - 1];
+          }
+        }
+        if (carry > 0) {
+          byte[] piece = new String(buffer, 0, 1).getBytes(UTF_8);
+          writePiece(out, piece, piece.length);
+        }
+        out.writeInt(0);
+      } finally {
+        if (reader != null) {
+          reader.close();
+        }
+        transfer.release();
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        InputStream value = readPieces(in, new long[1]);
+        if (pstmt != null) {
+          pstmt.setCharacterStream(index, new InputStreamReader(value, UTF_8));
+        }
+      }
+    }
+  }
+
+  private static class ByteStreamCodec extends StreamCodec {
+    ByteStreamCodec(String name, int sqlType, boolean locator) {
+      super(name, sqlType, locator);
+    }
+
+    @Override
+    Transfer transfer(ResultSet rs, int index, PreparedStatement pstmt, int bindIndex) throws SQLException {
+      Blob blob = locator ? rs.getBlob(index) : null;
+      InputStream source = locator ? (blob == null ? null : blob.getBinaryStream()) : rs.getBinaryStream(index);
+      if (source == null) {
+        pstmt.setNull(bindIndex, getSqlType());
+        return Transfer.NULL;
+      }
+      CountingInputStream in = new CountingInputStream(source);
+      if (blob != null) {
+        pstmt.setBinaryStream(bindIndex, in, blob.length());
+      } else {
+        pstmt.setBinaryStream(bindIndex, in);
+      }
+      return new Transfer(null, in, null, blob);
+    }
+
+    @Override
+    void exportValue(ResultSet rs, int index, DataOutput out) throws SQLException, IOException {
+      Transfer transfer = Transfer.NULL;
+      InputStream in = null;
+      try {
+        Blob blob = locator ? rs.getBlob(index) : null;
+        in = locator ? (blob == null ? null : blob.getBinaryStream()) : rs.getBinaryStream(index);
+        if (blob != null) {
+          transfer = new Transfer(null, null, null, blob);
+        }
+        if (in == null) {
+          out.writeBoolean(false);
+          return;
+        }
+        out.writeBoolean(true);
+        byte[] buffer = new byte[PIECE_LENGTH];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+          writePiece(out, buffer, n);
+        }
+        out.writeInt(0);
+      } finally {
+        if (in != null) {
+          in.close();
+        }
+        transfer.release();
+      }
+    }
+
+    @Override
+    void importValue(DataInput in, PreparedStatement pstmt, int index) throws SQLException, IOException {
+      if (!importNull(in, pstmt, index)) {
+        long[] length = new long[1];
+        InputStream value = readPieces(in, length);
+        if (pstmt != null) {
+          pstmt.setBinaryStream(index, value, length[0]);
+        }
+      }
+    }
+  }
+
+  private static class CountingReader extends FilterReader {
+    private long count = 0;
+
+    CountingReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c >= 0) {
+        count++;
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    private long count = 0;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package kr.tanbbang01.converter.db.init.data;
+
+/**
+ * 테이블 하나를 나눈 복사 범위
+ *
+ * predicate 는 원본 SELECT 에 붙일 조건 ( rowid BETWEEN ... / ID >= ... ) 이며 low / high 를 순서대로 바인딩한다.
+ * 테이블 전체를 한번에 복사하면 predicate 는 null 이다.
+ */
+public class CopyChunk {
+  private final String tableName;
+  private final int seq;
+  private final String predicate;
+  private final Object low;
+  private final Object high;
+  private final long estimatedRows;
+  private long estimatedBytes = 0;
+
+  public CopyChunk(String tableName, int seq, String predicate, Object low, Object high, long estimatedRows) {
+    this.tableName = tableName;
+    this.seq = seq;
+    this.predicate = predicate;
+    this.low = low;
+    this.high = high;
+    this.estimatedRows = estimatedRows;
+  }
+
+  /**
+   * 테이블 전체
+   */
+  public static CopyChunk whole(String tableName, long estimatedRows) {
+    return new CopyChunk(tableName, 0, null, null, null, estimatedRows);
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * 테이블 안에서의 순번 (0 부터)
+   */
+  public int getSeq() {
+    return seq;
+  }
+
+  public String getPredicate() {
+    return predicate;
+  }
+
+  public Object getLow() {
+    return low;
+  }
+
+  public Object getHigh() {
+    return high;
+  }
+
+  /**
+   * 통계로 추정한 행 수 (통계가 없으면 0)
+   */
+  public long getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  /**
+   * 통계 (avg_row_len / 세그먼트 크기) 로 추정한 크기 (모르면 0). 큰 범위부터 실행하는 데 쓴다.
+   */
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  void setEstimatedBytes(long estimatedBytes) {
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return predicate == null ? tableName : tableName + " #" + seq + " [" + low + " ~ " + high + "]";
+  }
+}
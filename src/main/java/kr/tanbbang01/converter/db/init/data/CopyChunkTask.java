@@ -0,0 +1,121 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * INSERT ... SELECT ... FROM table@link 를 범위 하나만큼 실행하는 작업
+ * 범위마다 따로 커밋한다. (autoCommit Connection)
+ * 시작 / 커밋을 {@link CopyJournal} 에 기록한다.
+ */
+class CopyChunkTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(CopyChunkTask.class);
+
+  private static final Pattern INSERT_HEAD = Pattern.compile("\\s*INSERT\\s+INTO", Pattern.CASE_INSENSITIVE);
+
+  private final CopyChunk chunk;
+  private final String insertSql;
+  private final CopyJournal journal;
+  private final boolean clearFirst;
+  private final LoadStats loadStats;
+
+  /**
+   * @param insertSql get_insert_table 로 만든 INSERT ... SELECT 문 (direct-path 이면 {@link #directPath(String)} 로 바꾼 것)
+   * @param clearFirst 이전 실행에서 커밋하지 못한 범위 (대상에서 범위를 먼저 지운다)
+   */
+  CopyChunkTask(CopyChunk chunk, String insertSql, CopyJournal journal, boolean clearFirst, LoadStats loadStats) {
+    this.chunk = chunk;
+    this.insertSql = insertSql;
+    this.journal = journal;
+    this.clearFirst = clearFirst;
+    this.loadStats = loadStats;
+  }
+
+  /**
+   * INSERT INTO 에 APPEND 힌트를 넣는다. (direct-path)
+   * 바꿀 수 없는 문장이면 그대로 둔다.
+   */
+  static String directPath(String insertSql) {
+    Matcher matcher = INSERT_HEAD.matcher(insertSql);
+    if (!matcher.lookingAt()) {
+      logger.warn("[INSERT] APPEND 힌트를 넣을 수 없는 문장 : {}", insertSql);
+      return insertSql;
+    }
+    return "INSERT /*+ APPEND */ INTO" + insertSql.substring(matcher.end());
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString();
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException, IOException {
+    journal.started(chunk);
+    if (clearFirst) {
+      clearRange(conn, chunk);
+    }
+    String sql = chunk.getPredicate() == null ? insertSql : insertSql + " WHERE " + chunk.getPredicate();
+
+    long start = System.currentTimeMillis();
+    long redoBefore = loadStats.redoSize(conn);
+    PreparedStatement pstmt = null;
+    int rows;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      if (chunk.getPredicate() != null) {
+        pstmt.setObject(1, chunk.getLow());
+        pstmt.setObject(2, chunk.getHigh());
+      }
+      rows = pstmt.executeUpdate();
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+    } catch (SQLException e) {
+      logger.error("[INSERT] Exception : {} ", sql);
+      throw e;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    journal.done(chunk, rows);
+    loadStats.add(chunk.getTableName(), rows, redoBefore, loadStats.redoSize(conn), System.currentTimeMillis() - start);
+    logger.info("[INSERT] {} - {} rows ({} ms)", chunk, rows, System.currentTimeMillis() - start);
+    return true;
+  }
+
+  /**
+   * 대상 테이블에서 범위 (ID 범위) 의 행을 지운다. 일부만 커밋된 범위를 다시 복사하기 전에 쓴다.
+   */
+  static int clearRange(Connection conn, CopyChunk chunk) throws SQLException {
+    PreparedStatement pstmt = null;
+    try {
+      pstmt = conn.prepareStatement("DELETE FROM " + chunk.getTableName() + " WHERE " + chunk.getPredicate());
+      pstmt.setObject(1, chunk.getLow());
+      pstmt.setObject(2, chunk.getHigh());
+      int rows = pstmt.executeUpdate();
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+      logger.info("[INSERT] {} - 이전 실행에서 들어간 {} rows 삭제", chunk, rows);
+      return rows;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+}
@@ -0,0 +1,302 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 데이터 복사 진행 기록 (추가만 하는 로컬 파일)
+ *
+ * 한 줄이 기록 하나이며 쓸 때마다 디스크에 내린다. (FileChannel.force)
+ *  - CHUNK / PLANNED : 테이블의 복사 범위 (처음 나눌 때 한번, PLANNED 까지 있어야 유효).
+ *    다시 실행하면 통계가 바뀌어도 같은 범위를 쓴다.
+ *  - START : 범위 복사 시작
+ *  - DONE  : 범위 커밋 완료 (행 수)
+ *  - RESET : 테이블 기록 무효 (TRUNCATE 후 처음부터)
+ * 다시 실행하면 DONE 인 범위는 건너뛰고, START 만 있는 범위는 일부만 들어갔을 수 있으므로
+ * ID 범위는 그 범위를 지우고 다시, 지울 수 없는 범위 (ROWID / 테이블 전체) 가 있으면 테이블을 비우고 처음부터 복사한다.
+ * 줄바꿈으로 끝나지 않은 마지막 줄 (쓰는 도중 중단) 은 무시한다.
+ */
+public class CopyJournal {
+  private static Logger logger = LoggerFactory.getLogger(CopyJournal.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String NULL = "-";
+
+  private final File file;
+  private final Map<String, TableState> tables = new HashMap<String, TableState>();
+  private FileChannel channel = null;
+
+  private CopyJournal(File file) {
+    this.file = file;
+  }
+
+  /**
+   * 기존 기록을 읽고 이어서 쓸 수 있게 연다.
+   */
+  public static CopyJournal open(File file) throws IOException {
+    CopyJournal journal = new CopyJournal(file);
+    boolean torn = file.exists() && journal.read();
+    journal.channel = new FileOutputStream(file, true).getChannel();
+    if (torn) {
+      journal.append("\n");    // 끊긴 기록 뒤에 이어 쓰지 않도록 줄을 끝낸다.
+    }
+    return journal;
+  }
+
+  /**
+   * @return 마지막 줄이 끊겼으면 true
+   */
+  private boolean read() throws IOException {
+    byte[] bytes = new byte[(int) file.length()];
+    FileInputStream in = new FileInputStream(file);
+    try {
+      int offset = 0;
+      int n;
+      while (offset < bytes.length && (n = in.read(bytes, offset, bytes.length - offset)) > 0) {
+        offset += n;
+      }
+    } finally {
+      in.close();
+    }
+
+    String[] lines = new String(bytes, UTF8).split("\n", -1);
+    // 마지막 원소는 줄바꿈으로 끝나지 않은 (쓰다가 끊긴) 기록이거나 빈 문자열
+    for (int i = 0; i < lines.length - 1; i++) {
+      if (!apply(lines[i].split("\t", -1))) {
+        logger.warn("[JOURNAL] 읽을 수 없는 기록 무시 : {}", lines[i]);
+      }
+    }
+    boolean torn = lines[lines.length - 1].length() > 0;
+    if (torn) {
+      logger.warn("[JOURNAL] 끊긴 마지막 기록 무시 : {}", lines[lines.length - 1]);
+    }
+    logger.info("[JOURNAL] {} - {} 개 기록 / {} 개 테이블", file, lines.length - 1, tables.size());
+    return torn;
+  }
+
+  private boolean apply(String[] f) {
+    try {
+      if ("CHUNK".equals(f[0]) && f.length == 8) {
+        CopyChunk chunk = new CopyChunk(f[1], Integer.parseInt(f[2]), NULL.equals(f[3]) ? null : f[3],
+            decode(f[4]), decode(f[5]), Long.parseLong(f[6]));
+        chunk.setEstimatedBytes(Long.parseLong(f[7]));
+        if (chunk.getSeq() == 0) {
+          tables.remove(f[1]);    // 새로 나눈 범위 (끊긴 이전 범위는 버린다)
+        }
+        table(f[1]).chunks.put(chunk.getSeq(), chunk);
+      } else if ("PLANNED".equals(f[0]) && f.length == 3) {
+        TableState state = table(f[1]);
+        state.planned = state.chunks.size() == Integer.parseInt(f[2]);
+      } else if ("START".equals(f[0]) && f.length == 3) {
+        table(f[1]).started.put(Integer.valueOf(f[2]), Boolean.TRUE);
+      } else if ("DONE".equals(f[0]) && f.length == 4) {
+        table(f[1]).done.put(Integer.valueOf(f[2]), Long.valueOf(f[3]));
+      } else if ("RESET".equals(f[0]) && f.length == 2) {
+        tables.remove(f[1]);
+      } else {
+        return false;
+      }
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private TableState table(String tableName) {
+    TableState state = tables.get(tableName);
+    if (state == null) {
+      state = new TableState();
+      tables.put(tableName, state);
+    }
+    return state;
+  }
+
+  /**
+   * 범위를 나눈 적이 있는 테이블인가 ?
+   */
+  public synchronized boolean isPlanned(String tableName) {
+    TableState state = tables.get(tableName);
+    return state != null && state.planned;
+  }
+
+  /**
+   * 모든 범위가 커밋된 테이블인가 ?
+   */
+  public synchronized boolean isComplete(String tableName) {
+    TableState state = tables.get(tableName);
+    return state != null && state.planned && state.done.keySet().containsAll(state.chunks.keySet());
+  }
+
+  /**
+   * 커밋된 범위의 행 수 합계
+   */
+  public synchronized long getCopiedRows(String tableName) {
+    TableState state = tables.get(tableName);
+    long rows = 0;
+    if (state != null) {
+      for (Long value : state.done.values()) {
+        rows += value;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * 시작했지만 커밋하지 못한 범위 중 범위만 지워서 다시 할 수 없는 것 (ROWID / 테이블 전체) 이 있는가 ?
+   * 이런 테이블은 비우고 처음부터 다시 복사해야 한다.
+   */
+  public synchronized boolean needsTruncate(String tableName) {
+    TableState state = tables.get(tableName);
+    if (state == null) {
+      return false;
+    }
+    for (Integer seq : state.started.keySet()) {
+      if (!state.done.containsKey(seq) && !isClearable(state.chunks.get(seq))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return 커밋되지 않은 범위 (순번 순서)
+   */
+  public synchronized List<CopyChunk> getRemainingChunks(String tableName) {
+    TableState state = tables.get(tableName);
+    if (state == null) {
+      return Collections.emptyList();
+    }
+    List<CopyChunk> chunks = new ArrayList<CopyChunk>();
+    for (CopyChunk chunk : state.chunks.values()) {
+      if (!state.done.containsKey(chunk.getSeq())) {
+        chunks.add(chunk);
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * @return 기록된 범위, 없으면 null
+   */
+  public synchronized CopyChunk getChunk(String tableName, int seq) {
+    TableState state = tables.get(tableName);
+    return state == null ? null : state.chunks.get(seq);
+  }
+
+  /**
+   * 이전 실행에서 시작했지만 커밋되지 않은 범위인가 ? (대상에 일부 행이 있을 수 있다)
+   */
+  public synchronized boolean isStarted(CopyChunk chunk) {
+    TableState state = tables.get(chunk.getTableName());
+    return state != null && state.started.containsKey(chunk.getSeq()) && !state.done.containsKey(chunk.getSeq());
+  }
+
+  /**
+   * 대상 테이블에서 범위 조건으로 지울 수 있는 범위 (ID 범위) 인가 ?
+   * ROWID 는 원본 기준이라 대상에서 쓸 수 없다.
+   */
+  static boolean isClearable(CopyChunk chunk) {
+    return chunk != null && chunk.getPredicate() != null && !chunk.getPredicate().startsWith("rowid");
+  }
+
+  public synchronized void plan(String tableName, List<CopyChunk> chunks) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (CopyChunk chunk : chunks) {
+      sb.append("CHUNK\t").append(tableName).append('\t').append(chunk.getSeq()).append('\t')
+          .append(chunk.getPredicate() == null ? NULL : chunk.getPredicate()).append('\t')
+          .append(encode(chunk.getLow())).append('\t').append(encode(chunk.getHigh())).append('\t')
+          .append(chunk.getEstimatedRows()).append('\t').append(chunk.getEstimatedBytes()).append('\n');
+    }
+    sb.append("PLANNED\t").append(tableName).append('\t').append(chunks.size()).append('\n');
+    append(sb.toString());
+
+    tables.remove(tableName);
+    TableState state = table(tableName);
+    for (CopyChunk chunk : chunks) {
+      state.chunks.put(chunk.getSeq(), chunk);
+    }
+    state.planned = true;
+  }
+
+  public synchronized void started(CopyChunk chunk) throws IOException {
+    append("START\t" + chunk.getTableName() + "\t" + chunk.getSeq() + "\n");
+    table(chunk.getTableName()).started.put(chunk.getSeq(), Boolean.TRUE);
+  }
+
+  /**
+   * 범위 커밋 후에 기록한다.
+   */
+  public synchronized void done(CopyChunk chunk, long rows) throws IOException {
+    append("DONE\t" + chunk.getTableName() + "\t" + chunk.getSeq() + "\t" + rows + "\n");
+    table(chunk.getTableName()).done.put(chunk.getSeq(), rows);
+  }
+
+  /**
+   * 테이블 기록을 무효로 한다. (테이블을 비운 후)
+   */
+  public synchronized void reset(String tableName) throws IOException {
+    append("RESET\t" + tableName + "\n");
+    tables.remove(tableName);
+  }
+
+  public synchronized void close() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {  }
+      channel = null;
+    }
+  }
+
+  private void append(String records) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(UTF8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * ROWID 는 문자열 (S:), ID 는 숫자 (L:)
+   */
+  private static String encode(Object value) {
+    if (value == null) {
+      return NULL;
+    }
+    return (value instanceof Number ? "L:" + ((Number) value).longValue() : "S:" + value);
+  }
+
+  private static Object decode(String value) {
+    if (NULL.equals(value)) {
+      return null;
+    }
+    if (value.startsWith("L:")) {
+      return Long.valueOf(value.substring(2));
+    }
+    if (value.startsWith("S:")) {
+      return value.substring(2);
+    }
+    throw new NumberFormatException(value);
+  }
+
+  private static class TableState {
+    private final Map<Integer, CopyChunk> chunks = new TreeMap<Integer, CopyChunk>();
+    private final Map<Integer, Boolean> started = new HashMap<Integer, Boolean>();
+    private final Map<Integer, Long> done = new HashMap<Integer, Long>();
+    private boolean planned = false;
+  }
+}
@@ -0,0 +1,228 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 이전 동기화 이후 바뀐 행만 원본에서 가져와 MERGE 한다. (data 이후 반복 실행)
+ *
+ * 테이블마다 watermark ({@link DeltaWatermark}) 를 두고
+ *  - 기본 (SCN) : 원본의 ORA_ROWSCN 이 마지막 동기화 SCN 보다 큰 행
+ *  - DELTA_COLUMN.테이블명=컬럼 을 설정한 테이블 : 그 컬럼 (수정일시 / 증가 번호) 이 마지막 값보다 큰 행
+ * 만 PK 로 MERGE 하므로 실행 시간은 변경량에 비례한다.
+ * ORA_ROWSCN 은 ROWDEPENDENCIES 가 없는 테이블에서는 블럭 단위라 바뀌지 않은 행도 일부 다시 가져오지만 MERGE 라 결과는 같다.
+ * 원본에서 삭제된 행은 반영하지 않는다. PK 가 없는 테이블은 건너뛴다.
+ * LONG / LONG RAW 컬럼이 있는 테이블은 DB LINK 로 읽을 수 없으므로 (ORA-00997) 경고를 남기고 건너뛴다.
+ * DELTA_TABLES 로 테이블을 지정할 수 있으며 (쉼표 구분), 없으면 대상에 있는 모든 테이블을 동기화한다.
+ */
+public class DeltaSyncInit {
+  private static Logger logger = LoggerFactory.getLogger(DeltaSyncInit.class);
+
+  private String dbLinkName = "";
+  private Resourcer config = null;
+  private Connection sourceConn = null;
+  private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private String sourceSchema = "SOLARS8_CODE";
+  private int workerCount = 4;
+  private DeltaWatermark watermark = null;
+
+  public DeltaSyncInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    BasicDataSource sourceBds = new BasicDataSource();
+    sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
+    sourceBds.setUrl(config.getString("SOURCE_CONNECTION_STRING"));
+    sourceBds.setUsername(config.getString("SOURCE_USER"));
+    sourceBds.setPassword(config.getString("SOURCE_PASSWORD"));
+    sourceBds.setMaxActive(-1);
+    sourceBds.setMaxIdle(-1);
+    sourceBds.setDefaultAutoCommit(true);
+    sourceConn = sourceBds.getConnection();
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    dbLinkName = config.getString("DB_LINK_NAME");
+    sourceSchema = config.getString("SOURCE_SCHEMA", sourceSchema).toUpperCase();
+    workerCount = config.getInt("COPY_WORKER_COUNT", workerCount);
+    watermark = new DeltaWatermark(new File(config.getString("DELTA_WATERMARK_FILE", "delta-watermark.properties")));
+  }
+
+  private void connClose() {
+    try{
+      sourceConn.close();
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Delta Sync Start. ====");
+      sync();
+      logger.info("==== Delta Sync End. ====");
+    } catch (SQLException e) {
+      logger.error("[DELTA] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void sync() throws SQLException {
+    // 복사를 시작하기 전의 SCN. 복사 중에 바뀐 행은 다음 동기화에서 다시 가져온다.
+    long scn = currentScn(sourceConn);
+    TableInventory inventory = TableInventory.collect(sourceConn, sourceSchema, destBds, workerCount);
+    Map<String, List<String>> destColumns = readDestColumns(false);
+    Map<String, List<String>> destKeys = readDestColumns(true);
+    Set<String> targets = targetTables();
+
+    TaskScheduler scheduler = new TaskScheduler("DELTA", destBds, workerCount);
+    for (TableInventory.Entry entry : inventory.getEntries()) {
+      String tableName = entry.getTableName();
+      if (entry.getDestState() == TableInventory.DestState.MISSING || (targets != null && !targets.contains(tableName))) {
+        continue;
+      }
+      if (entry.hasLong()) {
+        logger.warn("[DELTA] {} - LONG / LONG RAW 컬럼은 DB LINK 로 읽을 수 없어서 건너뜁니다. (data 단계로 다시 복사하세요)", tableName);
+        continue;
+      }
+      List<String> keys = destKeys.get(tableName);
+      if (keys == null || !destColumns.containsKey(tableName)) {
+        logger.warn("[DELTA] {} - PK 가 없어서 건너뜁니다.", tableName);
+        continue;
+      }
+
+      List<String> columns = new ArrayList<String>(entry.getColumns());
+      columns.retainAll(destColumns.get(tableName));
+      if (!columns.containsAll(keys)) {
+        logger.warn("[DELTA] {} - 원본에 PK 컬럼 {} 이 없어서 건너뜁니다.", tableName, keys);
+        continue;
+      }
+
+      String column = config.getString("DELTA_COLUMN." + tableName, "");
+      scheduler.add(new DeltaSyncTask(tableName, sourceSchema + "." + tableName + "@" + dbLinkName.toUpperCase(),
+          columns, keys, column.length() == 0 ? null : column.toUpperCase(), scn, watermark))
+          .weight(Math.max(entry.getNumRows(), 0));
+    }
+
+    TaskReport report = scheduler.run();
+    report.log(logger);
+  }
+
+  /**
+   * @return DELTA_TABLES 에 지정한 테이블, 없으면 null (모든 테이블)
+   */
+  private Set<String> targetTables() {
+    String tables = config.getString("DELTA_TABLES", "").trim();
+    if (tables.length() == 0) {
+      return null;
+    }
+    return new HashSet<String>(Arrays.asList(tables.toUpperCase().split("\\s*,\\s*")));
+  }
+
+  /**
+   * 대상 DB 의 테이블별 컬럼 (keysOnly 이면 PK 컬럼만)
+   */
+  private Map<String, List<String>> readDestColumns(boolean keysOnly) throws SQLException {
+    String sql = keysOnly
+        ? " SELECT cc.table_name, cc.column_name FROM user_constraints c, user_cons_columns cc "
+          + "  WHERE c.constraint_type = 'P' AND cc.constraint_name = c.constraint_name ORDER BY cc.table_name, cc.position "
+        : " SELECT table_name, column_name FROM user_tab_columns ORDER BY table_name, column_id ";
+    Map<String, List<String>> columns = new HashMap<String, List<String>>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = destConn.prepareStatement(sql);
+      pstmt.setFetchSize(1000);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        List<String> list = columns.get(rs.getString(1));
+        if (list == null) {
+          list = new ArrayList<String>();
+          columns.put(rs.getString(1), list);
+        }
+        list.add(rs.getString(2));
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * 원본 DB 의 현재 SCN. DBMS_FLASHBACK 권한이 없으면 V$DATABASE 에서 읽는다.
+   */
+  static long currentScn(Connection sourceConn) throws SQLException {
+    SQLException first = null;
+    for (String sql : new String[] { "SELECT dbms_flashback.get_system_change_number FROM dual", "SELECT current_scn FROM v$database" }) {
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+      try {
+        pstmt = sourceConn.prepareStatement(sql);
+        rs = pstmt.executeQuery();
+        if (rs.next()) {
+          return rs.getLong(1);
+        }
+      } catch (SQLException e) {
+        if (first == null) {
+          first = e;
+        }
+      } finally {
+        if (rs != null) {
+          try {
+            rs.close();
+          } catch (SQLException e) {  }
+        }
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+    }
+    throw first != null ? first : new SQLException("원본 SCN 을 읽지 못했습니다.");
+  }
+}
@@ -0,0 +1,184 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 테이블 하나를 MERGE 로 동기화하는 작업
+ *
+ * MERGE INTO 테이블 USING (SELECT ... FROM 스키마.테이블@link WHERE 변경 조건) ON (PK) 를 한 문장으로 실행하고
+ * 커밋 후에 watermark 를 기록한다. 변경 조건은
+ *  - SCN 방식 : ORA_ROWSCN > 마지막 SCN
+ *  - 컬럼 방식 : 컬럼 > 마지막 값 AND 컬럼 <= 이번 최대값
+ * 이며 watermark 가 없으면 조건 없이 전체를 MERGE 한다.
+ */
+class DeltaSyncTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(DeltaSyncTask.class);
+
+  private final String tableName;
+  private final String sourceTable;
+  private final List<String> columns;
+  private final List<String> keys;
+  private final String watermarkColumn;
+  private final long sourceScn;
+  private final DeltaWatermark watermark;
+
+  /**
+   * @param sourceTable 스키마.테이블@link
+   * @param columns 원본 / 대상에 모두 있는 컬럼
+   * @param keys 대상 PK 컬럼
+   * @param watermarkColumn 컬럼 방식이면 컬럼명, SCN 방식이면 null
+   * @param sourceScn 동기화를 시작하기 전에 읽은 원본 SCN (SCN 방식)
+   */
+  DeltaSyncTask(String tableName, String sourceTable, List<String> columns, List<String> keys,
+                String watermarkColumn, long sourceScn, DeltaWatermark watermark) {
+    this.tableName = tableName;
+    this.sourceTable = sourceTable;
+    this.columns = columns;
+    this.keys = keys;
+    this.watermarkColumn = watermarkColumn;
+    this.sourceScn = sourceScn;
+    this.watermark = watermark;
+  }
+
+  @Override
+  public String getName() {
+    return tableName + " : DELTA";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    List<Object> binds = new ArrayList<Object>();
+    String predicate;
+    Object high = null;
+
+    if (watermarkColumn == null) {
+      Long low = watermark.getScn(tableName);
+      predicate = low == null ? null : "ORA_ROWSCN > ?";
+      if (low != null) {
+        binds.add(low);
+      }
+    } else {
+      high = maxValue(conn);
+      if (high == null) {
+        logger.info("[DELTA] {} - 원본에 {} 값이 없습니다.", tableName, watermarkColumn);
+        return false;
+      }
+      Object low = watermark.getColumnValue(tableName, watermarkColumn);
+      predicate = low == null ? watermarkColumn + " <= ?" : watermarkColumn + " > ? AND " + watermarkColumn + " <= ?";
+      if (low != null) {
+        binds.add(low);
+      }
+      binds.add(high);
+    }
+
+    String sql = mergeSql(predicate);
+    long start = System.currentTimeMillis();
+    PreparedStatement pstmt = null;
+    int rows;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      for (int i = 0; i < binds.size(); i++) {
+        pstmt.setObject(i + 1, binds.get(i));
+      }
+      rows = pstmt.executeUpdate();
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+    } catch (SQLException e) {
+      logger.error("[DELTA] Exception : {} ", sql);
+      throw e;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+
+    if (watermarkColumn == null) {
+      watermark.setScn(tableName, sourceScn);
+    } else {
+      watermark.setColumnValue(tableName, watermarkColumn, high);
+    }
+    logger.info("[DELTA] {} - {} rows merged ({} ms) {}", tableName, rows, System.currentTimeMillis() - start,
+        predicate == null ? "(전체)" : "");
+    return rows > 0;
+  }
+
+  private String mergeSql(String predicate) {
+    StringBuilder select = new StringBuilder();
+    StringBuilder on = new StringBuilder();
+    StringBuilder update = new StringBuilder();
+    StringBuilder insert = new StringBuilder();
+    StringBuilder values = new StringBuilder();
+    for (String column : columns) {
+      String quoted = "\"" + column + "\"";
+      append(select, ", ", quoted);
+      append(insert, ", ", "d." + quoted);
+      append(values, ", ", "s." + quoted);
+      if (keys.contains(column)) {
+        append(on, " AND ", "d." + quoted + " = s." + quoted);
+      } else {
+        append(update, ", ", "d." + quoted + " = s." + quoted);
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("MERGE INTO ").append(tableName).append(" d");
+    sb.append(" USING (SELECT ").append(select).append(" FROM ").append(sourceTable);
+    if (predicate != null) {
+      sb.append(" WHERE ").append(predicate);
+    }
+    sb.append(") s ON (").append(on).append(")");
+    if (update.length() > 0) {
+      sb.append(" WHEN MATCHED THEN UPDATE SET ").append(update);
+    }
+    sb.append(" WHEN NOT MATCHED THEN INSERT (").append(insert).append(") VALUES (").append(values).append(")");
+    return sb.toString();
+  }
+
+  private static void append(StringBuilder sb, String separator, String value) {
+    if (sb.length() > 0) {
+      sb.append(separator);
+    }
+    sb.append(value);
+  }
+
+  /**
+   * 원본 watermark 컬럼의 최대값 (날짜는 Timestamp, 숫자는 BigDecimal)
+   */
+  private Object maxValue(Connection conn) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement("SELECT max(" + watermarkColumn + ") FROM " + sourceTable);
+      rs = pstmt.executeQuery();
+      if (!rs.next()) {
+        return null;
+      }
+      int type = rs.getMetaData().getColumnType(1);
+      return type == Types.DATE || type == Types.TIMESTAMP ? rs.getTimestamp(1) : rs.getBigDecimal(1);
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Properties;
+
+/**
+ * 테이블별 마지막 동기화 위치 (DELTA_WATERMARK_FILE, 기본값 delta-watermark.properties)
+ *
+ *  - SCN 방식 : 테이블명=SCN:원본 SCN
+ *    동기화를 시작하기 전에 읽은 원본 SCN 이다. 다음에는 ORA_ROWSCN 이 이보다 큰 행만 가져온다.
+ *  - 컬럼 방식 : 테이블명=COL:컬럼명:T:시각 또는 COL:컬럼명:N:숫자
+ *    가져온 행의 컬럼 최대값이다. 다음에는 이보다 큰 행만 가져온다.
+ * 방식이나 컬럼이 바뀌면 기록이 없는 것으로 보고 처음부터 동기화한다.
+ * 테이블 하나가 끝날 때마다 임시 파일에 쓴 뒤 바꿔치기한다.
+ */
+public class DeltaWatermark {
+  private static Logger logger = LoggerFactory.getLogger(DeltaWatermark.class);
+
+  private static final String SCN_PREFIX = "SCN:";
+  private static final String COLUMN_PREFIX = "COL:";
+
+  private final File file;
+  private final Properties state = new Properties();
+
+  public DeltaWatermark(File file) {
+    this.file = file;
+    if (!file.exists()) {
+      return;
+    }
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      state.load(in);
+    } catch (IOException e) {
+      logger.warn("[DELTA] {} 을 읽지 못했습니다. 모든 테이블을 처음부터 동기화합니다. {}", file, e.getMessage());
+      state.clear();
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {  }
+      }
+    }
+  }
+
+  /**
+   * @return 마지막 SCN, 없거나 SCN 방식이 아니었으면 null
+   */
+  public synchronized Long getScn(String tableName) {
+    String value = state.getProperty(tableName);
+    if (value == null || !value.startsWith(SCN_PREFIX)) {
+      return null;
+    }
+    return Long.valueOf(value.substring(SCN_PREFIX.length()));
+  }
+
+  public synchronized void setScn(String tableName, long scn) {
+    state.setProperty(tableName, SCN_PREFIX + scn);
+    save();
+  }
+
+  /**
+   * @return 컬럼의 마지막 값 (Timestamp / BigDecimal), 없거나 다른 컬럼이었으면 null
+   */
+  public synchronized Object getColumnValue(String tableName, String column) {
+    String value = state.getProperty(tableName);
+    String head = COLUMN_PREFIX + column + ":";
+    if (value == null || !value.startsWith(head)) {
+      return null;
+    }
+    String typed = value.substring(head.length());
+    if (typed.startsWith("T:")) {
+      return Timestamp.valueOf(typed.substring(2));
+    }
+    if (typed.startsWith("N:")) {
+      return new BigDecimal(typed.substring(2));
+    }
+    return null;
+  }
+
+  /**
+   * @param value Timestamp 또는 숫자
+   */
+  public synchronized void setColumnValue(String tableName, String column, Object value) {
+    String typed;
+    if (value instanceof Timestamp) {
+      typed = "T:" + value;
+    } else if (value instanceof Number) {
+      typed = "N:" + (value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+    } else {
+      throw new IllegalArgumentException(tableName + "." + column + " : 날짜 / 숫자 컬럼만 쓸 수 있습니다. " + value);
+    }
+    state.setProperty(tableName, COLUMN_PREFIX + column + ":" + typed);
+    save();
+  }
+
+  public synchronized void remove(String tableName) {
+    if (state.remove(tableName) != null) {
+      save();
+    }
+  }
+
+  /**
+   * 임시 파일에 쓴 뒤 바꿔치기해서 쓰다가 멈춰도 기록이 깨지지 않게 한다.
+   */
+  private void save() {
+    File temp = new File(file.getPath() + ".tmp");
+    OutputStream out = null;
+    try {
+      out = new FileOutputStream(temp);
+      state.store(out, "delta watermark");
+      out.close();
+      out = null;
+      if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+        logger.warn("[DELTA] {} 에 저장하지 못했습니다.", file);
+      }
+    } catch (IOException e) {
+      logger.warn("[DELTA] {} 에 저장하지 못했습니다. {}", file, e.getMessage());
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {  }
+      }
+    }
+  }
+}
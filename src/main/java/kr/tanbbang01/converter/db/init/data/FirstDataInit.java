@@ -1,33 +1,68 @@
 package kr.tanbbang01.converter.db.init.data;
 
 import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.DbTask;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskResult;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
 import kr.tanbbang01.converter.util.Resourcer;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * SOLARS8_CODE 기초 데이터 복사
+ *
+ * 먼저 {@link TableInventory} 로 대상이 비어있는 테이블을 고른다. (테이블 전체를 count 하지 않는다)
+ * 나눈 범위와 커밋한 범위는 {@link CopyJournal} 에 남기고, 중간에 멈추면 다음 실행에서 커밋하지 않은 범위부터 이어서 복사한다.
+ * 테이블을 COPY_CHUNK_ROWS 행 정도의 범위 (ROWID 또는 ID) 로 나누고,
+ * 모든 테이블의 범위를 COPY_WORKER_COUNT 개의 대상 DB Connection 으로 예상 크기가 큰 것부터 동시에 복사한다.
+ * 범위마다 따로 커밋한다.
+ * LONG / LONG RAW / CLOB / BLOB 컬럼이 있는 테이블은 COPY_LOB_WORKER_COUNT 개의 별도 작업자로 스트림 복사한다.
+ *
  * Created by InSeong on 18. 4. 10..
  */
 public class FirstDataInit {
   private static Logger logger = LoggerFactory.getLogger(FirstDataInit.class);
 
+  private static final String ENGINE_LINK = "LINK";
+  private static final String ENGINE_JDBC = "JDBC";
+
   private String dbLinkName = "";
   private Resourcer config = null;
   private Connection sourceConn = null;
   private Connection destConn = null;
+  private BasicDataSource sourceBds = null;
+  private BasicDataSource destBds = null;
+  private String sourceSchema = "SOLARS8_CODE";
+  private String defaultEngine = ENGINE_LINK;
+  private JdbcCopyEngine jdbcEngine = null;
+  private int copyWorkerCount = 4;
+  private long copyChunkRows = 500000;
+  private ChunkPlanner.Mode chunkMode = ChunkPlanner.Mode.ROWID;
+  private boolean directPath = false;
+  private boolean nologging = false;
+  private int lobWorkerCount = 2;
 
   public FirstDataInit(String configFile) throws SQLException {
     this.config = Resourcer.getInstance(configFile);
 
-    BasicDataSource sourceBds = new BasicDataSource();
+    sourceBds = new BasicDataSource();
     sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
     sourceBds.setUrl(config.getString("SOURCE_CONNECTION_STRING"));
     sourceBds.setUsername(config.getString("SOURCE_USER"));
@@ -37,7 +72,7 @@ public class FirstDataInit {
     sourceBds.setDefaultAutoCommit(true);
     sourceConn = sourceBds.getConnection();
 
-    BasicDataSource destBds = new BasicDataSource();
+    destBds = new BasicDataSource();
     destBds.setDriverClassName(config.getString("DEST_JDBC"));
     destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
     destBds.setUsername(config.getString("DEST_USER"));
@@ -48,6 +83,23 @@ public class FirstDataInit {
     destConn = destBds.getConnection();
 
     dbLinkName = config.getString("DB_LINK_NAME");
+    copyWorkerCount = config.getInt("COPY_WORKER_COUNT", copyWorkerCount);
+    copyChunkRows = config.getInt("COPY_CHUNK_ROWS", (int) copyChunkRows);
+    chunkMode = ChunkPlanner.Mode.valueOf(config.getString("COPY_CHUNK_MODE", chunkMode.name()).toUpperCase());
+    sourceSchema = config.getString("SOURCE_SCHEMA", sourceSchema).toUpperCase();
+    defaultEngine = config.getString("COPY_ENGINE", defaultEngine).toUpperCase();
+    directPath = config.getBoolean("COPY_DIRECT_PATH", directPath);
+    nologging = config.getBoolean("COPY_NOLOGGING", nologging);
+    lobWorkerCount = config.getInt("COPY_LOB_WORKER_COUNT", lobWorkerCount);
+    jdbcEngine = new JdbcCopyEngine(sourceSchema, config.getInt("COPY_FETCH_SIZE", 1000),
+        config.getInt("COPY_BATCH_SIZE", 1000), config.getInt("COPY_COMMIT_ROWS", 10000), directPath);
+  }
+
+  /**
+   * 테이블의 복사 방식. COPY_ENGINE.테이블명 이 있으면 그 값, 없으면 COPY_ENGINE (LINK / JDBC)
+   */
+  private String engineOf(String tableName) {
+    return config.getString("COPY_ENGINE." + tableName, defaultEngine).toUpperCase();
   }
 
   private void connClose() {
@@ -71,129 +123,343 @@ public class FirstDataInit {
   }
 
   /**
-   * 데이터가 존재하는가 ?
-   * @param tableName
-   * @return
+   * 복사 전 inventory. 원본 딕셔너리와 대상 테이블의 첫 행만 확인하고 manifest 를 남긴다.
    */
-  private boolean isFirstDataExists (String tableName) {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    Boolean result = true;
-    Integer cnt = 1;
+  private TableInventory collectInventory() throws SQLException {
+    TableInventory inventory = TableInventory.collect(sourceConn, sourceSchema, destBds, copyWorkerCount);
+    inventory.writeManifest(new File(config.getString("INVENTORY_MANIFEST", "inventory.manifest")));
+    return inventory;
+  }
 
-    StringBuilder sb = new StringBuilder();
-    sb.append(" SELECT count(1) ");
-    sb.append("   FROM " + tableName);
+  /**
+   * Default Data Insert Sql
+   * journal 에 복사 중으로 남은 테이블과 inventory 에서 대상 테이블이 비어있는 테이블을 고른다.
+   * LOB 컬럼이 있는 테이블은 DB LINK 로 옮기지 않고 (LONG 은 DB LINK INSERT ... SELECT 가 안된다) JDBC 스트림으로 복사한다.
+   * @return 테이블명 < Insert Sql (JDBC 로 복사하면 null) >
+   */
+  private Map<String, String> getInsertQuery(TableInventory inventory, CopyJournal journal) {
+    Map<String, String> sqlMap = new LinkedHashMap<String, String>();
+    for (TableInventory.Entry entry : inventory.getEntries()) {
+      String tableName = entry.getTableName();
+      if (!isCopyTarget(entry, journal)) {
+        continue;
+      }
+      if (entry.hasLob() || ENGINE_JDBC.equals(engineOf(tableName))) {
+        sqlMap.put(tableName, null);
+        continue;
+      }
+      try {
+        String insertSql = getLinkInsertSql(tableName);
+        if (insertSql == null) {
+          logger.error("[INSERT] {} - Insert Sql 이 없습니다.", tableName);
+        } else {
+          sqlMap.put(tableName, insertSql);
+        }
+      } catch (SQLException e) {
+        logger.error("[INSERT] EXCEPTION : {} - {}", tableName, e.getMessage());
+      }
+    }
+    return sqlMap;
+  }
 
+  /**
+   * 복사할 테이블인가 ? journal 기록을 inventory 보다 먼저 본다.
+   *  - journal 에서 완료 : 건너뛴다. (단, 대상이 비어있으면 누가 비운 것이므로 기록을 지우고 다시)
+   *  - journal 에서 복사 중 : 이어서 복사. 지울 수 없는 범위가 일부만 들어갔으면 TRUNCATE 후 처음부터
+   *  - journal 에 없음 : 대상이 비어있을 때만
+   */
+  private boolean isCopyTarget(TableInventory.Entry entry, CopyJournal journal) {
+    String tableName = entry.getTableName();
     try {
-      pstmt = destConn.prepareStatement(sb.toString());
-      rs = pstmt.executeQuery();
-      if (rs.next()) {
-        cnt = rs.getInt(1);
+      if (journal.isComplete(tableName)) {
+        if (entry.getDestState() == TableInventory.DestState.EMPTY && journal.getCopiedRows(tableName) > 0) {
+          logger.warn("[INSERT] {} - journal 에는 완료지만 대상이 비어있습니다. 다시 복사", tableName);
+          journal.reset(tableName);
+          return true;
+        }
+        logger.info("[INSERT] {} - 복사 완료 (journal). Passing ... ", tableName);
+        return false;
       }
-
-      if (cnt == 0) {
-        result = false;
+      if (journal.isPlanned(tableName) && entry.getDestState() != TableInventory.DestState.MISSING) {
+        if (journal.needsTruncate(tableName)) {
+          logger.warn("[INSERT] {} - 일부만 복사된 범위가 있습니다. TRUNCATE 후 처음부터 복사", tableName);
+          truncate(tableName);
+          journal.reset(tableName);
+        } else {
+          logger.info("[INSERT] {} - 이어서 복사 (남은 범위 : {})", tableName, journal.getRemainingChunks(tableName).size());
+        }
+        return true;
       }
-
     } catch (SQLException e) {
-      logger.error("[INSERT CHECK] - Exception : {}", tableName);
-      e.printStackTrace();
+      logger.error("[INSERT] {} - TRUNCATE 실패 : {}", tableName, e.getMessage());
+      return false;
+    } catch (IOException e) {
+      logger.error("[INSERT] {} - journal 기록 실패 : {}", tableName, e.getMessage());
+      return false;
+    }
+
+    switch (entry.getDestState()) {
+      case HAS_ROWS:
+        logger.info("[INSERT] {} - First Data Exists. Passing ... ", tableName);
+        return false;
+      case MISSING:
+        logger.warn("[INSERT] {} - 대상 테이블이 없습니다. Passing ... ", tableName);
+        return false;
+      default:
+        logger.info("[INSERT] {} - First Data is Not Exists. INSERT add (rows : {})", tableName, entry.getNumRows());
+        return true;
+    }
+  }
+
+  private void truncate(String tableName) throws SQLException {
+    PreparedStatement pstmt = null;
+    try {
+      pstmt = destConn.prepareStatement("TRUNCATE TABLE " + tableName);
+      pstmt.executeUpdate();
     } finally {
       if (pstmt != null) {
         try {
           pstmt.close();
-        } catch (SQLException e) {   }
+        } catch (SQLException e) {  }
       }
-      if (rs != null) {
-        try {
+    }
+  }
+
+  /**
+   * 테이블의 복사 범위. journal 에 있으면 남은 범위를, 없으면 새로 나눠서 journal 에 기록한다.
+   */
+  private List<CopyChunk> getChunks(String tableName, ChunkPlanner planner, CopyJournal journal) throws IOException {
+    if (journal.isPlanned(tableName)) {
+      return journal.getRemainingChunks(tableName);
+    }
+    List<CopyChunk> chunks = planner.plan(tableName);
+    journal.plan(tableName, chunks);
+    return chunks;
+  }
+
+  /**
+   * 테이블의 LOGGING 속성을 바꾼다.
+   * NOLOGGING 으로 바꿀 때는 지금 LOGGING 인 테이블만 바꾸고, 바꾼 테이블 목록을 돌려준다. (적재 후 되돌린다)
+   * NOLOGGING 으로 direct-path 적재한 블럭은 미디어 복구가 안되므로 적재 후 백업이 필요하다.
+   */
+  private List<String> setLogging(Collection<String> tableNames, boolean logging) {
+    List<String> changed = new ArrayList<String>();
+    for (String tableName : tableNames) {
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+      try {
+        if (!logging) {
+          pstmt = destConn.prepareStatement(" SELECT logging FROM user_tables WHERE table_name = ? ");
+          pstmt.setString(1, tableName);
+          rs = pstmt.executeQuery();
+          if (!rs.next() || !"YES".equals(rs.getString(1))) {
+            continue;
+          }
           rs.close();
-        } catch (SQLException e) {   }
+          rs = null;
+          pstmt.close();
+        }
+        pstmt = destConn.prepareStatement("ALTER TABLE " + tableName + (logging ? " LOGGING" : " NOLOGGING"));
+        pstmt.executeUpdate();
+        changed.add(tableName);
+      } catch (SQLException e) {
+        logger.error("[INSERT] {} - {} 변경 실패 : {}", tableName, logging ? "LOGGING" : "NOLOGGING", e.getMessage());
+      } finally {
+        if (rs != null) {
+          try {
+            rs.close();
+          } catch (SQLException e) {  }
+        }
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
       }
     }
-    return result;
+    if (!changed.isEmpty()) {
+      logger.info("[INSERT] {} 개 테이블 {} : {}", changed.size(), logging ? "LOGGING 복원" : "NOLOGGING", changed);
+      if (logging) {
+        logger.warn("[INSERT] NOLOGGING 으로 적재한 테이블은 백업 전까지 미디어 복구가 되지 않습니다.");
+      }
+    }
+    return changed;
   }
 
   /**
-   * Default Data Insert Sql
-   * @return Insert Sql
+   * @return 복사를 시작하기 전의 원본 SCN, 읽지 못하면 null
    */
-  private ArrayList<String> getInsertQuery() {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
+  private Long sourceScn() {
+    try {
+      return DeltaSyncInit.currentScn(sourceConn);
+    } catch (SQLException e) {
+      logger.warn("[DELTA] 원본 SCN 을 읽지 못했습니다. delta 는 처음에 전체를 MERGE 합니다. {}", e.getMessage());
+      return null;
+    }
+  }
 
-    ArrayList<String> sqlArr = new ArrayList<String>();
-    StringBuilder sb = new StringBuilder();
-    sb.append(" SELECT get_insert_table@" + dbLinkName.toUpperCase() + " (table_name) as insertSql , table_name");
-    sb.append("  FROM all_tables@" + dbLinkName.toUpperCase() );
-    sb.append(" WHERE owner = 'SOLARS8_CODE' ");
-    sb.append("  AND table_name not like '%COV_%' ");
-    sb.append(" ORDER BY table_name ");
-    String tableName = "";
-    try{
+  /**
+   * 이번 실행에서 처음부터 끝까지 복사한 테이블은 복사 시작 SCN 을 delta watermark 로 남긴다.
+   * 이어서 복사한 테이블은 이전 실행에서 복사한 범위가 그 이후에 바뀌었을 수 있으므로 남기지 않는다.
+   * delta 가 건너뛰는 LONG / LONG RAW 테이블도 남기지 않는다.
+   */
+  private void seedWatermarks(Set<String> freshTables, CopyJournal journal, TableInventory inventory, Long scn) {
+    if (scn == null) {
+      return;
+    }
+    DeltaWatermark watermark = new DeltaWatermark(new File(config.getString("DELTA_WATERMARK_FILE", "delta-watermark.properties")));
+    for (String tableName : freshTables) {
+      if (journal.isComplete(tableName) && !inventory.getEntry(tableName).hasLong()
+          && config.getString("DELTA_COLUMN." + tableName, "").length() == 0) {
+        watermark.setScn(tableName, scn);
+      }
+    }
+  }
 
-      pstmt = destConn.prepareStatement(sb.toString());
+  /**
+   * 테이블 하나의 DB LINK INSERT ... SELECT 문
+   */
+  private String getLinkInsertSql(String tableName) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = destConn.prepareStatement(" SELECT get_insert_table@" + dbLinkName.toUpperCase() + " (?) FROM dual ");
+      pstmt.setString(1, tableName);
       rs = pstmt.executeQuery();
-      while (rs.next()) {
-        tableName = rs.getString("table_name");
-        if (!isFirstDataExists(tableName)) {
-          logger.info("[INSERT] {} - First Data is Not Exists. INSERT add", tableName);
-          sqlArr.add(rs.getString("insertSql"));
-        } else {
-          logger.info("[INSERT] {} - First Data Exists. Passing ... ", tableName);
-        }
-      }
-    } catch (SQLException e) {
-      logger.error("[INSERT] EXCEPTION : {}", tableName);
-      e.printStackTrace();
+      return rs.next() ? rs.getString(1) : null;
     } finally {
-      if(pstmt != null) {
+      if (rs != null) {
         try{
-          pstmt.close();
+          rs.close();
         } catch (SQLException e) {  }
       }
-      if (rs != null) {
+      if(pstmt != null) {
         try{
-          rs.close();
+          pstmt.close();
         } catch (SQLException e) {  }
       }
     }
-
-    return sqlArr;
   }
 
   /**
    * Solars8 초기 데이터
+   * 테이블마다 범위를 나눠서 모두 하나의 작업 목록으로 동시에 실행한다.
+   * 예상 크기가 큰 범위부터 실행하고 (LPT), 작업자가 비면 남은 작은 범위를 가져간다.
+   * Insert Sql 이 있는 테이블은 DB LINK 로, 없는 테이블은 {@link JdbcCopyEngine} 으로 복사한다.
+   * COPY_DIRECT_PATH=true 이면 direct-path (APPEND / APPEND_VALUES) 로 넣는다.
+   * direct-path 는 커밋할 때까지 테이블 전체를 잠그므로 한 테이블의 범위는 차례로, 서로 다른 테이블은 동시에 실행한다.
+   * 테이블별 행 수 / 시간 / redo 크기를 {@link LoadStats} 로 남긴다.
+   * LOB 테이블은 한 행씩 옮기므로 느리다. 큰 LOB 때문에 나머지 범위가 밀리지 않도록 별도 작업자 (LOB) 로 동시에 실행한다.
    */
   private void insertFirstData() {
-    PreparedStatement pstmt = null;
+    logger.info("==== First Data Insert Start. ====");
+    CopyJournal journal;
+    TableInventory inventory;
+    try {
+      journal = CopyJournal.open(new File(config.getString("COPY_JOURNAL", "copy-journal.log")));
+    } catch (IOException e) {
+      logger.error("[JOURNAL] journal 을 열 수 없습니다 : {}", e.getMessage());
+      return;
+    }
+    try {
+      inventory = collectInventory();
+    } catch (SQLException e) {
+      logger.error("[INVENTORY] 원본 테이블 목록 조회 실패 : {}", e.getMessage());
+      journal.close();
+      return;
+    }
+    Map<String, String> sqlMap = getInsertQuery(inventory, journal);
+    Long scn = sourceScn();
+    Set<String> freshTables = new HashSet<String>();
 
-    String insertSql = "";
-    try{
-      logger.info("==== First Data Insert Start. ====");
-      ArrayList<String> sqlArr = getInsertQuery();
+    LoadStats loadStats = new LoadStats(directPath ? "direct-path" : "conventional");
+    ChunkPlanner linkPlanner = new ChunkPlanner(destConn, dbLinkName, copyChunkRows, chunkMode);
+    ChunkPlanner sourcePlanner = new ChunkPlanner(sourceConn, null, sourceSchema, copyChunkRows, chunkMode);
+    TaskScheduler scheduler = new TaskScheduler("INSERT", destBds, copyWorkerCount);
+    final TaskScheduler lobScheduler = new TaskScheduler("INSERT-LOB", destBds, lobWorkerCount);
+    for (Map.Entry<String, String> entry : sqlMap.entrySet()) {
+      String insertSql = entry.getValue();
+      boolean lob = inventory.getEntry(entry.getKey()).hasLob();
+      List<CopyChunk> chunks;
+      if (!journal.isPlanned(entry.getKey())) {
+        freshTables.add(entry.getKey());
+      }
+      try {
+        chunks = getChunks(entry.getKey(), insertSql != null ? linkPlanner : sourcePlanner, journal);
+      } catch (IOException e) {
+        logger.error("[JOURNAL] {} - 범위 기록 실패 : {}", entry.getKey(), e.getMessage());
+        continue;
+      }
+      if (insertSql != null) {
+        if (directPath) {
+          insertSql = CopyChunkTask.directPath(insertSql);
+        }
+        logger.debug("[INSERT] SQL : {}", insertSql);
+      }
 
-      for (int i = 0; i < sqlArr.size() ; i++) {
-        String query = sqlArr.get(i);
-        insertSql = query;
-        pstmt = destConn.prepareStatement(query);
+      // direct-path 는 같은 테이블의 범위를 차례로 실행한다. 무게는 자기부터 마지막 범위까지의 크기
+      long remainingBytes = 0;
+      for (CopyChunk chunk : chunks) {
+        remainingBytes += chunk.getEstimatedBytes();
+      }
+      TaskScheduler.Node previous = null;
+      for (CopyChunk chunk : chunks) {
+        boolean clearFirst = journal.isStarted(chunk);
+        DbTask task = insertSql != null
+            ? new CopyChunkTask(chunk, insertSql, journal, clearFirst, loadStats)
+            : new JdbcCopyTask(chunk, jdbcEngine, sourceBds, journal, clearFirst, loadStats);
+        if (lob) {
+          lobScheduler.add(task).weight(chunk.getEstimatedBytes());
+        } else if (directPath) {
+          previous = scheduler.add(task).weight(remainingBytes).dependsOn(previous);
+          remainingBytes -= chunk.getEstimatedBytes();
+        } else {
+          scheduler.add(task).weight(chunk.getEstimatedBytes());
+        }
+      }
+    }
 
-        logger.debug("[INSERT] SQL : {}", query);
-        pstmt.executeUpdate();
-        pstmt.clearParameters();
-        pstmt.close();
+    List<String> nologgingTables = nologging ? setLogging(sqlMap.keySet(), false) : new ArrayList<String>();
+    final TaskReport[] lobReport = new TaskReport[1];
+    Thread lobLane = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        lobReport[0] = lobScheduler.run();
       }
-      logger.info("==== First Data Insert End. ====");
-    } catch (SQLException e) {
-      logger.error("[INSERT] Exception : {} ", insertSql);
-      e.printStackTrace();
-    } finally {
-      if(pstmt != null) {
-        try{
-          pstmt.close();
-        } catch (SQLException e) {        }
+    }, "INSERT-LOB");
+    TaskReport report;
+    try {
+      if (lobScheduler.size() > 0) {
+        lobLane.start();
+      }
+      report = scheduler.run();
+      if (lobScheduler.size() > 0) {
+        try {
+          lobLane.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
       }
+    } finally {
+      setLogging(nologgingTables, true);
+    }
+    report.log(logger);
+    report.logWorkers(logger);
+    List<TaskResult> failed = new ArrayList<TaskResult>(report.getResults(TaskResult.Status.FAIL));
+    if (lobReport[0] != null) {
+      lobReport[0].log(logger);
+      lobReport[0].logWorkers(logger);
+      failed.addAll(lobReport[0].getResults(TaskResult.Status.FAIL));
+    }
+    jdbcEngine.logStats(logger);
+    loadStats.log(logger);
+    seedWatermarks(freshTables, journal, inventory, scn);
+    journal.close();
+    if (!failed.isEmpty()) {
+      // 커밋한 범위는 journal 에 남아있으므로 다시 실행하면 실패한 범위부터 이어서 복사한다.
+      logger.error("[INSERT] {} 개 범위 실패. 다시 실행하면 남은 범위만 복사합니다.", failed.size());
     }
+    logger.info("==== First Data Insert End. ====");
   }
 
 
@@ -0,0 +1,437 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DB LINK 없이 원본 Connection 에서 읽어서 대상 Connection 에 쓰는 복사
+ *
+ *  - 원본은 COPY_FETCH_SIZE 단위로 읽어서 COPY_BATCH_SIZE 행짜리 {@link ColumnBatch} 에 채운다.
+ *    읽기는 별도 쓰레드에서 하므로 대상에 쓰는 동안 다음 배치를 읽는다.
+ *  - 대상은 테이블마다 같은 바인드 변수 INSERT 한 문장을 addBatch / executeBatch 로 COPY_BATCH_SIZE 행씩 실행하고
+ *    COPY_COMMIT_ROWS 행마다 커밋한다.
+ *  - 컬럼은 원본과 대상에 모두 있는 컬럼만 복사한다. 테이블마다 원본 ALL_TAB_COLUMNS 로 컬럼별 {@link ColumnCodec} 을 정하고
+ *    행은 codec 의 타입별 getter / setter 로 옮긴다. (행마다 객체를 만들지 않고, 값마다 타입을 확인하지 않는다)
+ *  - LONG / LONG RAW / CLOB / BLOB 컬럼이 있는 테이블은 배치로 모으지 않고 한 행씩 옮긴다.
+ *    LOB 값은 원본 스트림을 대상 바인드 변수에 그대로 넘겨서 드라이버가 조각 단위로 읽고 쓰므로,
+ *    값의 길이와 상관없이 메모리는 진행 중인 LOB 하나당 드라이버 버퍼 정도만 쓰고 잘리지 않는다. (APPEND_VALUES 는 쓰지 않는다)
+ * 테이블별 컬럼 수 / 행 수 / 크기 / 초당 행 수 / 초당 MB 를 모아서 {@link #logStats(Logger)} 로 남긴다.
+ * 여러 쓰레드에서 동시에 사용해도 된다.
+ */
+public class JdbcCopyEngine {
+  private static Logger logger = LoggerFactory.getLogger(JdbcCopyEngine.class);
+
+  private final String sourceSchema;
+  private final int fetchSize;
+  private final int batchSize;
+  private final int commitRows;
+  private final boolean directPath;
+
+  private final Map<String, List<ColumnCodec>> shapes = new ConcurrentHashMap<String, List<ColumnCodec>>();
+  private final ConcurrentHashMap<String, CopyStats> stats = new ConcurrentHashMap<String, CopyStats>();
+
+  /**
+   * @param sourceSchema 원본 테이블 스키마
+   * @param fetchSize 원본 fetch size
+   * @param batchSize executeBatch 단위 행 수
+   * @param commitRows 커밋 단위 행 수
+   * @param directPath APPEND_VALUES 로 넣을지
+   */
+  public JdbcCopyEngine(String sourceSchema, int fetchSize, int batchSize, int commitRows, boolean directPath) {
+    this.sourceSchema = sourceSchema.toUpperCase();
+    this.fetchSize = Math.max(1, fetchSize);
+    this.commitRows = Math.max(Math.max(1, batchSize), commitRows);
+    this.batchSize = directPath ? this.commitRows : Math.max(1, batchSize);
+    this.directPath = directPath;
+  }
+
+  /**
+   * 범위 하나를 복사한다. 실패하면 커밋하지 않은 행은 rollback 한다.
+   * @param source 원본 Connection
+   * @param dest 대상 Connection (복사하는 동안 autoCommit 을 끈다)
+   * @return 복사한 행 수
+   */
+  public long copy(Connection source, Connection dest, CopyChunk chunk) throws SQLException {
+    String tableName = chunk.getTableName();
+    List<ColumnCodec> columns = getShape(source, dest, tableName);
+    if (columns.isEmpty()) {
+      throw new SQLException(tableName + " : 원본과 대상에 같은 컬럼이 없습니다.");
+    }
+
+    int scalarCount = scalarCount(columns);
+    boolean streaming = scalarCount < columns.size();
+    StringBuilder select = new StringBuilder("SELECT ");
+    StringBuilder insert = new StringBuilder((directPath && !streaming ? "INSERT /*+ APPEND_VALUES */ INTO " : "INSERT INTO ") + tableName + " (");
+    StringBuilder values = new StringBuilder(") VALUES (");
+    for (int i = 0; i < columns.size(); i++) {
+      String separator = i == 0 ? "" : ", ";
+      select.append(separator).append('"').append(columns.get(i).getName()).append('"');
+      insert.append(separator).append('"').append(columns.get(i).getName()).append('"');
+      values.append(separator).append('?');
+    }
+    select.append(" FROM ").append(sourceSchema).append('.').append(tableName);
+    if (chunk.getPredicate() != null) {
+      select.append(" WHERE ").append(chunk.getPredicate());
+    }
+    insert.append(values).append(')');
+
+    long start = System.currentTimeMillis();
+    boolean autoCommit = dest.getAutoCommit();
+    PreparedStatement selectPstmt = null;
+    PreparedStatement insertPstmt = null;
+    ResultSet rs = null;
+    BatchReader reader = null;
+    long rows = 0;
+    long bytes = 0;
+
+    try {
+      dest.setAutoCommit(false);
+      selectPstmt = source.prepareStatement(select.toString());
+      selectPstmt.setFetchSize(fetchSize);
+      if (chunk.getPredicate() != null) {
+        selectPstmt.setObject(1, chunk.getLow());
+        selectPstmt.setObject(2, chunk.getHigh());
+      }
+      rs = selectPstmt.executeQuery();
+      insertPstmt = dest.prepareStatement(insert.toString());
+      long committed = 0;
+
+      if (streaming) {
+        // LOB 이 있는 행은 한 행씩 : 스칼라 컬럼은 1 행짜리 버퍼로, 스트림 컬럼은 원본 스트림을 바로 넘긴다.
+        ColumnBatch scalars = new ColumnBatch(columns.subList(0, scalarCount), 1);
+        List<ColumnCodec.Transfer> transfers = new ArrayList<ColumnCodec.Transfer>(columns.size() - scalarCount);
+        while (scalars.readFrom(rs) > 0) {
+          scalars.bind(insertPstmt, 0);
+          bytes += scalars.bytes();
+          try {
+            for (int c = scalarCount; c < columns.size(); c++) {
+              transfers.add(columns.get(c).transfer(rs, c + 1, insertPstmt, c + 1));
+            }
+            insertPstmt.executeUpdate();
+          } finally {
+            for (ColumnCodec.Transfer transfer : transfers) {
+              bytes += transfer.count();
+              transfer.release();
+            }
+            transfers.clear();
+          }
+          rows++;
+          if (rows - committed >= commitRows) {
+            dest.commit();
+            committed = rows;
+          }
+        }
+      } else {
+        // 원본 읽기는 별도 쓰레드에서 다음 버퍼를 채우고, 이 쓰레드는 받은 버퍼를 대상에 쓴다.
+        reader = new BatchReader(rs, columns, batchSize, "copy-reader " + chunk);
+        ColumnBatch batch;
+        while ((batch = reader.next()) != null) {
+          for (int row = 0; row < batch.size(); row++) {
+            batch.bind(insertPstmt, row);
+            insertPstmt.addBatch();
+          }
+          insertPstmt.executeBatch();
+          rows += batch.size();
+          bytes += batch.bytes();
+          reader.release(batch);
+          if (rows - committed >= commitRows) {
+            dest.commit();
+            committed = rows;
+          }
+        }
+      }
+      dest.commit();
+    } catch (SQLException e) {
+      logger.error("[JDBC COPY] {} Exception at row {} : {}", chunk, rows, e.getMessage());
+      if (reader != null) {
+        reader.stop(selectPstmt);
+      }
+      try {
+        dest.rollback();
+      } catch (SQLException ignore) {  }
+      throw e;
+    } finally {
+      if (reader != null) {
+        reader.stop(selectPstmt);
+      }
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (selectPstmt != null) {
+        try {
+          selectPstmt.close();
+        } catch (SQLException e) {  }
+      }
+      if (insertPstmt != null) {
+        try {
+          insertPstmt.close();
+        } catch (SQLException e) {  }
+      }
+      try {
+        dest.setAutoCommit(autoCommit);
+      } catch (SQLException e) {  }
+    }
+
+    long end = System.currentTimeMillis();
+    getStats(tableName).add(rows, bytes, start, end);
+    logger.info("[JDBC COPY] {} - {} rows ({} ms)", chunk, rows, end - start);
+    return rows;
+  }
+
+  /**
+   * @return 앞쪽의 버퍼로 옮기는 컬럼 수 (그 뒤는 스트림 컬럼)
+   */
+  private static int scalarCount(List<ColumnCodec> columns) {
+    int count = 0;
+    while (count < columns.size() && !columns.get(count).isStream()) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 테이블별 복사 결과를 남긴다.
+   */
+  public void logStats(Logger logger) {
+    for (Map.Entry<String, CopyStats> entry : new TreeMap<String, CopyStats>(stats).entrySet()) {
+      CopyStats s = entry.getValue();
+      List<ColumnCodec> columns = shapes.get(entry.getKey());
+      logger.info("[JDBC COPY] {} - {} cols / {} rows / {} MB / {} ms / {} rows/sec / {} MB/sec",
+          entry.getKey(), columns == null ? 0 : columns.size(), s.rows, String.format("%.1f", s.bytes / 1048576.0), s.elapsedMillis(),
+          String.format("%.0f", s.rowsPerSecond()), String.format("%.2f", s.megabytesPerSecond()));
+    }
+  }
+
+  /**
+   * 원본 / 대상에 모두 있는 컬럼 (원본 순서) 의 codec. 테이블마다 한번만 조회한다.
+   * 원본은 ALL_TAB_COLUMNS 의 타입으로 codec 을 정하고, 대상은 컬럼명만 확인한다.
+   * 스트림 컬럼 (LONG / LOB) 은 뒤로 보낸다. LONG 은 앞의 컬럼을 모두 읽은 뒤에 읽어야 한다.
+   */
+  private List<ColumnCodec> getShape(Connection source, Connection dest, String tableName) throws SQLException {
+    List<ColumnCodec> columns = shapes.get(tableName);
+    if (columns != null) {
+      return columns;
+    }
+
+    Set<String> destColumns = describe(dest, tableName);
+    columns = new ArrayList<ColumnCodec>();
+    List<ColumnCodec> streams = new ArrayList<ColumnCodec>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = source.prepareStatement(" SELECT column_name, data_type, data_precision, data_scale FROM all_tab_columns "
+          + " WHERE owner = ? AND table_name = ? ORDER BY column_id ");
+      pstmt.setString(1, sourceSchema);
+      pstmt.setString(2, tableName);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        if (destColumns.contains(rs.getString(1))) {
+          ColumnCodec codec = ColumnCodec.of(rs.getString(1), rs.getString(2), getInteger(rs, 3), getInteger(rs, 4));
+          (codec.isStream() ? streams : columns).add(codec);
+        }
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    columns.addAll(streams);
+    columns = Collections.unmodifiableList(columns);
+    shapes.put(tableName, columns);
+    return columns;
+  }
+
+  private static Integer getInteger(ResultSet rs, int index) throws SQLException {
+    int value = rs.getInt(index);
+    return rs.wasNull() ? null : value;
+  }
+
+  /**
+   * @return 테이블의 컬럼명
+   */
+  static Set<String> describe(Connection conn, String tableName) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    Set<String> columns = new HashSet<String>();
+    try {
+      pstmt = conn.prepareStatement("SELECT * FROM " + tableName + " WHERE 1 = 0");
+      rs = pstmt.executeQuery();
+      ResultSetMetaData meta = rs.getMetaData();
+      for (int i = 1; i <= meta.getColumnCount(); i++) {
+        columns.add(meta.getColumnName(i));
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return columns;
+  }
+
+  private CopyStats getStats(String tableName) {
+    CopyStats s = stats.get(tableName);
+    if (s == null) {
+      stats.putIfAbsent(tableName, new CopyStats());
+      s = stats.get(tableName);
+    }
+    return s;
+  }
+
+  /**
+   * 원본 ResultSet 을 읽어서 {@link ColumnBatch} 를 채우는 쓰레드
+   * 버퍼 두개를 번갈아 쓴다. 쓰는 쪽이 하나를 바인딩하는 동안 다른 하나를 채운다.
+   */
+  private static class BatchReader implements Runnable {
+    private static final ColumnBatch END = new ColumnBatch(Collections.<ColumnCodec>emptyList(), 0);
+
+    private final ResultSet rs;
+    private final BlockingQueue<ColumnBatch> free = new ArrayBlockingQueue<ColumnBatch>(2);
+    private final BlockingQueue<ColumnBatch> full = new ArrayBlockingQueue<ColumnBatch>(3);
+    private final Thread thread;
+    private volatile SQLException error = null;
+    private volatile boolean stopped = false;
+
+    BatchReader(ResultSet rs, List<ColumnCodec> columns, int capacity, String name) {
+      this.rs = rs;
+      free.add(new ColumnBatch(columns, capacity));
+      free.add(new ColumnBatch(columns, capacity));
+      thread = new Thread(this, name);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!stopped) {
+          ColumnBatch batch = free.take();
+          if (stopped || batch.readFrom(rs) == 0) {
+            break;
+          }
+          full.put(batch);
+        }
+      } catch (SQLException e) {
+        error = e;
+      } catch (InterruptedException e) {
+        // stop()
+      } finally {
+        full.offer(END);
+      }
+    }
+
+    /**
+     * @return 채워진 버퍼, 다 읽었으면 null
+     */
+    ColumnBatch next() throws SQLException {
+      ColumnBatch batch;
+      try {
+        batch = full.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("복사 중 인터럽트", e);
+      }
+      if (batch == END) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (error != null) {
+          throw error;
+        }
+        return null;
+      }
+      return batch;
+    }
+
+    /**
+     * 다 쓴 버퍼를 돌려준다.
+     */
+    void release(ColumnBatch batch) {
+      free.offer(batch);
+    }
+
+    /**
+     * 읽기를 멈추고 쓰레드가 끝날 때까지 기다린다. 원본 조회 중이면 취소한다.
+     */
+    void stop(PreparedStatement selectPstmt) {
+      if (!thread.isAlive()) {
+        return;
+      }
+      stopped = true;
+      thread.interrupt();
+      if (selectPstmt != null) {
+        try {
+          selectPstmt.cancel();
+        } catch (SQLException e) {  }
+      }
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * 테이블 하나의 누적 결과 (여러 범위가 동시에 더한다)
+   * 시간은 처음 시작한 범위부터 마지막으로 끝난 범위까지이다.
+   */
+  private static class CopyStats {
+    private long rows = 0;
+    private long bytes = 0;
+    private long firstStart = Long.MAX_VALUE;
+    private long lastEnd = 0;
+
+    synchronized void add(long rows, long bytes, long start, long end) {
+      this.rows += rows;
+      this.bytes += bytes;
+      firstStart = Math.min(firstStart, start);
+      lastEnd = Math.max(lastEnd, end);
+    }
+
+    synchronized long elapsedMillis() {
+      return Math.max(1, lastEnd - firstStart);
+    }
+
+    synchronized double rowsPerSecond() {
+      return rows * 1000.0 / elapsedMillis();
+    }
+
+    synchronized double megabytesPerSecond() {
+      return bytes / 1048576.0 * 1000.0 / elapsedMillis();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link JdbcCopyEngine} 으로 범위 하나를 복사하는 작업
+ * 대상 Connection 은 작업자의 것을, 원본 Connection 은 원본 DataSource 에서 빌려서 쓴다.
+ * 시작 / 커밋을 {@link CopyJournal} 에 기록한다.
+ */
+class JdbcCopyTask implements DbTask {
+  private final CopyChunk chunk;
+  private final JdbcCopyEngine engine;
+  private final DataSource sourceDataSource;
+  private final CopyJournal journal;
+  private final boolean clearFirst;
+  private final LoadStats loadStats;
+
+  /**
+   * @param clearFirst 이전 실행에서 커밋하지 못한 범위 (대상에서 범위를 먼저 지운다)
+   */
+  JdbcCopyTask(CopyChunk chunk, JdbcCopyEngine engine, DataSource sourceDataSource, CopyJournal journal, boolean clearFirst,
+               LoadStats loadStats) {
+    this.chunk = chunk;
+    this.engine = engine;
+    this.sourceDataSource = sourceDataSource;
+    this.journal = journal;
+    this.clearFirst = clearFirst;
+    this.loadStats = loadStats;
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString() + " : JDBC";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException, IOException {
+    journal.started(chunk);
+    if (clearFirst) {
+      CopyChunkTask.clearRange(conn, chunk);
+    }
+    long start = System.currentTimeMillis();
+    long redoBefore = loadStats.redoSize(conn);
+    Connection source = sourceDataSource.getConnection();
+    try {
+      long rows = engine.copy(source, conn, chunk);
+      journal.done(chunk, rows);
+      loadStats.add(chunk.getTableName(), rows, redoBefore, loadStats.redoSize(conn), System.currentTimeMillis() - start);
+    } finally {
+      try {
+        source.close();
+      } catch (SQLException e) {  }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,103 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 테이블별 적재 행 수 / 시간 / redo 크기
+ *
+ * redo 는 범위를 복사하기 전후의 세션 통계 (v$mystat 'redo size') 차이이다.
+ * v$mystat 조회 권한이 없으면 처음 실패한 뒤로는 redo 를 재지 않는다. (SELECT ON V_$MYSTAT / V_$STATNAME 필요)
+ * direct-path 적재 전후를 비교할 때 쓴다.
+ */
+public class LoadStats {
+  private static Logger logger = LoggerFactory.getLogger(LoadStats.class);
+
+  private static final String REDO_SQL = " SELECT m.value FROM v$mystat m, v$statname n "
+      + " WHERE n.statistic# = m.statistic# AND n.name = 'redo size' ";
+
+  private final String mode;
+  private final ConcurrentHashMap<String, long[]> stats = new ConcurrentHashMap<String, long[]>();   // rows , redo , ms
+  private volatile boolean redoAvailable = true;
+
+  /**
+   * @param mode 로그에 남길 적재 방식 (예 : direct-path / conventional)
+   */
+  public LoadStats(String mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * @return 세션의 누적 redo 크기 (byte), 읽을 수 없으면 -1
+   */
+  public long redoSize(Connection conn) {
+    if (!redoAvailable) {
+      return -1;
+    }
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(REDO_SQL);
+      rs = pstmt.executeQuery();
+      return rs.next() ? rs.getLong(1) : -1;
+    } catch (SQLException e) {
+      redoAvailable = false;
+      logger.warn("[LOAD] v$mystat 을 조회할 수 없어서 redo 크기를 재지 않습니다. {}", e.getMessage());
+      return -1;
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  /**
+   * @param redoBefore 복사 전 {@link #redoSize(Connection)}
+   * @param redoAfter 복사 후 {@link #redoSize(Connection)}
+   */
+  public void add(String tableName, long rows, long redoBefore, long redoAfter, long millis) {
+    long[] s = stats.get(tableName);
+    if (s == null) {
+      stats.putIfAbsent(tableName, new long[3]);
+      s = stats.get(tableName);
+    }
+    synchronized (s) {
+      s[0] += rows;
+      s[1] += redoBefore < 0 || redoAfter < 0 ? 0 : redoAfter - redoBefore;
+      s[2] += millis;
+    }
+  }
+
+  public void log(Logger logger) {
+    long rows = 0;
+    long redo = 0;
+    long millis = 0;
+    for (Map.Entry<String, long[]> entry : new TreeMap<String, long[]>(stats).entrySet()) {
+      long[] s = entry.getValue();
+      synchronized (s) {
+        logger.info("[LOAD] {} - {} rows / redo {} MB / {} ms ({})", entry.getKey(), s[0],
+            String.format("%.1f", s[1] / 1048576.0), s[2], mode);
+        rows += s[0];
+        redo += s[1];
+        millis += s[2];
+      }
+    }
+    logger.info("[LOAD] 합계 - {} 개 테이블 / {} rows / redo {} MB / {} ms ({}){}", stats.size(), rows,
+        String.format("%.1f", redo / 1048576.0), millis, mode, redoAvailable ? "" : " - redo 측정 안됨");
+  }
+}
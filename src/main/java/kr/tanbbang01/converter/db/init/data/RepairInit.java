@@ -0,0 +1,175 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.init.table.ForeignKeyManager;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 원본과 다른 부분만 찾아서 다시 복사한다. (TRUNCATE 후 data 를 다시 실행하지 않고)
+ *
+ * verify 와 같은 ID 범위로 나누고 범위마다 {@link RepairTask} 가 해시가 다른 구간으로 내려가서
+ * REPAIR_MIN_ROWS 행 이하의 구간만 대상에서 지우고 {@link JdbcCopyEngine} 으로 다시 복사한다.
+ * 구간은 REPAIR_FANOUT 개씩 나눈다. REPAIR_TABLES 로 테이블을 지정할 수 있으며 (쉼표 구분), 없으면 대상에 있는 모든 테이블이다.
+ * ID 가 없는 테이블은 다르면 테이블 전체를 다시 복사한다.
+ *
+ * 다시 복사는 대상 행을 지우고 넣으므로 FK 가 활성화되어 있으면 (all 에서 enableFk 이후) 부모 행을 지울 때 ORA-02292 가 나거나
+ * ON DELETE CASCADE 면 자식 행까지 지워진다. 그래서 시작 전에 대상 테이블에 있거나 대상 테이블을 참조하는 활성화된 FK 를
+ * {@link ForeignKeyManager} 로 비활성화하고, 끝나면 그 FK 만 ENABLE NOVALIDATE / VALIDATE 로 되돌린다.
+ * 비활성화에 실패하면 복구하지 않는다. 원래 비활성화되어 있던 FK 는 건드리지 않는다.
+ */
+public class RepairInit {
+  private static Logger logger = LoggerFactory.getLogger(RepairInit.class);
+
+  private Resourcer config = null;
+  private Connection sourceConn = null;
+  private Connection destConn = null;
+  private BasicDataSource sourceBds = null;
+  private BasicDataSource destBds = null;
+  private String sourceSchema = "SOLARS8_CODE";
+  private JdbcCopyEngine engine = null;
+  private int workerCount = 4;
+  private long chunkRows = 500000;
+  private int fanout = 16;
+  private long minRows = 10000;
+  private ForeignKeyManager fkManager = null;
+
+  public RepairInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    sourceBds = new BasicDataSource();
+    sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
+    sourceBds.setUrl(config.getString("SOURCE_CONNECTION_STRING"));
+    sourceBds.setUsername(config.getString("SOURCE_USER"));
+    sourceBds.setPassword(config.getString("SOURCE_PASSWORD"));
+    sourceBds.setMaxActive(-1);
+    sourceBds.setMaxIdle(-1);
+    sourceBds.setDefaultAutoCommit(true);
+    sourceConn = sourceBds.getConnection();
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    sourceSchema = config.getString("SOURCE_SCHEMA", sourceSchema).toUpperCase();
+    workerCount = config.getInt("VERIFY_WORKER_COUNT", config.getInt("COPY_WORKER_COUNT", workerCount));
+    chunkRows = config.getInt("COPY_CHUNK_ROWS", (int) chunkRows);
+    fanout = config.getInt("REPAIR_FANOUT", fanout);
+    minRows = config.getInt("REPAIR_MIN_ROWS", (int) minRows);
+    fkManager = new ForeignKeyManager(destBds, config.getString("DEST_USER"), config.getInt("FK_WORKER_COUNT", workerCount),
+        config.getString("FK_EXCEPTIONS_TABLE", "EXCEPTIONS"));
+    engine = new JdbcCopyEngine(sourceSchema, config.getInt("COPY_FETCH_SIZE", 1000),
+        config.getInt("COPY_BATCH_SIZE", 1000), config.getInt("COPY_COMMIT_ROWS", 10000), false);
+  }
+
+  private void connClose() {
+    try{
+      sourceConn.close();
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Repair Start. ====");
+      repair();
+      logger.info("==== Repair End. ====");
+    } catch (SQLException e) {
+      logger.error("[REPAIR] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void repair() throws SQLException {
+    TableInventory inventory = TableInventory.collect(sourceConn, sourceSchema, destBds, workerCount);
+    Map<String, List<String[]>> columns = VerifyInit.readColumns(sourceConn, sourceSchema, destConn);
+    ChunkPlanner planner = new ChunkPlanner(sourceConn, null, sourceSchema, chunkRows, ChunkPlanner.Mode.ID);
+    Set<String> targets = targetTables();
+
+    TaskScheduler scheduler = new TaskScheduler("REPAIR", destBds, workerCount);
+    List<RepairTask> tasks = new ArrayList<RepairTask>();
+    Set<String> tables = new HashSet<String>();
+    for (TableInventory.Entry entry : inventory.getEntries()) {
+      String tableName = entry.getTableName();
+      if (entry.getDestState() == TableInventory.DestState.MISSING || !columns.containsKey(tableName)
+          || (targets != null && !targets.contains(tableName))) {
+        continue;
+      }
+      tables.add(tableName);
+      ChunkHasher hasher = new ChunkHasher(columns.get(tableName));
+      for (CopyChunk chunk : VerifyInit.keyChunks(planner, tableName)) {
+        RepairTask task = new RepairTask(chunk, hasher, sourceSchema + "." + tableName, sourceBds, engine, fanout, minRows);
+        tasks.add(task);
+        scheduler.add(task).weight(chunk.getEstimatedRows());
+      }
+    }
+
+    List<String[]> foreignKeys = fkManager.findEnabledFor(destConn, tables);
+    TaskReport disableReport = fkManager.disable(foreignKeys);
+    disableReport.log(logger);
+    TaskReport report = null;
+    try {
+      if (!disableReport.isAllDone()) {
+        logger.error("[REPAIR] FK 를 비활성화하지 못해서 복구하지 않습니다.");
+        return;
+      }
+      report = scheduler.run();
+    } finally {
+      for (TaskReport enableReport : fkManager.enable(destConn, foreignKeys)) {   // 비활성화한 FK 만 되돌린다.
+        enableReport.log(logger);
+      }
+    }
+    report.log(logger);
+    report.logWorkers(logger);
+
+    int ranges = 0;
+    long deleted = 0;
+    long copied = 0;
+    for (RepairTask task : tasks) {
+      ranges += task.getRepairedRanges();
+      deleted += task.getDeletedRows();
+      copied += task.getCopiedRows();
+    }
+    logger.info("[REPAIR] 확인한 범위 : {} / 다시 복사한 구간 : {} / 삭제 {} rows / 복사 {} rows", tasks.size(), ranges, deleted, copied);
+  }
+
+  /**
+   * @return REPAIR_TABLES 에 지정한 테이블, 없으면 null (모든 테이블)
+   */
+  private Set<String> targetTables() {
+    String tables = config.getString("REPAIR_TABLES", "").trim();
+    if (tables.length() == 0) {
+      return null;
+    }
+    return new HashSet<String>(Arrays.asList(tables.toUpperCase().split("\\s*,\\s*")));
+  }
+}
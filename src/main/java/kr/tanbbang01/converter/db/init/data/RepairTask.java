@@ -0,0 +1,159 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 범위 하나를 원본과 비교해서 다른 부분만 다시 복사하는 작업
+ *
+ * 범위의 해시 ({@link ChunkHasher}) 가 다르면 ID 범위를 fanout 개 구간으로 나눠서 구간별 해시를 한 쿼리로 구하고,
+ * 다른 구간으로만 내려간다. 구간의 행 수가 minRows 이하 (또는 폭이 1) 가 되면 대상에서 그 구간을 지우고 원본에서 다시 복사한다.
+ * 같은 구간은 읽지 않으므로 몇 행만 다르면 큰 테이블도 몇 번의 집계 쿼리와 작은 복사로 끝난다.
+ * ID 범위가 아닌 범위 (범위 밖 / 테이블 전체) 는 나누지 않고 통째로 다시 복사한다.
+ */
+class RepairTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(RepairTask.class);
+
+  private static final String ID_RANGE = "ID >= ? AND ID < ?";
+
+  private final CopyChunk chunk;
+  private final ChunkHasher hasher;
+  private final String sourceTable;
+  private final DataSource sourceDataSource;
+  private final JdbcCopyEngine engine;
+  private final int fanout;
+  private final long minRows;
+  private int repairedRanges = 0;
+  private long deletedRows = 0;
+  private long copiedRows = 0;
+
+  /**
+   * @param sourceTable 원본 테이블 (스키마.테이블)
+   * @param fanout 한번에 나눌 구간 수
+   * @param minRows 이 행 수 이하면 더 나누지 않고 다시 복사한다.
+   */
+  RepairTask(CopyChunk chunk, ChunkHasher hasher, String sourceTable, DataSource sourceDataSource, JdbcCopyEngine engine,
+             int fanout, long minRows) {
+    this.chunk = chunk;
+    this.hasher = hasher;
+    this.sourceTable = sourceTable;
+    this.sourceDataSource = sourceDataSource;
+    this.engine = engine;
+    this.fanout = Math.max(2, fanout);
+    this.minRows = Math.max(1, minRows);
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString() + " : REPAIR";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    Connection source = sourceDataSource.getConnection();
+    try {
+      long[][] hash = hasher.hashBoth(source, sourceTable, conn, chunk.getTableName(), chunk);
+      descend(source, conn, chunk, hash[0], hash[1]);
+    } finally {
+      try {
+        source.close();
+      } catch (SQLException e) {  }
+    }
+    if (repairedRanges > 0) {
+      logger.info("[REPAIR] {} - {} 개 구간 다시 복사 (삭제 {} rows / 복사 {} rows)", chunk, repairedRanges, deletedRows, copiedRows);
+    }
+    return true;
+  }
+
+  /**
+   * @param sourceHash 원본 [행 수, 해시]
+   * @param destHash 대상 [행 수, 해시]
+   */
+  private void descend(Connection source, Connection dest, CopyChunk range, long[] sourceHash, long[] destHash) throws SQLException {
+    if (sourceHash[0] == destHash[0] && sourceHash[1] == destHash[1]) {
+      return;
+    }
+    if (!ID_RANGE.equals(range.getPredicate())) {
+      recopy(source, dest, range);
+      return;
+    }
+    long low = ((Number) range.getLow()).longValue();
+    long high = ((Number) range.getHigh()).longValue();
+    if (Math.max(sourceHash[0], destHash[0]) <= minRows || high - low <= 1) {
+      recopy(source, dest, range);
+      return;
+    }
+
+    long width = (high - low + fanout - 1) / fanout;
+    List<Map<Long, long[]>> buckets = hasher.hashBucketsBoth(source, sourceTable, dest, range.getTableName(), low, high, width);
+    TreeSet<Long> keys = new TreeSet<Long>(buckets.get(0).keySet());
+    keys.addAll(buckets.get(1).keySet());
+    long[] empty = new long[] { 0, 0 };
+    for (Long bucket : keys) {
+      long[] s = buckets.get(0).containsKey(bucket) ? buckets.get(0).get(bucket) : empty;
+      long[] d = buckets.get(1).containsKey(bucket) ? buckets.get(1).get(bucket) : empty;
+      long subLow = low + bucket * width;
+      CopyChunk sub = new CopyChunk(range.getTableName(), range.getSeq(), ID_RANGE, subLow, Math.min(subLow + width, high), s[0]);
+      descend(source, dest, sub, s, d);
+    }
+  }
+
+  /**
+   * 대상에서 범위를 지우고 원본에서 다시 복사한다.
+   * 삭제는 복사와 같은 트랜잭션이므로 복사가 실패하면 함께 rollback 된다. (복사 중간 커밋 전까지)
+   */
+  private void recopy(Connection source, Connection dest, CopyChunk range) throws SQLException {
+    boolean autoCommit = dest.getAutoCommit();
+    PreparedStatement pstmt = null;
+    try {
+      dest.setAutoCommit(false);
+      pstmt = dest.prepareStatement("DELETE FROM " + range.getTableName()
+          + (range.getPredicate() == null ? "" : " WHERE " + range.getPredicate()));
+      if (range.getPredicate() != null) {
+        pstmt.setObject(1, range.getLow());
+        pstmt.setObject(2, range.getHigh());
+      }
+      int deleted = pstmt.executeUpdate();
+      long copied = engine.copy(source, dest, range);
+      logger.debug("[REPAIR] {} - 삭제 {} rows / 복사 {} rows", range, deleted, copied);
+      repairedRanges++;
+      deletedRows += deleted;
+      copiedRows += copied;
+    } catch (SQLException e) {
+      try {
+        dest.rollback();
+      } catch (SQLException ignore) {  }
+      throw e;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+      try {
+        dest.setAutoCommit(autoCommit);
+      } catch (SQLException e) {  }
+    }
+  }
+
+  int getRepairedRanges() {
+    return repairedRanges;
+  }
+
+  long getDeletedRows() {
+    return deletedRows;
+  }
+
+  long getCopiedRows() {
+    return copiedRows;
+  }
+}
@@ -0,0 +1,187 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 원본 테이블을 로컬 스냅샷 파일로 내보낸다. (대상 DB / DB LINK 없이 원본만 접속)
+ *
+ * data 단계와 같은 테이블 목록 ({@link TableInventory}) 을 같은 범위 ({@link ChunkPlanner}) 로 나눠서
+ * 범위마다 세그먼트 파일 ({@link SnapshotFile}) 하나를 SNAPSHOT_DIR 에 쓴다.
+ * 헤더에는 원본 ALL_TAB_COLUMNS 의 컬럼 / 타입을 넣고 행은 블럭 단위로 압축한다.
+ * 원본 Connection SNAPSHOT_WORKER_COUNT 개로 동시에 내보내며, 진행 기록은 SNAPSHOT_DIR/export-journal.log 에 남는다.
+ * 중간에 멈추면 다시 실행해서 남은 범위만 내보낸다.
+ * 파일은 import 단계 ({@link SnapshotImportInit}) 로 대상 DB 에 넣는다.
+ */
+public class SnapshotExportInit {
+  private static Logger logger = LoggerFactory.getLogger(SnapshotExportInit.class);
+
+  static final String EXPORT_JOURNAL = "export-journal.log";
+
+  private Resourcer config = null;
+  private Connection sourceConn = null;
+  private BasicDataSource sourceBds = null;
+  private String sourceSchema = "SOLARS8_CODE";
+  private File dir = null;
+  private int workerCount = 4;
+  private long chunkRows = 500000;
+  private ChunkPlanner.Mode chunkMode = ChunkPlanner.Mode.ROWID;
+  private int fetchSize = 1000;
+  private int blockBytes = 1048576;
+
+  public SnapshotExportInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    sourceBds = new BasicDataSource();
+    sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
+    sourceBds.setUrl(config.getString("SOURCE_CONNECTION_STRING"));
+    sourceBds.setUsername(config.getString("SOURCE_USER"));
+    sourceBds.setPassword(config.getString("SOURCE_PASSWORD"));
+    sourceBds.setMaxActive(-1);
+    sourceBds.setMaxIdle(-1);
+    sourceBds.setDefaultAutoCommit(true);
+    sourceConn = sourceBds.getConnection();
+
+    sourceSchema = config.getString("SOURCE_SCHEMA", sourceSchema).toUpperCase();
+    dir = new File(config.getString("SNAPSHOT_DIR", "snapshot"));
+    workerCount = config.getInt("SNAPSHOT_WORKER_COUNT", workerCount);
+    chunkRows = config.getInt("COPY_CHUNK_ROWS", (int) chunkRows);
+    chunkMode = ChunkPlanner.Mode.valueOf(config.getString("COPY_CHUNK_MODE", chunkMode.name()).toUpperCase());
+    fetchSize = config.getInt("COPY_FETCH_SIZE", fetchSize);
+    blockBytes = config.getInt("SNAPSHOT_BLOCK_BYTES", blockBytes);
+  }
+
+  private void connClose() {
+    try{
+      sourceConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Snapshot Export Start. ====");
+      export();
+      logger.info("==== Snapshot Export End. ====");
+    } catch (SQLException e) {
+      logger.error("[EXPORT] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    } catch (IOException e) {
+      logger.error("[EXPORT] 파일 오류 : {}", e.getMessage());
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void export() throws SQLException, IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException(dir + " 을 만들 수 없습니다.");
+    }
+    TableInventory inventory = TableInventory.collectSource(sourceConn, sourceSchema);
+    Map<String, List<SnapshotFile.Column>> columns = readColumns();
+    ChunkPlanner planner = new ChunkPlanner(sourceConn, null, sourceSchema, chunkRows, chunkMode);
+    CopyJournal journal = CopyJournal.open(new File(dir, EXPORT_JOURNAL));
+
+    TaskScheduler scheduler = new TaskScheduler("EXPORT", sourceBds, workerCount);
+    try {
+      for (TableInventory.Entry entry : inventory.getEntries()) {
+        String tableName = entry.getTableName();
+        if (journal.isComplete(tableName) || !columns.containsKey(tableName)) {
+          continue;
+        }
+        List<CopyChunk> chunks;
+        if (journal.isPlanned(tableName)) {
+          chunks = journal.getRemainingChunks(tableName);
+        } else {
+          chunks = planner.plan(tableName);
+          journal.plan(tableName, chunks);
+        }
+        for (CopyChunk chunk : chunks) {
+          scheduler.add(new SnapshotExportTask(chunk, sourceSchema, columns.get(tableName), dir, fetchSize, blockBytes, journal))
+              .weight(chunk.getEstimatedBytes());
+        }
+      }
+
+      TaskReport report = scheduler.run();
+      report.log(logger);
+      report.logWorkers(logger);
+    } finally {
+      journal.close();
+    }
+    logger.info("[EXPORT] 스냅샷 : {}", dir.getAbsolutePath());
+  }
+
+  /**
+   * 원본 테이블별 컬럼 (LONG / LOB 은 뒤로)
+   */
+  private Map<String, List<SnapshotFile.Column>> readColumns() throws SQLException {
+    Map<String, List<SnapshotFile.Column>> columns = new HashMap<String, List<SnapshotFile.Column>>();
+    Map<String, List<SnapshotFile.Column>> streams = new HashMap<String, List<SnapshotFile.Column>>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = sourceConn.prepareStatement(" SELECT table_name, column_name, data_type, data_precision, data_scale "
+          + " FROM all_tab_columns WHERE owner = ? ORDER BY table_name, column_id ");
+      pstmt.setFetchSize(1000);
+      pstmt.setString(1, sourceSchema);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        int precision = rs.getInt(4);
+        Integer p = rs.wasNull() ? null : precision;
+        int scale = rs.getInt(5);
+        Integer s = rs.wasNull() ? null : scale;
+        SnapshotFile.Column column = new SnapshotFile.Column(rs.getString(2), rs.getString(3), p, s);
+        Map<String, List<SnapshotFile.Column>> target = column.getCodec().isStream() ? streams : columns;
+        List<SnapshotFile.Column> list = target.get(rs.getString(1));
+        if (list == null) {
+          list = new ArrayList<SnapshotFile.Column>();
+          target.put(rs.getString(1), list);
+        }
+        list.add(column);
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    for (Map.Entry<String, List<SnapshotFile.Column>> entry : streams.entrySet()) {
+      List<SnapshotFile.Column> list = columns.get(entry.getKey());
+      if (list == null) {
+        columns.put(entry.getKey(), entry.getValue());
+      } else {
+        list.addAll(entry.getValue());
+      }
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,97 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 원본 범위 하나를 스냅샷 세그먼트 파일로 내보내는 작업
+ * 작업자 Connection 은 원본 DB Connection 이다. 끝나면 {@link CopyJournal} 에 기록한다.
+ */
+class SnapshotExportTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(SnapshotExportTask.class);
+
+  private final CopyChunk chunk;
+  private final String sourceSchema;
+  private final List<SnapshotFile.Column> columns;
+  private final File dir;
+  private final int fetchSize;
+  private final int blockBytes;
+  private final CopyJournal journal;
+
+  SnapshotExportTask(CopyChunk chunk, String sourceSchema, List<SnapshotFile.Column> columns, File dir, int fetchSize,
+                     int blockBytes, CopyJournal journal) {
+    this.chunk = chunk;
+    this.sourceSchema = sourceSchema;
+    this.columns = columns;
+    this.dir = dir;
+    this.fetchSize = fetchSize;
+    this.blockBytes = blockBytes;
+    this.journal = journal;
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString() + " : EXPORT";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException, IOException {
+    StringBuilder select = new StringBuilder("SELECT ");
+    for (int i = 0; i < columns.size(); i++) {
+      select.append(i == 0 ? "" : ", ").append('"').append(columns.get(i).getName()).append('"');
+    }
+    select.append(" FROM ").append(sourceSchema).append('.').append(chunk.getTableName());
+    if (chunk.getPredicate() != null) {
+      select.append(" WHERE ").append(chunk.getPredicate());
+    }
+
+    journal.started(chunk);
+    long start = System.currentTimeMillis();
+    File file = SnapshotFile.segmentFile(dir, chunk);
+    SnapshotFile.Writer writer = new SnapshotFile.Writer(file, chunk.getTableName(), columns, blockBytes);
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    boolean closed = false;
+    try {
+      pstmt = conn.prepareStatement(select.toString());
+      pstmt.setFetchSize(fetchSize);
+      if (chunk.getPredicate() != null) {
+        pstmt.setObject(1, chunk.getLow());
+        pstmt.setObject(2, chunk.getHigh());
+      }
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        writer.writeRow(rs);
+      }
+      writer.close();
+      closed = true;
+    } finally {
+      if (!closed) {
+        writer.abort();
+      }
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    journal.done(chunk, writer.getRows());
+    logger.info("[EXPORT] {} - {} rows / {} KB ({} ms)", chunk, writer.getRows(), writer.getFileBytes() / 1024,
+        System.currentTimeMillis() - start);
+    return true;
+  }
+}
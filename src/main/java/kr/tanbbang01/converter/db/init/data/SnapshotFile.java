@@ -0,0 +1,376 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 오프라인 스냅샷 세그먼트 파일 (테이블 범위 하나)
+ *
+ * 파일 이름은 테이블명.범위번호.seg 이고 내용은
+ *  - 헤더 : "CVSNAP02" / 테이블명 / 컬럼 수 / 컬럼마다 (이름, ALL_TAB_COLUMNS 타입, 정밀도, 소수 자리 : 없으면 -1)
+ *  - 블럭 : 원래 크기 / 압축 크기 / 행 수 (int) 와 deflate 로 압축한 행 데이터 (값은 {@link ColumnCodec#exportValue} 형식)
+ *  - 끝 : 0 / 0 / 0 과 전체 행 수 (long)
+ * 이다. 블럭은 SNAPSHOT_BLOCK_BYTES 를 넘으면 끊으며 행 하나가 두 블럭에 걸치지 않는다. (LOB 이 큰 행은 블럭도 크다)
+ * 쓰는 동안은 .tmp 파일에 쓰고 끝 표시까지 쓴 뒤에 이름을 바꾸므로, 이름이 .seg 인 파일은 완전한 파일이다.
+ * 읽을 때는 파일을 메모리 매핑해서 (큰 파일은 구간별로) 블럭을 풀어서 읽는다.
+ */
+class SnapshotFile {
+  static final String SUFFIX = ".seg";
+
+  private static final byte[] MAGIC = { 'C', 'V', 'S', 'N', 'A', 'P', '0', '2' };   // 02 : LONG / LOB 을 조각으로 쓴다.
+  private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+  private SnapshotFile() {
+  }
+
+  /**
+   * 범위 하나의 세그먼트 파일
+   */
+  static File segmentFile(File dir, CopyChunk chunk) {
+    return new File(dir, chunk.getTableName() + "." + String.format("%05d", chunk.getSeq()) + SUFFIX);
+  }
+
+  /**
+   * @return 세그먼트 파일의 테이블명 (파일 이름에서)
+   */
+  static String tableOf(File segment) {
+    String name = segment.getName();
+    return name.substring(0, name.lastIndexOf('.', name.length() - SUFFIX.length() - 1));
+  }
+
+  /**
+   * @return 세그먼트 파일의 범위 번호 (파일 이름에서)
+   */
+  static int seqOf(File segment) {
+    String name = segment.getName();
+    return Integer.parseInt(name.substring(name.lastIndexOf('.', name.length() - SUFFIX.length() - 1) + 1,
+        name.length() - SUFFIX.length()));
+  }
+
+  /**
+   * 스냅샷 헤더의 컬럼 하나
+   */
+  static class Column {
+    private final String name;
+    private final String dataType;
+    private final Integer precision;
+    private final Integer scale;
+    private final ColumnCodec codec;
+
+    Column(String name, String dataType, Integer precision, Integer scale) {
+      this.name = name;
+      this.dataType = dataType;
+      this.precision = precision;
+      this.scale = scale;
+      this.codec = ColumnCodec.of(name, dataType, precision, scale);
+    }
+
+    String getName() {
+      return name;
+    }
+
+    ColumnCodec getCodec() {
+      return codec;
+    }
+  }
+
+  /**
+   * 세그먼트 파일을 쓴다. close 해야 .seg 파일이 생긴다.
+   */
+  static class Writer {
+    private final File target;
+    private final File temp;
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final List<Column> columns;
+    private final int blockBytes;
+    private final BlockBuffer block = new BlockBuffer();
+    private final DataOutputStream blockOut = new DataOutputStream(block);
+    private final BlockBuffer compressed = new BlockBuffer();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] deflateBuffer = new byte[64 * 1024];
+    private int blockRows = 0;
+    private long rows = 0;
+    private long fileBytes = 0;
+
+    /**
+     * @param columns SELECT 순서의 컬럼
+     * @param blockBytes 압축 전 블럭 크기
+     */
+    Writer(File target, String tableName, List<Column> columns, int blockBytes) throws IOException {
+      this.target = target;
+      this.temp = new File(target.getPath() + ".tmp");
+      this.columns = columns;
+      this.blockBytes = Math.max(4096, blockBytes);
+      this.fileOut = new FileOutputStream(temp);
+      this.out = new DataOutputStream(new BufferedOutputStream(fileOut, 256 * 1024));
+
+      out.write(MAGIC);
+      out.writeUTF(tableName);
+      out.writeInt(columns.size());
+      for (Column column : columns) {
+        out.writeUTF(column.name);
+        out.writeUTF(column.dataType);
+        out.writeInt(column.precision == null ? -1 : column.precision);
+        out.writeInt(column.scale == null ? -1 : column.scale);
+      }
+    }
+
+    /**
+     * rs 의 현재 행을 쓴다. (컬럼은 1 부터 헤더 순서)
+     */
+    void writeRow(ResultSet rs) throws SQLException, IOException {
+      for (int c = 0; c < columns.size(); c++) {
+        columns.get(c).codec.exportValue(rs, c + 1, blockOut);
+      }
+      blockRows++;
+      rows++;
+      if (block.size() >= blockBytes) {
+        flushBlock();
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      if (blockRows == 0) {
+        return;
+      }
+      deflater.reset();
+      deflater.setInput(block.array(), 0, block.size());
+      deflater.finish();
+      compressed.reset();
+      while (!deflater.finished()) {
+        int n = deflater.deflate(deflateBuffer);
+        compressed.write(deflateBuffer, 0, n);
+      }
+      out.writeInt(block.size());
+      out.writeInt(compressed.size());
+      out.writeInt(blockRows);
+      out.write(compressed.array(), 0, compressed.size());
+      fileBytes += 12 + compressed.size();
+      block.reset();
+      blockRows = 0;
+    }
+
+    long getRows() {
+      return rows;
+    }
+
+    /**
+     * 지금까지 파일에 쓴 블럭 크기 (압축 후)
+     */
+    long getFileBytes() {
+      return fileBytes;
+    }
+
+    /**
+     * 남은 블럭과 끝 표시를 쓰고 디스크에 내린 뒤 .seg 로 이름을 바꾼다.
+     */
+    void close() throws IOException {
+      try {
+        flushBlock();
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(rows);
+        out.flush();
+        fileOut.getChannel().force(true);
+      } finally {
+        out.close();
+        deflater.end();
+      }
+      if (target.exists() && !target.delete()) {
+        throw new IOException(target + " 을 지울 수 없습니다.");
+      }
+      if (!temp.renameTo(target)) {
+        throw new IOException(temp + " -> " + target + " 이름 변경 실패");
+      }
+    }
+
+    /**
+     * 쓰다가 실패했을 때 .tmp 파일을 지운다.
+     */
+    void abort() {
+      try {
+        out.close();
+      } catch (IOException e) {  }
+      deflater.end();
+      temp.delete();
+    }
+  }
+
+  /**
+   * 세그먼트 파일을 메모리 매핑해서 블럭 단위로 읽는다.
+   */
+  static class Reader {
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long size;
+    private final Inflater inflater = new Inflater();
+    private MappedByteBuffer map;
+    private long mapStart = 0;
+    private long position = 0;
+    private byte[] compressed = new byte[64 * 1024];
+    private byte[] raw = new byte[64 * 1024];
+    private DataInputStream block;
+    private String tableName;
+    private List<Column> columns;
+    private long rows = 0;
+
+    Reader(File file) throws IOException {
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "r");
+      this.channel = raf.getChannel();
+      this.size = channel.size();
+      try {
+        readHeader();
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    private void readHeader() throws IOException {
+      // 헤더는 앞쪽 작은 구간이므로 DataInputStream 으로 읽는다.
+      int headerLength = (int) Math.min(size, 64 * 1024);
+      byte[] header = new byte[headerLength];
+      window(0, headerLength).get(header);
+      ByteArrayInputStream bytes = new ByteArrayInputStream(header);
+      DataInputStream in = new DataInputStream(bytes);
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException(file + " 은 스냅샷 파일이 아니거나 이전 형식입니다. export 를 다시 실행하세요.");
+      }
+      tableName = in.readUTF();
+      int count = in.readInt();
+      List<Column> list = new ArrayList<Column>(count);
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        String dataType = in.readUTF();
+        int precision = in.readInt();
+        int scale = in.readInt();
+        list.add(new Column(name, dataType, precision < 0 ? null : precision, scale < 0 ? null : scale));
+      }
+      columns = Collections.unmodifiableList(list);
+      position = headerLength - bytes.available();
+    }
+
+    String getTableName() {
+      return tableName;
+    }
+
+    List<Column> getColumns() {
+      return columns;
+    }
+
+    /**
+     * 다음 블럭을 푼다.
+     * @return 블럭의 행 수, 끝이면 0
+     */
+    int nextBlock() throws IOException {
+      MappedByteBuffer buffer = window(position, 12);
+      int rawLength = buffer.getInt();
+      int compressedLength = buffer.getInt();
+      int blockRows = buffer.getInt();
+      position += 12;
+      if (rawLength == 0) {
+        long total = window(position, 8).getLong();
+        if (total != rows) {
+          throw new IOException(file + " : 행 수가 맞지 않습니다. (" + rows + " / " + total + ")");
+        }
+        return 0;
+      }
+
+      if (compressed.length < compressedLength) {
+        compressed = new byte[compressedLength];
+      }
+      if (raw.length < rawLength) {
+        raw = new byte[rawLength];
+      }
+      window(position, compressedLength).get(compressed, 0, compressedLength);
+      position += compressedLength;
+      inflater.reset();
+      inflater.setInput(compressed, 0, compressedLength);
+      try {
+        int n = 0;
+        while (n < rawLength && !inflater.finished()) {
+          n += inflater.inflate(raw, n, rawLength - n);
+        }
+        if (n != rawLength) {
+          throw new IOException(file + " : 블럭 크기가 맞지 않습니다.");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(file + " : 블럭을 풀 수 없습니다. " + e.getMessage(), e);
+      }
+      block = new DataInputStream(new ByteArrayInputStream(raw, 0, rawLength));
+      rows += blockRows;
+      return blockRows;
+    }
+
+    /**
+     * 현재 블럭의 행 하나를 바인딩한다.
+     * @param bindIndexes 컬럼별 바인드 변수 번호 (0 이면 대상에 없는 컬럼이라 읽기만 한다)
+     */
+    void bindRow(PreparedStatement pstmt, int[] bindIndexes) throws SQLException, IOException {
+      for (int c = 0; c < columns.size(); c++) {
+        columns.get(c).codec.importValue(block, bindIndexes[c] == 0 ? null : pstmt, bindIndexes[c]);
+      }
+    }
+
+    /**
+     * [start, start + length) 를 읽을 수 있게 매핑한 버퍼 (위치는 start)
+     * 파일 전체를 한번에 매핑하지 않고 MAP_WINDOW 단위 구간을 필요할 때 옮긴다.
+     */
+    private MappedByteBuffer window(long start, int length) throws IOException {
+      if (start + length > size) {
+        throw new IOException(file + " : 파일이 잘렸습니다.");
+      }
+      if (map == null || start < mapStart || start + length > mapStart + map.capacity()) {
+        mapStart = start;
+        map = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, Math.max(MAP_WINDOW, length)));
+      }
+      map.position((int) (start - mapStart));
+      return map;
+    }
+
+    void close() {
+      inflater.end();
+      try {
+        raf.close();
+      } catch (IOException e) {  }
+    }
+  }
+
+  /**
+   * 내부 배열을 복사하지 않고 쓰는 ByteArrayOutputStream
+   */
+  private static class BlockBuffer extends ByteArrayOutputStream {
+    BlockBuffer() {
+      super(64 * 1024);
+    }
+
+    byte[] array() {
+      return buf;
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * export 단계 ({@link SnapshotExportInit}) 가 남긴 스냅샷 파일을 대상 DB 에 넣는다. (원본 / DB LINK 없이 대상만 접속)
+ *
+ * SNAPSHOT_DIR 의 export-journal.log 에서 내보내기가 끝난 테이블만 넣는다.
+ * 세그먼트 파일마다 작업 하나로 COPY_WORKER_COUNT 개의 대상 Connection 이 큰 파일부터 동시에 넣는다.
+ * 파일은 메모리 매핑해서 읽는다.
+ * data 단계처럼 처음 넣는 테이블은 대상이 비어있을 때만 넣는다.
+ * 진행 기록은 SNAPSHOT_DIR/import-journal.log 에 남으며, 세그먼트 단위로 커밋하므로 다시 실행하면 남은 세그먼트만 넣는다.
+ * 커밋 후 journal 에 완료를 쓰기 전에 중단된 세그먼트는 행이 이미 들어갔을 수 있으므로, data 단계처럼
+ * export 범위가 ID 범위면 그 범위를 지우고 다시 넣고, 아니면 (ROWID) 테이블을 비우고 처음부터 넣는다. (PK 가 없는 테이블의 중복 방지)
+ */
+public class SnapshotImportInit {
+  private static Logger logger = LoggerFactory.getLogger(SnapshotImportInit.class);
+
+  private static final String IMPORT_JOURNAL = "import-journal.log";
+
+  private Resourcer config = null;
+  private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private File dir = null;
+  private int workerCount = 4;
+  private int batchSize = 1000;
+
+  public SnapshotImportInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    dir = new File(config.getString("SNAPSHOT_DIR", "snapshot"));
+    workerCount = config.getInt("COPY_WORKER_COUNT", workerCount);
+    batchSize = config.getInt("COPY_BATCH_SIZE", batchSize);
+  }
+
+  private void connClose() {
+    try{
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Snapshot Import Start. ====");
+      load();
+      logger.info("==== Snapshot Import End. ====");
+    } catch (IOException e) {
+      logger.error("[IMPORT] 파일 오류 : {}", e.getMessage());
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void load() throws IOException {
+    File exportFile = new File(dir, SnapshotExportInit.EXPORT_JOURNAL);
+    if (!exportFile.isFile()) {
+      throw new IOException(exportFile + " 이 없습니다. export 를 먼저 실행하세요.");
+    }
+    CopyJournal exported = CopyJournal.open(exportFile);
+    exported.close();
+    CopyJournal journal = CopyJournal.open(new File(dir, IMPORT_JOURNAL));
+
+    LoadStats loadStats = new LoadStats("snapshot");
+    TaskScheduler scheduler = new TaskScheduler("IMPORT", destBds, workerCount);
+    try {
+      for (Map.Entry<String, List<File>> entry : segments().entrySet()) {
+        String tableName = entry.getKey();
+        if (journal.isComplete(tableName)) {
+          continue;
+        }
+        if (!exported.isComplete(tableName)) {
+          logger.warn("[IMPORT] {} - 내보내기가 끝나지 않아서 건너뜁니다.", tableName);
+          continue;
+        }
+
+        Map<Integer, File> files = new HashMap<Integer, File>();
+        List<CopyChunk> chunks = new ArrayList<CopyChunk>();
+        for (File file : entry.getValue()) {
+          int seq = SnapshotFile.seqOf(file);
+          files.put(seq, file);
+          CopyChunk range = exported.getChunk(tableName, seq);   // 범위 조건은 export 와 같다.
+          CopyChunk chunk = range == null ? new CopyChunk(tableName, seq, null, null, null, -1)
+              : new CopyChunk(tableName, seq, range.getPredicate(), range.getLow(), range.getHigh(), -1);
+          chunk.setEstimatedBytes(file.length());
+          chunks.add(chunk);
+        }
+        if (journal.isPlanned(tableName) && journal.needsTruncate(tableName)) {
+          logger.warn("[IMPORT] {} - 일부만 들어갔을 수 있는 세그먼트가 있습니다. TRUNCATE 후 처음부터", tableName);
+          try {
+            truncate(tableName);
+          } catch (SQLException e) {
+            logger.error("[IMPORT] {} - TRUNCATE 실패 : {}", tableName, e.getMessage());
+            continue;
+          }
+          journal.reset(tableName);
+          journal.plan(tableName, chunks);
+        } else if (journal.isPlanned(tableName)) {
+          chunks = journal.getRemainingChunks(tableName);
+        } else if (hasRows(tableName)) {
+          logger.info("[IMPORT] {} - 대상에 데이터가 있어서 건너뜁니다.", tableName);
+          continue;
+        } else {
+          journal.plan(tableName, chunks);
+        }
+
+        for (CopyChunk chunk : chunks) {
+          File file = files.get(chunk.getSeq());
+          if (file == null) {
+            logger.error("[IMPORT] {} - 세그먼트 파일이 없습니다.", chunk);
+            continue;
+          }
+          scheduler.add(new SnapshotImportTask(file, chunk, batchSize, journal, journal.isStarted(chunk), loadStats))
+              .weight(file.length());
+        }
+      }
+
+      TaskReport report = scheduler.run();
+      report.log(logger);
+      report.logWorkers(logger);
+      loadStats.log(logger);
+    } finally {
+      journal.close();
+    }
+  }
+
+  /**
+   * @return 테이블명 < 세그먼트 파일 >
+   */
+  private Map<String, List<File>> segments() throws IOException {
+    File[] files = dir.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.isFile() && file.getName().endsWith(SnapshotFile.SUFFIX);
+      }
+    });
+    if (files == null) {
+      throw new IOException(dir + " 을 읽을 수 없습니다.");
+    }
+    Map<String, List<File>> segments = new TreeMap<String, List<File>>();
+    for (File file : files) {
+      String tableName = SnapshotFile.tableOf(file);
+      List<File> list = segments.get(tableName);
+      if (list == null) {
+        list = new ArrayList<File>();
+        segments.put(tableName, list);
+      }
+      list.add(file);
+    }
+    for (List<File> list : segments.values()) {
+      Collections.sort(list);   // 범위 번호 순서 (journal 은 0 번 범위부터 기록한다)
+    }
+    return segments;
+  }
+
+  private void truncate(String tableName) throws SQLException {
+    PreparedStatement pstmt = null;
+    try {
+      pstmt = destConn.prepareStatement("TRUNCATE TABLE " + tableName);
+      pstmt.executeUpdate();
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  /**
+   * 대상 테이블에 행이 있는가 ? (없는 테이블이면 예외를 남기고 true)
+   */
+  private boolean hasRows(String tableName) {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = destConn.prepareStatement(" SELECT 1 FROM " + tableName + " WHERE ROWNUM = 1 ");
+      rs = pstmt.executeQuery();
+      return rs.next();
+    } catch (SQLException e) {
+      logger.error("[IMPORT] {} - 대상 테이블 확인 실패 : {}", tableName, e.getMessage());
+      return true;
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+}
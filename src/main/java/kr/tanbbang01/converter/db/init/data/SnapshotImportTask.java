@@ -0,0 +1,133 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 스냅샷 세그먼트 파일 하나를 대상 테이블에 넣는 작업
+ * 대상에 있는 컬럼만 INSERT 하고 COPY_BATCH_SIZE 행씩 executeBatch 한다.
+ * 세그먼트 하나를 한번에 커밋하므로 실패하면 세그먼트 전체가 rollback 되고, 다시 실행하면 그 세그먼트부터 넣는다.
+ * 이전 실행에서 시작만 기록된 세그먼트 (커밋 후 완료 기록 전에 중단) 는 그 범위를 먼저 지운다.
+ */
+class SnapshotImportTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(SnapshotImportTask.class);
+
+  private final File file;
+  private final CopyChunk chunk;
+  private final int batchSize;
+  private final CopyJournal journal;
+  private final boolean clearFirst;
+  private final LoadStats loadStats;
+
+  /**
+   * @param chunk journal 에 기록할 세그먼트 (범위 조건은 export 범위, INSERT 에는 쓰지 않는다)
+   * @param clearFirst 이전 실행에서 시작만 기록된 세그먼트 (대상에서 범위를 먼저 지운다. ID 범위만 넘긴다)
+   */
+  SnapshotImportTask(File file, CopyChunk chunk, int batchSize, CopyJournal journal, boolean clearFirst, LoadStats loadStats) {
+    this.file = file;
+    this.chunk = chunk;
+    this.batchSize = Math.max(1, batchSize);
+    this.journal = journal;
+    this.clearFirst = clearFirst;
+    this.loadStats = loadStats;
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString() + " : IMPORT";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException, IOException {
+    journal.started(chunk);
+    if (clearFirst) {
+      CopyChunkTask.clearRange(conn, chunk);
+    }
+    long start = System.currentTimeMillis();
+    long redoBefore = loadStats.redoSize(conn);
+    SnapshotFile.Reader reader = new SnapshotFile.Reader(file);
+    boolean autoCommit = conn.getAutoCommit();
+    PreparedStatement pstmt = null;
+    long rows = 0;
+    try {
+      String tableName = reader.getTableName();
+      List<SnapshotFile.Column> columns = reader.getColumns();
+      Set<String> destColumns = JdbcCopyEngine.describe(conn, tableName);
+      int[] bindIndexes = new int[columns.size()];
+      StringBuilder insert = new StringBuilder("INSERT INTO " + tableName + " (");
+      StringBuilder values = new StringBuilder(") VALUES (");
+      int bindCount = 0;
+      for (int c = 0; c < columns.size(); c++) {
+        if (!destColumns.contains(columns.get(c).getName())) {
+          continue;
+        }
+        String separator = bindCount == 0 ? "" : ", ";
+        insert.append(separator).append('"').append(columns.get(c).getName()).append('"');
+        values.append(separator).append('?');
+        bindIndexes[c] = ++bindCount;
+      }
+      if (bindCount == 0) {
+        throw new SQLException(tableName + " : 스냅샷과 대상에 같은 컬럼이 없습니다.");
+      }
+      insert.append(values).append(')');
+
+      conn.setAutoCommit(false);
+      pstmt = conn.prepareStatement(insert.toString());
+      int blockRows;
+      while ((blockRows = reader.nextBlock()) > 0) {
+        // 블럭 버퍼를 다음 블럭이 덮어쓰기 전에 executeBatch 한다. (LOB 은 블럭의 값을 스트림으로 바인딩한다)
+        int pending = 0;
+        for (int row = 0; row < blockRows; row++) {
+          reader.bindRow(pstmt, bindIndexes);
+          pstmt.addBatch();
+          if (++pending >= batchSize) {
+            pstmt.executeBatch();
+            pending = 0;
+          }
+        }
+        if (pending > 0) {
+          pstmt.executeBatch();
+        }
+        rows += blockRows;
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      logger.error("[IMPORT] {} Exception at row {} : {}", file.getName(), rows, e.getMessage());
+      try {
+        conn.rollback();
+      } catch (SQLException ignore) {  }
+      throw e;
+    } catch (IOException e) {
+      logger.error("[IMPORT] {} 파일 오류 at row {} : {}", file.getName(), rows, e.getMessage());
+      try {
+        conn.rollback();
+      } catch (SQLException ignore) {  }
+      throw e;
+    } finally {
+      reader.close();
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+      try {
+        conn.setAutoCommit(autoCommit);
+      } catch (SQLException e) {  }
+    }
+
+    journal.done(chunk, rows);
+    long millis = System.currentTimeMillis() - start;
+    loadStats.add(chunk.getTableName(), rows, redoBefore, loadStats.redoSize(conn), millis);
+    logger.info("[IMPORT] {} - {} rows ({} ms)", file.getName(), rows, millis);
+    return true;
+  }
+}
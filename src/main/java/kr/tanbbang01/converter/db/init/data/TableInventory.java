@@ -0,0 +1,294 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.DbTask;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 데이터 복사 전 테이블 목록 (inventory)
+ *
+ * 원본 딕셔너리를 두번 조회해서 테이블별 통계 행 수 / 컬럼 목록 / LOB 컬럼 여부를 읽고,
+ * 대상 테이블은 첫 행만 확인하는 쿼리 ( ROWNUM = 1 ) 로 비어있는지 여러 Connection 으로 동시에 확인한다.
+ * 어떤 테이블도 전체를 읽지 않는다.
+ * 결과는 manifest 파일 (탭 구분) 로 남기고 데이터 단계는 이 결과로 복사할 테이블을 정한다.
+ */
+public class TableInventory {
+  private static Logger logger = LoggerFactory.getLogger(TableInventory.class);
+
+  private static final List<String> LOB_TYPES = Arrays.asList("CLOB", "NCLOB", "BLOB", "BFILE", "LONG", "LONG RAW");
+  private static final List<String> LONG_TYPES = Arrays.asList("LONG", "LONG RAW");
+
+  /**
+   * 대상 테이블 상태
+   */
+  public enum DestState {
+    EMPTY, HAS_ROWS, MISSING
+  }
+
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+  private TableInventory() {
+  }
+
+  /**
+   * @param sourceConn 원본 Connection
+   * @param sourceSchema 원본 테이블 스키마
+   * @param destDataSource 대상 DataSource (비어있는지 확인)
+   * @param workerCount 대상 확인에 쓸 Connection 수
+   */
+  public static TableInventory collect(Connection sourceConn, String sourceSchema, DataSource destDataSource, int workerCount)
+      throws SQLException {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    TableInventory inventory = new TableInventory();
+    inventory.readSourceTables(sourceConn, sourceSchema);
+    inventory.readSourceColumns(sourceConn, sourceSchema);
+
+    TaskScheduler scheduler = new TaskScheduler("INVENTORY", destDataSource, workerCount);
+    for (Entry entry : inventory.entries.values()) {
+      scheduler.add(new ProbeTask(entry));
+    }
+    TaskReport report = scheduler.run();
+
+    stopwatch.stop();
+    logger.info("[INVENTORY] tables : {} / empty : {} / has rows : {} / missing : {} ({} ms)",
+        inventory.entries.size(), inventory.count(DestState.EMPTY), inventory.count(DestState.HAS_ROWS),
+        inventory.count(DestState.MISSING), stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    if (!report.isAllDone()) {
+      report.log(logger);
+    }
+    return inventory;
+  }
+
+  /**
+   * 원본 딕셔너리만 조회한다. 대상은 확인하지 않는다. (대상 상태는 모두 MISSING, 스냅샷 export 용)
+   */
+  public static TableInventory collectSource(Connection sourceConn, String sourceSchema) throws SQLException {
+    TableInventory inventory = new TableInventory();
+    inventory.readSourceTables(sourceConn, sourceSchema);
+    inventory.readSourceColumns(sourceConn, sourceSchema);
+    logger.info("[INVENTORY] tables : {} (원본만)", inventory.entries.size());
+    return inventory;
+  }
+
+  private void readSourceTables(Connection conn, String schema) throws SQLException {
+    StringBuilder sb = new StringBuilder();
+    sb.append(" SELECT table_name, num_rows ");
+    sb.append("   FROM all_tables ");
+    sb.append("  WHERE owner = ? ");
+    sb.append("    AND table_name not like '%COV_%' ");
+    sb.append("  ORDER BY table_name ");
+
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sb.toString());
+      pstmt.setFetchSize(1000);
+      pstmt.setString(1, schema);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        long numRows = rs.getLong(2);
+        entries.put(rs.getString(1), new Entry(rs.getString(1), rs.wasNull() ? -1 : numRows));
+      }
+    } finally {
+      close(rs, pstmt);
+    }
+  }
+
+  private void readSourceColumns(Connection conn, String schema) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(" SELECT table_name, column_name, data_type FROM all_tab_columns WHERE owner = ? ORDER BY table_name, column_id ");
+      pstmt.setFetchSize(1000);
+      pstmt.setString(1, schema);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        Entry entry = entries.get(rs.getString(1));
+        if (entry == null) {
+          continue;   // 뷰 / 제외한 테이블
+        }
+        entry.columns.add(rs.getString(2));
+        if (LOB_TYPES.contains(rs.getString(3))) {
+          entry.hasLob = true;
+        }
+        if (LONG_TYPES.contains(rs.getString(3))) {
+          entry.hasLong = true;
+        }
+      }
+    } finally {
+      close(rs, pstmt);
+    }
+  }
+
+  public Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  public Entry getEntry(String tableName) {
+    return entries.get(tableName);
+  }
+
+  public int count(DestState state) {
+    int count = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.destState == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * manifest 파일을 쓴다. (테이블 / 대상 상태 / 통계 행 수 / LOB 여부 / 컬럼 목록)
+   */
+  public void writeManifest(File file) {
+    Writer writer = null;
+    try {
+      writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")));
+      writer.write("# table\tdest\tnum_rows\tlob\tcolumns\n");
+      for (Entry entry : entries.values()) {
+        writer.write(entry.tableName + "\t" + entry.destState + "\t" + entry.numRows + "\t" + (entry.hasLob ? "Y" : "N")
+            + "\t" + join(entry.columns) + "\n");
+      }
+      logger.info("[INVENTORY] manifest : {}", file.getAbsolutePath());
+    } catch (IOException e) {
+      logger.warn("[INVENTORY] manifest 를 쓰지 못했습니다. {} : {}", file, e.getMessage());
+    } finally {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {  }
+      }
+    }
+  }
+
+  private static String join(List<String> values) {
+    StringBuilder sb = new StringBuilder();
+    for (String value : values) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(value);
+    }
+    return sb.toString();
+  }
+
+  private static void close(ResultSet rs, PreparedStatement pstmt) {
+    if (rs != null) {
+      try {
+        rs.close();
+      } catch (SQLException e) {  }
+    }
+    if (pstmt != null) {
+      try {
+        pstmt.close();
+      } catch (SQLException e) {  }
+    }
+  }
+
+  /**
+   * 테이블 하나의 inventory
+   */
+  public static class Entry {
+    private final String tableName;
+    private final long numRows;
+    private final List<String> columns = new ArrayList<String>();
+    private boolean hasLob = false;
+    private boolean hasLong = false;
+    private volatile DestState destState = DestState.MISSING;
+
+    Entry(String tableName, long numRows) {
+      this.tableName = tableName;
+      this.numRows = numRows;
+    }
+
+    public String getTableName() {
+      return tableName;
+    }
+
+    /**
+     * 원본 통계 행 수 (통계가 없으면 -1)
+     */
+    public long getNumRows() {
+      return numRows;
+    }
+
+    public List<String> getColumns() {
+      return Collections.unmodifiableList(columns);
+    }
+
+    public boolean hasLob() {
+      return hasLob;
+    }
+
+    /**
+     * LONG / LONG RAW 컬럼이 있는지. (DB LINK 로 SELECT 할 수 없다 : ORA-00997)
+     */
+    public boolean hasLong() {
+      return hasLong;
+    }
+
+    public DestState getDestState() {
+      return destState;
+    }
+  }
+
+  /**
+   * 대상 테이블에 행이 하나라도 있는지 확인하는 작업
+   */
+  private static class ProbeTask implements DbTask {
+    private final Entry entry;
+
+    ProbeTask(Entry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public String getName() {
+      return entry.tableName;
+    }
+
+    @Override
+    public boolean execute(Connection conn) throws SQLException {
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+      try {
+        pstmt = conn.prepareStatement(" SELECT 1 FROM " + entry.tableName + " WHERE ROWNUM = 1 ");
+        rs = pstmt.executeQuery();
+        entry.destState = rs.next() ? DestState.HAS_ROWS : DestState.EMPTY;
+      } catch (SQLException e) {
+        logger.warn("[INVENTORY] {} - 대상 테이블 확인 실패 : {}", entry.tableName, e.getMessage());
+        entry.destState = DestState.MISSING;
+      } finally {
+        close(rs, pstmt);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * data 이후 원본과 대상의 행 수 / 내용을 범위별로 비교한다.
+ *
+ * 대상에 있는 테이블을 숫자 ID 범위 ({@link ChunkPlanner} ID 방식, ROWID 는 대상에서 쓸 수 없다) 로 나누고,
+ * 범위마다 원본과 대상에서 동시에 COUNT(*) / SUM(ORA_HASH) ({@link ChunkHasher}) 를 계산해서 비교한다.
+ * ID 범위 밖 (min ~ max 밖, ID 가 NULL) 의 행도 범위 하나로 비교한다. ID 가 없는 테이블은 테이블 전체를 비교한다.
+ * VERIFY_WORKER_COUNT 개의 대상 Connection (와 같은 수의 원본 Connection) 으로 큰 범위부터 동시에 실행한다.
+ * 다른 범위는 VERIFY_REPORT 파일 (탭 구분) 과 로그에 범위 조건과 함께 남긴다.
+ */
+public class VerifyInit {
+  private static Logger logger = LoggerFactory.getLogger(VerifyInit.class);
+
+  private Resourcer config = null;
+  private Connection sourceConn = null;
+  private Connection destConn = null;
+  private BasicDataSource sourceBds = null;
+  private BasicDataSource destBds = null;
+  private String sourceSchema = "SOLARS8_CODE";
+  private int workerCount = 4;
+  private long chunkRows = 500000;
+
+  public VerifyInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    sourceBds = new BasicDataSource();
+    sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
+    sourceBds.setUrl(config.getString("SOURCE_CONNECTION_STRING"));
+    sourceBds.setUsername(config.getString("SOURCE_USER"));
+    sourceBds.setPassword(config.getString("SOURCE_PASSWORD"));
+    sourceBds.setMaxActive(-1);
+    sourceBds.setMaxIdle(-1);
+    sourceBds.setDefaultAutoCommit(true);
+    sourceConn = sourceBds.getConnection();
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    sourceSchema = config.getString("SOURCE_SCHEMA", sourceSchema).toUpperCase();
+    workerCount = config.getInt("VERIFY_WORKER_COUNT", config.getInt("COPY_WORKER_COUNT", workerCount));
+    chunkRows = config.getInt("COPY_CHUNK_ROWS", (int) chunkRows);
+  }
+
+  private void connClose() {
+    try{
+      sourceConn.close();
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Verify Start. ====");
+      verify();
+      logger.info("==== Verify End. ====");
+    } catch (SQLException e) {
+      logger.error("[VERIFY] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void verify() throws SQLException {
+    TableInventory inventory = TableInventory.collect(sourceConn, sourceSchema, destBds, workerCount);
+    Map<String, List<String[]>> columns = readColumns(sourceConn, sourceSchema, destConn);
+    ChunkPlanner planner = new ChunkPlanner(sourceConn, null, sourceSchema, chunkRows, ChunkPlanner.Mode.ID);
+
+    TaskScheduler scheduler = new TaskScheduler("VERIFY", destBds, workerCount);
+    List<VerifyTask> tasks = new ArrayList<VerifyTask>();
+    for (TableInventory.Entry entry : inventory.getEntries()) {
+      String tableName = entry.getTableName();
+      if (entry.getDestState() == TableInventory.DestState.MISSING || !columns.containsKey(tableName)) {
+        continue;
+      }
+      ChunkHasher hasher = new ChunkHasher(columns.get(tableName));
+      for (CopyChunk chunk : keyChunks(planner, tableName)) {
+        VerifyTask task = new VerifyTask(chunk, hasher, sourceSchema + "." + tableName, sourceBds);
+        tasks.add(task);
+        scheduler.add(task).weight(chunk.getEstimatedRows());
+      }
+    }
+
+    TaskReport report = scheduler.run();
+    report.log(logger);
+    report.logWorkers(logger);
+    writeReport(tasks);
+  }
+
+  /**
+   * 다른 범위를 로그와 VERIFY_REPORT 에 남긴다.
+   */
+  private void writeReport(List<VerifyTask> tasks) {
+    File file = new File(config.getString("VERIFY_REPORT", "verify-report.tsv"));
+    Set<String> tables = new TreeSet<String>();
+    Set<String> badTables = new TreeSet<String>();
+    int mismatched = 0;
+    int unchecked = 0;
+    Writer writer = null;
+    try {
+      writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")));
+      writer.write("# table\tseq\tpredicate\tlow\thigh\tsource_rows\tdest_rows\tsource_hash\tdest_hash\tstatus\n");
+      for (VerifyTask task : tasks) {
+        CopyChunk chunk = task.getChunk();
+        tables.add(chunk.getTableName());
+        String status = !task.isChecked() ? "ERROR" : task.isMatched() ? "OK" : "MISMATCH";
+        if (!task.isChecked()) {
+          unchecked++;
+          badTables.add(chunk.getTableName());
+        } else if (!task.isMatched()) {
+          mismatched++;
+          badTables.add(chunk.getTableName());
+          logger.warn("[VERIFY] {} - 행 수 {} / {}, 해시 {} / {}", chunk, task.getSource()[0], task.getDest()[0],
+              task.getSource()[1], task.getDest()[1]);
+        }
+        long[] source = task.isChecked() ? task.getSource() : new long[] { -1, -1 };
+        long[] dest = task.isChecked() ? task.getDest() : new long[] { -1, -1 };
+        writer.write(chunk.getTableName() + "\t" + chunk.getSeq() + "\t" + (chunk.getPredicate() == null ? "-" : chunk.getPredicate())
+            + "\t" + chunk.getLow() + "\t" + chunk.getHigh() + "\t" + source[0] + "\t" + dest[0] + "\t" + source[1] + "\t" + dest[1]
+            + "\t" + status + "\n");
+      }
+      logger.info("[VERIFY] report : {}", file.getAbsolutePath());
+    } catch (IOException e) {
+      logger.warn("[VERIFY] report 를 쓰지 못했습니다. {} : {}", file, e.getMessage());
+    } finally {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {  }
+      }
+    }
+    logger.info("[VERIFY] 테이블 : {} / 범위 : {} / 다른 범위 : {} / 확인 못한 범위 : {}", tables.size(), tasks.size(), mismatched, unchecked);
+    if (!badTables.isEmpty()) {
+      logger.warn("[VERIFY] 다른 테이블 : {}", badTables);
+    }
+  }
+
+  /**
+   * 대상에서도 쓸 수 있는 범위. ID 범위 뒤에 범위 밖 (ID < min, ID > max, ID IS NULL) 을 하나 더 붙인다.
+   */
+  static List<CopyChunk> keyChunks(ChunkPlanner planner, String tableName) {
+    List<CopyChunk> chunks = new ArrayList<CopyChunk>(planner.plan(tableName));
+    CopyChunk first = chunks.get(0);
+    if (first.getPredicate() != null) {
+      CopyChunk last = chunks.get(chunks.size() - 1);
+      chunks.add(new CopyChunk(tableName, chunks.size(), "(ID < ? OR ID >= ? OR ID IS NULL)", first.getLow(), last.getHigh(), 0));
+    }
+    return chunks;
+  }
+
+  /**
+   * 원본 / 대상에 모두 있는 컬럼 (원본 순서)
+   * @return 테이블명 < [ 컬럼명, 원본 타입 ] >
+   */
+  static Map<String, List<String[]>> readColumns(Connection sourceConn, String sourceSchema, Connection destConn) throws SQLException {
+    Set<String> destColumns = new HashSet<String>();
+    Map<String, List<String[]>> columns = new HashMap<String, List<String[]>>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = destConn.prepareStatement(" SELECT table_name, column_name FROM user_tab_columns ");
+      pstmt.setFetchSize(1000);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        destColumns.add(rs.getString(1) + "." + rs.getString(2));
+      }
+      rs.close();
+      pstmt.close();
+
+      pstmt = sourceConn.prepareStatement(" SELECT table_name, column_name, data_type FROM all_tab_columns "
+          + " WHERE owner = ? ORDER BY table_name, column_id ");
+      pstmt.setFetchSize(1000);
+      pstmt.setString(1, sourceSchema);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        if (!destColumns.contains(rs.getString(1) + "." + rs.getString(2))) {
+          continue;
+        }
+        List<String[]> list = columns.get(rs.getString(1));
+        if (list == null) {
+          list = new ArrayList<String[]>();
+          columns.put(rs.getString(1), list);
+        }
+        list.add(new String[] { rs.getString(2), rs.getString(3) });
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return columns;
+  }
+}
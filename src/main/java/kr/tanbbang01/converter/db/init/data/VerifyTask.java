@@ -0,0 +1,79 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 범위 하나의 원본 / 대상 행 수와 해시를 비교하는 작업
+ * 대상 Connection 은 작업자의 것을, 원본 Connection 은 원본 DataSource 에서 빌려서 쓴다.
+ * 다르면 실패가 아니라 결과에 남긴다. (조회 오류만 실패)
+ */
+class VerifyTask implements DbTask {
+  private final CopyChunk chunk;
+  private final ChunkHasher hasher;
+  private final String sourceTable;
+  private final DataSource sourceDataSource;
+  private long[] source = null;
+  private long[] dest = null;
+
+  /**
+   * @param sourceTable 원본 테이블 (스키마.테이블)
+   */
+  VerifyTask(CopyChunk chunk, ChunkHasher hasher, String sourceTable, DataSource sourceDataSource) {
+    this.chunk = chunk;
+    this.hasher = hasher;
+    this.sourceTable = sourceTable;
+    this.sourceDataSource = sourceDataSource;
+  }
+
+  @Override
+  public String getName() {
+    return chunk.toString() + " : VERIFY";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    Connection sourceConn = sourceDataSource.getConnection();
+    try {
+      long[][] result = hasher.hashBoth(sourceConn, sourceTable, conn, chunk.getTableName(), chunk);
+      synchronized (this) {
+        source = result[0];
+        dest = result[1];
+      }
+    } finally {
+      try {
+        sourceConn.close();
+      } catch (SQLException e) {  }
+    }
+    return true;
+  }
+
+  CopyChunk getChunk() {
+    return chunk;
+  }
+
+  /**
+   * @return 비교를 끝냈는가 ? (조회 오류면 false)
+   */
+  synchronized boolean isChecked() {
+    return source != null;
+  }
+
+  synchronized boolean isMatched() {
+    return source != null && source[0] == dest[0] && source[1] == dest[1];
+  }
+
+  /**
+   * @return [ 행 수, 해시 ]
+   */
+  synchronized long[] getSource() {
+    return source;
+  }
+
+  synchronized long[] getDest() {
+    return dest;
+  }
+}
@@ -0,0 +1,159 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 대상 DB 시퀀스에서 ID 를 블록 단위로 받아와서 JVM 안에서 나눠주는 할당기 (hi/lo)
+ *
+ * 시퀀스의 INCREMENT BY 가 1 보다 크면 NEXTVAL 한번으로 [NEXTVAL, NEXTVAL + INCREMENT BY) 블록을 받는다. (hi/lo 전용 시퀀스)
+ * INCREMENT BY 가 1 이면 (애플리케이션과 같이 쓰는 SEQ_<테이블>) blockSize 개의 NEXTVAL 을 한번의 쿼리로 받는다.
+ * 어느 쪽이든 받은 값은 모두 NEXTVAL 이므로 다른 세션 / 애플리케이션이 같은 시퀀스를 써도 겹치지 않는다.
+ * 블록 안에서는 잠금 없이 (AtomicInteger) 나눠주고, 블록이 떨어졌을 때만 한 쓰레드가 다음 블록을 받는다.
+ * 쓰지 않은 값은 버려진다. (시퀀스 캐시와 같다)
+ * 라이브러리로만 제공한다. 지금 복사 경로 (FirstDataInit, JdbcCopyEngine) 에서는 쓰지 않는다.
+ *
+ * <pre>
+ *   IdAllocator ids = new IdAllocator(destBds, "SEQ_USERS", 1000);
+ *   long id = ids.next();
+ * </pre>
+ */
+public class IdAllocator {
+  private static Logger logger = LoggerFactory.getLogger(IdAllocator.class);
+
+  private final DataSource dataSource;
+  private final String sequenceName;
+  private final int blockSize;
+  private final AtomicReference<Block> current = new AtomicReference<Block>(Block.EMPTY);
+  private final Object fetchLock = new Object();
+  private long increment = 0;
+  private int fetchCount = 0;
+
+  /**
+   * @param sequenceName 시퀀스 이름
+   * @param blockSize INCREMENT BY 가 1 인 시퀀스에서 한번에 받을 값 수
+   */
+  public IdAllocator(DataSource dataSource, String sequenceName, int blockSize) {
+    this.dataSource = dataSource;
+    this.sequenceName = sequenceName.toUpperCase();
+    this.blockSize = Math.max(1, blockSize);
+  }
+
+  /**
+   * @return 다음 ID (블록이 떨어졌으면 DB 에서 다음 블록을 받는다)
+   */
+  public long next() throws SQLException {
+    while (true) {
+      Block block = current.get();
+      int index = block.cursor.getAndIncrement();
+      if (index < block.size) {
+        return block.get(index);
+      }
+      synchronized (fetchLock) {
+        if (current.get() == block) {   // 다른 쓰레드가 이미 받아왔으면 그 블록을 쓴다.
+          current.set(fetch());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return DB 에서 다음 블록을 받아온 횟수
+   */
+  public int getFetchCount() {
+    synchronized (fetchLock) {
+      return fetchCount;
+    }
+  }
+
+  /**
+   * fetchLock 안에서 호출한다.
+   */
+  private Block fetch() throws SQLException {
+    Connection conn = dataSource.getConnection();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      if (increment == 0) {
+        pstmt = conn.prepareStatement(" SELECT increment_by FROM user_sequences WHERE sequence_name = ? ");
+        pstmt.setString(1, sequenceName);
+        rs = pstmt.executeQuery();
+        if (!rs.next()) {
+          throw new SQLException(sequenceName + " 시퀀스가 없습니다.");
+        }
+        increment = rs.getLong(1);
+        rs.close();
+        pstmt.close();
+        logger.debug("[ID] {} INCREMENT BY {}", sequenceName, increment);
+      }
+
+      Block block;
+      if (increment > 1) {
+        pstmt = conn.prepareStatement("SELECT " + sequenceName + ".NEXTVAL FROM dual");
+        rs = pstmt.executeQuery();
+        rs.next();
+        block = new Block(rs.getLong(1), null, (int) Math.min(increment, Integer.MAX_VALUE));
+      } else {
+        pstmt = conn.prepareStatement("SELECT " + sequenceName + ".NEXTVAL FROM dual CONNECT BY LEVEL <= ?");
+        pstmt.setInt(1, blockSize);
+        pstmt.setFetchSize(blockSize);
+        rs = pstmt.executeQuery();
+        long[] values = new long[blockSize];
+        int count = 0;
+        while (rs.next() && count < blockSize) {
+          values[count++] = rs.getLong(1);
+        }
+        if (count == 0) {
+          throw new SQLException(sequenceName + " 에서 값을 받지 못했습니다.");
+        }
+        block = new Block(0, values, count);
+      }
+      fetchCount++;
+      return block;
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+      try {
+        conn.close();
+      } catch (SQLException e) {  }
+    }
+  }
+
+  /**
+   * 받아온 ID 묶음. values 가 null 이면 [base, base + size) 연속 구간이다.
+   */
+  private static class Block {
+    static final Block EMPTY = new Block(0, null, 0);
+
+    private final long base;
+    private final long[] values;
+    private final int size;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    Block(long base, long[] values, int size) {
+      this.base = base;
+      this.values = values;
+      this.size = size;
+    }
+
+    long get(int index) {
+      return values == null ? base + index : values[index];
+    }
+  }
+}
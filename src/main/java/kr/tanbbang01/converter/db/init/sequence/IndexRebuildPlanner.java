@@ -0,0 +1,218 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 인덱스 상태 / 통계를 한번에 조회해서 재생성이 필요한 인덱스만 고른다.
+ *
+ * 재생성 대상 :
+ *  - UNUSABLE
+ *  - BLEVEL 이 maxBlevel 이상
+ *  - 리프 블록 수가 (행 수 x 키 길이) 로 계산한 예상 블록 수의 leafPercent % 이상 (minLeafBlocks 블록 이상인 인덱스만)
+ *  - 테이블스페이스 매핑에 따라 옮겨야 하는 인덱스
+ * 통계가 없는 인덱스는 UNUSABLE / 테이블스페이스 이동만 판단한다.
+ * CLUSTERING_FACTOR 는 테이블의 행 순서에 따른 값이라 재생성으로 바뀌지 않으므로 판단에 쓰지 않고 결과에만 남긴다.
+ * 파티션 / LOB / IOT / DOMAIN 인덱스는 대상이 아니다.
+ */
+class IndexRebuildPlanner {
+  private static final int ENTRY_OVERHEAD = 12;   // ROWID + 행 헤더
+  private static final double BLOCK_USABLE = 0.9; // PCTFREE 10
+
+  private final int maxBlevel;
+  private final int leafPercent;
+  private final long minLeafBlocks;
+  private final Map<String, String> tablespaceMap;
+
+  /**
+   * @param tablespaceMap 현재 테이블스페이스 -> 옮길 테이블스페이스 ("*" 는 나머지 모두)
+   */
+  IndexRebuildPlanner(int maxBlevel, int leafPercent, long minLeafBlocks, Map<String, String> tablespaceMap) {
+    this.maxBlevel = maxBlevel;
+    this.leafPercent = leafPercent;
+    this.minLeafBlocks = minLeafBlocks;
+    this.tablespaceMap = tablespaceMap;
+  }
+
+  /**
+   * @return owner 의 모든 대상 인덱스 (재생성하지 않을 인덱스는 reason 이 null)
+   */
+  List<Index> plan(Connection conn, String owner) throws SQLException {
+    StringBuilder sb = new StringBuilder();
+    sb.append(" SELECT i.index_name, i.table_name, i.status, i.blevel, i.leaf_blocks, i.clustering_factor, i.num_rows, ");
+    sb.append("        i.tablespace_name, t.blocks, ts.block_size, i.last_analyzed, ");
+    sb.append("        ( SELECT SUM(NVL(c.avg_col_len, 0)) FROM dba_ind_columns ic, dba_tab_columns c ");
+    sb.append("           WHERE ic.index_owner = i.owner AND ic.index_name = i.index_name ");
+    sb.append("             AND c.owner = ic.table_owner AND c.table_name = ic.table_name AND c.column_name = ic.column_name ), ");
+    sb.append("        i.logging, i.degree ");
+    sb.append("   FROM dba_indexes i ");
+    sb.append("   LEFT OUTER JOIN dba_tables t ON t.owner = i.table_owner AND t.table_name = i.table_name ");
+    sb.append("   LEFT OUTER JOIN dba_tablespaces ts ON ts.tablespace_name = i.tablespace_name ");
+    sb.append("  WHERE i.owner = ? ");
+    sb.append("    AND i.index_type NOT IN ('LOB', 'IOT - TOP', 'DOMAIN') ");
+    sb.append("    AND i.partitioned = 'NO' ");
+    sb.append("    AND i.temporary = 'N' ");
+    sb.append("  ORDER BY i.index_name ");
+
+    List<Index> indexes = new ArrayList<Index>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sb.toString());
+      pstmt.setString(1, owner.toUpperCase());
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        Index index = new Index(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(5), rs.getLong(6),
+            rs.getLong(7), rs.getString(8), rs.getLong(9));
+        boolean analyzed = rs.getTimestamp(11) != null;
+        long blockSize = rs.getLong(10);
+        long keyLength = rs.getLong(12);
+        if (analyzed && blockSize > 0) {
+          index.expectedLeafBlocks = (long) Math.ceil(index.numRows * (double) (keyLength + ENTRY_OVERHEAD) / (blockSize * BLOCK_USABLE));
+        }
+        index.logging = !"NO".equals(rs.getString(13));
+        index.degree = rs.getString(14);
+        index.targetTablespace = targetTablespace(index.tablespace);
+        index.reason = reason(index, analyzed);
+        indexes.add(index);
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return indexes;
+  }
+
+  private String targetTablespace(String tablespace) {
+    String target = tablespaceMap.get(tablespace);
+    if (target == null) {
+      target = tablespaceMap.get("*");
+    }
+    return target == null || target.equals(tablespace) ? null : target;
+  }
+
+  /**
+   * @return 재생성 이유, 필요 없으면 null
+   */
+  private String reason(Index index, boolean analyzed) {
+    if ("UNUSABLE".equals(index.status)) {
+      return "UNUSABLE";
+    }
+    if (index.targetTablespace != null) {
+      return "TABLESPACE " + index.tablespace + " -> " + index.targetTablespace;
+    }
+    if (!analyzed) {
+      return null;
+    }
+    if (index.blevel >= maxBlevel) {
+      return "BLEVEL " + index.blevel;
+    }
+    if (index.leafBlocks >= minLeafBlocks && index.expectedLeafBlocks > 0
+        && index.leafBlocks * 100 >= index.expectedLeafBlocks * leafPercent) {
+      return "LEAF " + index.leafBlocks + " / " + index.expectedLeafBlocks + " blocks";
+    }
+    return null;
+  }
+
+  /**
+   * 인덱스 하나의 상태 / 통계
+   */
+  static class Index {
+    private final String indexName;
+    private final String tableName;
+    private final String status;
+    private final int blevel;
+    private final long leafBlocks;
+    private final long clusteringFactor;
+    private final long numRows;
+    private final String tablespace;
+    private final long tableBlocks;
+    private long expectedLeafBlocks = 0;
+    private String targetTablespace = null;
+    private String reason = null;
+    private boolean logging = true;
+    private String degree = "1";
+
+    Index(String indexName, String tableName, String status, int blevel, long leafBlocks, long clusteringFactor, long numRows,
+          String tablespace, long tableBlocks) {
+      this.indexName = indexName;
+      this.tableName = tableName;
+      this.status = status;
+      this.blevel = blevel;
+      this.leafBlocks = leafBlocks;
+      this.clusteringFactor = clusteringFactor;
+      this.numRows = numRows;
+      this.tablespace = tablespace;
+      this.tableBlocks = tableBlocks;
+    }
+
+    String getIndexName() {
+      return indexName;
+    }
+
+    String getTableName() {
+      return tableName;
+    }
+
+    long getLeafBlocks() {
+      return leafBlocks;
+    }
+
+    long getClusteringFactor() {
+      return clusteringFactor;
+    }
+
+    long getNumRows() {
+      return numRows;
+    }
+
+    long getTableBlocks() {
+      return tableBlocks;
+    }
+
+    /**
+     * @return 옮길 테이블스페이스, 그대로 두면 null
+     */
+    String getTargetTablespace() {
+      return targetTablespace;
+    }
+
+    /**
+     * @return 재생성 이유, 재생성하지 않으면 null
+     */
+    String getReason() {
+      return reason;
+    }
+
+    /**
+     * @return 원래 LOGGING 인지 (DBA_INDEXES.LOGGING)
+     */
+    boolean isLogging() {
+      return logging;
+    }
+
+    /**
+     * @return 원래 병렬도 (DBA_INDEXES.DEGREE : 1 / n / DEFAULT)
+     */
+    String getDegree() {
+      return degree;
+    }
+
+    boolean isRebuild() {
+      return reason != null;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import kr.tanbbang01.converter.db.init.table.IndexBuildOptions;
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * 인덱스 하나를 ALTER INDEX ... REBUILD 하는 작업
+ * PARALLEL / NOLOGGING 으로 재생성했으면 그 속성만 인덱스의 원래 값으로 되돌린다.
+ */
+class IndexRebuildTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(IndexRebuildTask.class);
+
+  private final IndexRebuildPlanner.Index index;
+  private final IndexBuildOptions options;
+  private final boolean online;
+  private long elapsedMillis = -1;
+
+  IndexRebuildTask(IndexRebuildPlanner.Index index, IndexBuildOptions options, boolean online) {
+    this.index = index;
+    this.options = options;
+    this.online = online;
+  }
+
+  @Override
+  public String getName() {
+    return index.getIndexName() + " (" + index.getReason() + ") : REBUILD";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    long start = System.currentTimeMillis();
+    String sql = "ALTER INDEX " + index.getIndexName() + " REBUILD"
+        + (index.getTargetTablespace() == null ? "" : " TABLESPACE " + index.getTargetTablespace())
+        + (online ? " ONLINE" : "") + options.buildClause("");
+    update(conn, sql);
+    String restoreSql = options.restoreSql(index.getIndexName(), index.isLogging(), index.getDegree());
+    if (restoreSql != null) {
+      update(conn, restoreSql);
+    }
+    synchronized (this) {
+      elapsedMillis = System.currentTimeMillis() - start;
+    }
+    logger.info("[INDEX REBUILD] {} ({} ms)", sql, elapsedMillis);
+    return true;
+  }
+
+  private static void update(Connection conn, String sql) throws SQLException {
+    PreparedStatement pstmt = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      pstmt.executeUpdate();
+    } catch (SQLException e) {
+      logger.error("[INDEX REBUILD] Error : {}", sql);
+      throw e;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  IndexRebuildPlanner.Index getIndex() {
+    return index;
+  }
+
+  /**
+   * @return 재생성에 걸린 시간, 실패했으면 -1
+   */
+  synchronized long getElapsedMillis() {
+    return elapsedMillis;
+  }
+}
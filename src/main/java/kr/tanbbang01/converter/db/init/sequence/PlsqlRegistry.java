@@ -0,0 +1,295 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import kr.tanbbang01.converter.util.Fingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 리소스 파일 (plsql/units.list 에 적힌 순서) 로 관리하는 PL/SQL 단위 목록
+ *
+ * 단위마다 CREATE OR REPLACE 를 뺀 소스의 해시 (공백 정규화) 를 USER_SOURCE 의 소스와 한번의 쿼리로 비교해서
+ * 다르거나 없거나 INVALID 인 단위만 배포한다. 바뀐 단위는 batchUnits 개씩 익명 블록 하나로 보내고 (왕복 한번),
+ * 컴파일 오류는 USER_ERRORS 로 확인한다. 바뀐 것이 없으면 조회 한번으로 끝난다.
+ * 소스의 ${키} 는 variables 의 값으로 바뀐다.
+ */
+class PlsqlRegistry {
+  private static Logger logger = LoggerFactory.getLogger(PlsqlRegistry.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final Pattern HEADER = Pattern.compile(
+      "^\\s*CREATE\\s+OR\\s+REPLACE\\s+(?:(?:NON)?EDITIONABLE\\s+)?((PACKAGE\\s+BODY|PACKAGE|FUNCTION|PROCEDURE|TYPE\\s+BODY|TYPE|TRIGGER)\\s+\"?(\\w+)\"?.*)$",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  private static final int ORA_SUCCESS_WITH_COMPILATION_ERROR = -24344;
+
+  private final List<Unit> units;
+
+  private PlsqlRegistry(List<Unit> units) {
+    this.units = units;
+  }
+
+  /**
+   * @param directory 리소스 디렉토리 (units.list 와 소스 파일이 있는 곳)
+   */
+  static PlsqlRegistry load(String directory, Map<String, String> variables) throws IOException {
+    List<Unit> units = new ArrayList<Unit>();
+    for (String line : read(directory + "/units.list").split("\n")) {
+      String file = line.trim();
+      if (file.length() == 0 || file.startsWith("#")) {
+        continue;
+      }
+      String source = read(directory + "/" + file).trim();
+      for (Map.Entry<String, String> variable : variables.entrySet()) {
+        source = source.replace("${" + variable.getKey() + "}", variable.getValue());
+      }
+      Matcher matcher = HEADER.matcher(source);
+      if (!matcher.matches()) {
+        throw new IOException(file + " : CREATE OR REPLACE 로 시작하지 않습니다.");
+      }
+      String type = matcher.group(2).toUpperCase().replaceAll("\\s+", " ");
+      units.add(new Unit(file, matcher.group(3).toUpperCase(), type, source, hash(matcher.group(1))));
+    }
+    return new PlsqlRegistry(units);
+  }
+
+  private static String read(String resource) throws IOException {
+    InputStream in = PlsqlRegistry.class.getClassLoader().getResourceAsStream(resource);
+    if (in == null) {
+      throw new IOException(resource + " 리소스가 없습니다.");
+    }
+    StringBuilder sb = new StringBuilder();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF8));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        sb.append(line).append('\n');
+      }
+    } finally {
+      reader.close();
+    }
+    return sb.toString();
+  }
+
+  /**
+   * 공백 차이 (줄바꿈 / 들여쓰기) 는 무시한다.
+   */
+  private static String hash(String body) {
+    return new Fingerprint().add(body.trim().replaceAll("\\s+", " ")).toString();
+  }
+
+  List<Unit> getUnits() {
+    return units;
+  }
+
+  /**
+   * @return 배포가 필요한 단위 (소스가 다르거나, 없거나, INVALID)
+   */
+  List<Unit> changed(Connection conn) throws SQLException {
+    if (units.isEmpty()) {
+      return new ArrayList<Unit>();
+    }
+    Map<String, StringBuilder> sources = new HashMap<String, StringBuilder>();
+    Map<String, String> status = new HashMap<String, String>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(" SELECT o.object_name, o.object_type, o.status, s.text FROM user_objects o "
+          + "  LEFT OUTER JOIN user_source s ON s.name = o.object_name AND s.type = o.object_type "
+          + " WHERE o.object_name IN (" + placeholders(units.size()) + ") "
+          + " ORDER BY o.object_name, o.object_type, s.line ");
+      for (int i = 0; i < units.size(); i++) {
+        pstmt.setString(i + 1, units.get(i).getName());
+      }
+      pstmt.setFetchSize(1000);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        String key = rs.getString(2) + " " + rs.getString(1);
+        StringBuilder sb = sources.get(key);
+        if (sb == null) {
+          sb = new StringBuilder();
+          sources.put(key, sb);
+          status.put(key, rs.getString(3));
+        }
+        if (rs.getString(4) != null) {
+          sb.append(rs.getString(4));
+        }
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+
+    List<Unit> changed = new ArrayList<Unit>();
+    for (Unit unit : units) {
+      String key = unit.getType() + " " + unit.getName();
+      if (!sources.containsKey(key)) {
+        logger.debug("[PLSQL] {} - 없음", key);
+        changed.add(unit);
+      } else if (!"VALID".equals(status.get(key))) {
+        logger.debug("[PLSQL] {} - {}", key, status.get(key));
+        changed.add(unit);
+      } else if (!unit.getHash().equals(hash(sources.get(key).toString()))) {
+        logger.debug("[PLSQL] {} - 소스 변경", key);
+        changed.add(unit);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * 단위들을 batchUnits 개씩 익명 블록 하나로 배포한다.
+   * 컴파일 오류 (ORA-24344) 는 블록을 멈추지 않으므로 끝난 뒤 {@link #errors} 로 확인한다.
+   */
+  static void deploy(Connection conn, List<Unit> units, int batchUnits) throws SQLException {
+    batchUnits = Math.max(1, batchUnits);
+    for (int from = 0; from < units.size(); from += batchUnits) {
+      List<Unit> batch = units.subList(from, Math.min(from + batchUnits, units.size()));
+      StringBuilder sb = new StringBuilder("BEGIN\n");
+      for (int i = 0; i < batch.size(); i++) {
+        sb.append("  BEGIN EXECUTE IMMEDIATE ?; EXCEPTION WHEN OTHERS THEN IF SQLCODE <> ")
+            .append(ORA_SUCCESS_WITH_COMPILATION_ERROR).append(" THEN RAISE; END IF; END;\n");
+      }
+      sb.append("END;");
+      PreparedStatement pstmt = null;
+      try {
+        pstmt = conn.prepareStatement(sb.toString());
+        for (int i = 0; i < batch.size(); i++) {
+          pstmt.setString(i + 1, batch.get(i).getSource());
+        }
+        pstmt.execute();
+        for (Unit unit : batch) {
+          logger.info("[PLSQL] {} {} 배포 ({})", unit.getType(), unit.getName(), unit.getFile());
+        }
+      } catch (SQLException e) {
+        logger.error("[PLSQL] 배포 실패 : {}", batch);
+        throw e;
+      } finally {
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return 단위별 컴파일 오류 ("타입 이름" < "line:position text" >), 오류가 없으면 비어 있다.
+   */
+  static Map<String, List<String>> errors(Connection conn, List<Unit> units) throws SQLException {
+    Map<String, List<String>> errors = new LinkedHashMap<String, List<String>>();
+    if (units.isEmpty()) {
+      return errors;
+    }
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(" SELECT name, type, line, position, text FROM user_errors "
+          + " WHERE name IN (" + placeholders(units.size()) + ") ORDER BY name, type, sequence ");
+      for (int i = 0; i < units.size(); i++) {
+        pstmt.setString(i + 1, units.get(i).getName());
+      }
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        String key = rs.getString(2) + " " + rs.getString(1);
+        List<String> list = errors.get(key);
+        if (list == null) {
+          list = new ArrayList<String>();
+          errors.put(key, list);
+        }
+        list.add(rs.getInt(3) + ":" + rs.getInt(4) + " " + rs.getString(5).trim());
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return errors;
+  }
+
+  private static String placeholders(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append(i == 0 ? "?" : ", ?");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * PL/SQL 단위 하나 (리소스 파일 하나)
+   */
+  static class Unit {
+    private final String file;
+    private final String name;
+    private final String type;
+    private final String source;
+    private final String hash;
+
+    Unit(String file, String name, String type, String source, String hash) {
+      this.file = file;
+      this.name = name;
+      this.type = type;
+      this.source = source;
+      this.hash = hash;
+    }
+
+    String getFile() {
+      return file;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getType() {
+      return type;
+    }
+
+    /**
+     * @return CREATE OR REPLACE 로 시작하는 전체 소스 (변수 치환 후)
+     */
+    String getSource() {
+      return source;
+    }
+
+    String getHash() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return type + " " + name;
+    }
+  }
+}
@@ -1,15 +1,26 @@
 package kr.tanbbang01.converter.db.init.sequence;
 
 import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.init.table.IndexBuildOptions;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Fingerprint;
 import kr.tanbbang01.converter.util.Resourcer;
+import kr.tanbbang01.converter.util.RunState;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,13 +31,18 @@ public class SeqAndFuncInit {
   private static Logger logger = LoggerFactory.getLogger(SeqAndFuncInit.class);
 
   private Resourcer config = null;
+  private RunState runState = null;
   private Connection destConn = null;
+  private BasicDataSource destBds = null;
   private String owner = null;
+  private int seqCache = 100;
+  private PlsqlRegistry registry = null;
 
   public SeqAndFuncInit(String configFile) throws SQLException {
     this.config = Resourcer.getInstance(configFile);
+    this.runState = RunState.getInstance(configFile);
 
-    BasicDataSource destBds = new BasicDataSource();
+    destBds = new BasicDataSource();
     destBds.setDriverClassName(config.getString("DEST_JDBC"));
     destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
     destBds.setUsername(config.getString("DEST_USER"));
@@ -37,6 +53,15 @@ public class SeqAndFuncInit {
     destConn = destBds.getConnection();
 
     owner = config.getString("DEST_USER");
+    seqCache = config.getInt("SEQ_CACHE", seqCache);
+
+    Map<String, String> variables = new HashMap<String, String>();
+    variables.put("DB_LINK_NAME", config.getString("DB_LINK_NAME", "inek"));
+    try {
+      registry = PlsqlRegistry.load("plsql", variables);
+    } catch (IOException e) {
+      throw new IllegalStateException("PL/SQL 리소스를 읽지 못했습니다. " + e.getMessage(), e);
+    }
   }
 
   private void connClose() {
@@ -52,245 +77,142 @@ public class SeqAndFuncInit {
     Stopwatch stopwatch = new Stopwatch();
     stopwatch.start();
 
-    rebuildIndex();
-    createFunction();
-    createSequence();
+    String inputs = inputsFingerprint();
+    if (runState.isUpToDate("seqFunc", inputs, catalogFingerprint())) {   // 함수 소스 / 대상 DB 가 마지막 성공 실행과 같음
+      logger.info("[RUN STATE] seqFunc - 변경 없음. Passing... ({} ms)", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+      connClose();
+      return;
+    }
+
+    boolean done = rebuildIndex();
+    done &= createFunction();
+    done &= createSequence();
+    if (done) {
+      runState.markDone("seqFunc", inputs, catalogFingerprint());
+    } else {
+      runState.markFailed("seqFunc");
+    }
     connClose();
 
     stopwatch.stop(); // optional
     logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS)); //실행 시\
   }
 
-  private void rebuildIndex() {
-    PreparedStatement pstmt = null;
-    PreparedStatement resultPstmt = null;
-    ResultSet rs = null;
-
-    StringBuilder sb = new StringBuilder();
-    //sb.append(" SELECT 'ALTER INDEX '||index_name||' REBUILD TABLESPACE solars8dbs_idx' FROM dba_indexes ") ;
-    sb.append(" SELECT 'ALTER INDEX '||index_name||' REBUILD TABLESPACE USERS' FROM dba_indexes ") ;
-    sb.append("  WHERE owner = ? ");
-    sb.append("    AND index_type <> 'LOB' ");
-    sb.append("   ORDER BY index_name ");
-
-    String logSql = "";
-    try{
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.setString(1, owner.toUpperCase());
-      rs = pstmt.executeQuery();
-
-      while (rs.next()) {
-        String alterSql = rs.getString(1);
-        logSql = alterSql;
-        logger.info("[INDEX REBUILD] SQL : {} ", alterSql);
-        resultPstmt = destConn.prepareStatement(alterSql);
-        resultPstmt.executeUpdate();
-        resultPstmt.close();
-      }
-
+  /**
+   * 재생성이 필요한 인덱스만 ({@link IndexRebuildPlanner}) INDEX_WORKER_COUNT 개의 Connection 으로 동시에 재생성한다.
+   * INDEX_REBUILD_PARALLEL_BLOCKS 블록 이상인 인덱스는 INDEX_PARALLEL_DEGREE 로 재생성하며,
+   * INDEX_TABLESPACE_MAP (현재:옮길, 쉼표 구분, * 는 나머지 모두) 에 따라 테이블스페이스를 옮긴다.
+   * 건너뛴 인덱스의 리프 블록 수와 재생성 속도로 전체 재생성 대비 줄인 시간을 추정해서 남긴다.
+   */
+  private boolean rebuildIndex() {
+    IndexRebuildPlanner planner = new IndexRebuildPlanner(config.getInt("INDEX_REBUILD_MAX_BLEVEL", 4),
+        config.getInt("INDEX_REBUILD_LEAF_PERCENT", 200), config.getInt("INDEX_REBUILD_MIN_BLOCKS", 1000), tablespaceMap());
+    long parallelBlocks = config.getInt("INDEX_REBUILD_PARALLEL_BLOCKS", 10000);
+    boolean nologging = config.getBoolean("INDEX_NOLOGGING", true);
+    IndexBuildOptions parallel = new IndexBuildOptions(config.getInt("INDEX_PARALLEL_DEGREE", 4), nologging);
+    IndexBuildOptions serial = new IndexBuildOptions(1, nologging);
+    boolean online = config.getBoolean("INDEX_REBUILD_ONLINE", false);
+
+    List<IndexRebuildPlanner.Index> indexes;
+    try {
+      indexes = planner.plan(destConn, owner);
     } catch (SQLException e) {
-      logger.error("[INDEX REBUILD] Error : {}", logSql);
+      logger.error("[INDEX REBUILD] Exception : {}", e.getMessage());
       e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try{
-          pstmt.close();
-        } catch (SQLException e) { }
+      return false;
+    }
+
+    TaskScheduler scheduler = new TaskScheduler("INDEX REBUILD", destBds,
+        config.getInt("INDEX_WORKER_COUNT", config.getInt("DDL_WORKER_COUNT", 4)));
+    List<IndexRebuildTask> tasks = new ArrayList<IndexRebuildTask>();
+    long skippedBlocks = 0;
+    for (IndexRebuildPlanner.Index index : indexes) {
+      if (!index.isRebuild()) {
+        skippedBlocks += index.getLeafBlocks();
+        logger.debug("[INDEX REBUILD] {} - Passing ... (leaf {} blocks, CLUSTERING_FACTOR {} / rows {} / table {} blocks)",
+            index.getIndexName(), index.getLeafBlocks(), index.getClusteringFactor(), index.getNumRows(), index.getTableBlocks());
+        continue;
       }
-      if (resultPstmt != null) {
-        try{
-          resultPstmt.close();
-        } catch (SQLException e) { }
+      IndexRebuildTask task = new IndexRebuildTask(index, index.getLeafBlocks() >= parallelBlocks ? parallel : serial, online);
+      tasks.add(task);
+      scheduler.add(task).weight(index.getLeafBlocks());
+    }
+
+    TaskReport report = scheduler.run();
+    report.log(logger);
+
+    long rebuiltBlocks = 0;
+    long rebuiltMillis = 0;
+    for (IndexRebuildTask task : tasks) {
+      if (task.getElapsedMillis() >= 0) {
+        rebuiltBlocks += task.getIndex().getLeafBlocks();
+        rebuiltMillis += task.getElapsedMillis();
       }
     }
+    logger.info("[INDEX REBUILD] 인덱스 : {} / 재생성 : {} / 건너뜀 : {} ({} leaf blocks)", indexes.size(), tasks.size(),
+        indexes.size() - tasks.size(), skippedBlocks);
+    if (rebuiltBlocks > 0) {
+      logger.info("[INDEX REBUILD] 전체 재생성 대비 약 {} ms 절약 (재생성 {} blocks / {} ms 기준, 작업자 합계)",
+          skippedBlocks * rebuiltMillis / rebuiltBlocks, rebuiltBlocks, rebuiltMillis);
+    }
+    return report.isAllDone();
   }
 
   /**
-   * 변환 시 필요한 FUNCTION 이관
+   * @return INDEX_TABLESPACE_MAP 현재 테이블스페이스 -> 옮길 테이블스페이스
    */
-  private void createFunction() {
-    PreparedStatement pstmt = null;
-
-    try{
-      StringBuilder sb = new StringBuilder();
-      /*======    FNC_LONG2CHAR   =====*/
-      sb.append(" CREATE OR REPLACE FUNCTION fnc_long2char ( ");
-      sb.append("   ori_rowid    ROWID, ");
-      sb.append("   ori_column   VARCHAR2, ");
-      sb.append("   ori_table    VARCHAR2 ");
-      sb.append("   )  ");
-      sb.append("   RETURN VARCHAR   ");
-      sb.append("  AS ");
-      sb.append("   longcont   VARCHAR2 (32767); ");
-      sb.append("   sqlquery   VARCHAR2 (2000); ");
-      sb.append("  BEGIN  ") ;
-      sb.append("    sqlquery := 'SELECT ' || ori_column || ' FROM ' || ori_table || ' WHERE rowid = ' || CHR (39) || ori_rowid || CHR (39);");
-      sb.append(" EXECUTE IMMEDIATE sqlquery INTO longcont; ");
-      sb.append(" longcont := SUBSTR (longcont, 1, 1000); ");
-      sb.append(" RETURN longcont; ");
-      sb.append(" END fnc_long2char; ");
-
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.executeUpdate();
-      pstmt.clearParameters();
-
-      StringBuilder isDateStr = new StringBuilder();
-      isDateStr.append(" CREATE OR REPLACE FUNCTION is_date(v_str_date IN char, V_FORMAT IN VARCHAR2 DEFAULT 'YYYYMMDD' ) ");
-      isDateStr.append(" RETURN NUMBER  ");
-      isDateStr.append(" IS  ");
-      isDateStr.append("     V_DATE DATE; ");
-      isDateStr.append(" BEGIN ");
-      isDateStr.append("   IF TRIM(v_str_date) IS NOT NULL OR LENGTH(v_str_date) > 0 THEN ");
-      isDateStr.append("      V_DATE := TO_DATE(v_str_date); ");
-      isDateStr.append("   ELSE ");
-      isDateStr.append("      RETURN 0; ");
-      isDateStr.append("   END IF; ");
-      isDateStr.append(" RETURN 1; ");
-      isDateStr.append(" EXCEPTION ");
-      isDateStr.append("   WHEN OTHERS THEN RETURN 0; ");
-      isDateStr.append(" END is_date; ");
-
-      pstmt = destConn.prepareStatement(isDateStr.toString());
-      pstmt.executeUpdate();
-      pstmt.clearParameters();
-
-      StringBuilder isNumStr = new StringBuilder();
-      isNumStr.append(" CREATE OR REPLACE FUNCTION is_num (v_str_num IN VARCHAR2)  RETURN NUMBER ");
-      isNumStr.append(" IS  v_num   NUMBER; ");
-      isNumStr.append(" BEGIN   ");
-      isNumStr.append("   IF TRIM(v_str_num) IS NOT NULL AND LENGTH(v_str_num) > 0 AND REGEXP_INSTR(v_str_num, '[^0-9]') = 0 THEN ");
-      isNumStr.append("     v_num := v_str_num + 0; ");
-      isNumStr.append("   ELSE ");
-      isNumStr.append("     RETURN 0; ");
-      isNumStr.append("   END IF; ");
-      isNumStr.append(" RETURN 1;  ");
-      isNumStr.append(" EXCEPTION WHEN OTHERS ");
-      isNumStr.append(" THEN RETURN 0; ");
-      isNumStr.append(" END  is_num; ");
-
-      pstmt = destConn.prepareStatement(isNumStr.toString());
-      pstmt.executeUpdate();
-      pstmt.clearParameters();
-
-      StringBuilder uuidStr = new StringBuilder();
-      uuidStr.append(" CREATE OR REPLACE FUNCTION random_uuid return VARCHAR2 is    v_uuid VARCHAR2(40); ");
-      uuidStr.append("  BEGIN  ");
-      uuidStr.append("  SELECT lower(regexp_replace(rawtohex(sys_guid()), '([A-F0-9]{8})([A-F0-9]{4})([A-F0-9]{4})([A-F0-9]{4})([A-F0-9]{12})', '\\1-\\2-\\3-\\4-\\5'))");
-      uuidStr.append("   INTO v_uuid    FROM dual; ");
-      uuidStr.append("  RETURN v_uuid; ");
-      uuidStr.append("  END random_uuid; ");
-
-      pstmt = destConn.prepareStatement(uuidStr.toString());
-      pstmt.executeUpdate();
-      pstmt.clearParameters();
-
-      StringBuilder columnStr = new StringBuilder();
-      columnStr.append(" CREATE OR REPLACE FUNCTION  get_insert_table (   p_table_name    VARCHAR2 ) ");
-      columnStr.append(" RETURN VARCHAR2 ");
-      columnStr.append("  IS ");
-      columnStr.append("    v_result   VARCHAR2 (32767); ");
-      columnStr.append("    v_column_list   VARCHAR2 (32767); ");
-      columnStr.append("    CURSOR curdata ");
-      columnStr.append("    IS   ");
-      columnStr.append("      SELECT column_name  ");
-      columnStr.append("        FROM cols  ");
-      columnStr.append("       WHERE table_name = p_table_name ");
-      columnStr.append("       ORDER BY column_name; ");
-      columnStr.append(" BEGIN  ");
-      columnStr.append("      v_column_list := '';  ");
-      columnStr.append("      OPEN curdata;  ");
-      columnStr.append("      LOOP  ");
-      columnStr.append("        FETCH curdata  ");
-      columnStr.append("        INTO V_DATA ; ");
-      columnStr.append("        EXIT WHEN curdata%NOTFOUND ; ");
-      columnStr.append("        v_column_list := v_column_list || ',' || V_DATA; ");
-      columnStr.append("      END LOOP;  ");
-      columnStr.append("      CLOSE curdata; ");
-      columnStr.append("  v_column_list := substr(v_column_list, 2, length(v_column_list)); ");
-      columnStr.append("  v_result := 'INSERT INTO '||p_table_name|| '(' || v_column_list || ')' || ");
-      columnStr.append("  ' SELECT '|| v_column_list || ' FROM ' || p_table_name ||'@inek'  ; ");
-      columnStr.append("  return v_result; ");
-      columnStr.append("END get_insert_table; ");
-
-      pstmt = destConn.prepareStatement(uuidStr.toString());
-      pstmt.executeUpdate();
-      pstmt.close();
-
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try{
-          pstmt.close();
-        }catch(SQLException e){        }
-
+  private Map<String, String> tablespaceMap() {
+    Map<String, String> map = new HashMap<String, String>();
+    for (String entry : config.getArrayList("INDEX_TABLESPACE_MAP", "", ",")) {
+      String[] pair = entry.trim().toUpperCase().split("\\s*:\\s*");
+      if (pair.length == 2 && pair[0].length() > 0 && pair[1].length() > 0) {
+        map.put(pair[0], pair[1]);
+      } else if (entry.trim().length() > 0) {
+        logger.warn("[INDEX REBUILD] INDEX_TABLESPACE_MAP 형식 오류 : {}", entry);
       }
     }
+    return map;
   }
 
   /**
-   * 해당 Sequence 가 존재하는지 여부를 체크
-   * @param sequenceName
-   * @return
+   * 변환 시 필요한 FUNCTION 이관
+   * plsql/units.list 의 단위 중 대상 DB 와 소스가 다른 것만 PLSQL_BATCH_UNITS 개씩 묶어서 배포하고, 컴파일 오류를 확인한다.
+   * fnc_long2char 는 LONG 을 1000 자에서 자르므로 조회용으로만 남긴다. 데이터 복사는 JdbcCopyEngine 이 LONG / LOB 을 스트림으로 옮긴다.
    */
-  private boolean isExistsSequence(String sequenceName) {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    Boolean result = true;
-
-    StringBuilder sb = new StringBuilder();
-    sb.append("  SELECT count(1) ");
-    sb.append("   FROM all_objects ");
-    sb.append("   WHERE owner = ? ");
-    sb.append("     AND object_type = 'SEQUENCE' ");
-    sb.append("     AND object_name = ? ");
-
-    try{
-      int existsCnt = 1;
-
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.setString(1, owner.toUpperCase());
-      pstmt.setString(2, sequenceName.toUpperCase());
-      rs = pstmt.executeQuery();
-
-      if (rs.next()) {
-        existsCnt = rs.getInt(1);
+  private boolean createFunction() {
+    try {
+      List<PlsqlRegistry.Unit> changed = registry.changed(destConn);
+      if (changed.isEmpty()) {
+        logger.info("[PLSQL] {} 개 단위 변경 없음. Passing ...", registry.getUnits().size());
+        return true;
       }
-
-      if (existsCnt == 0) {
-        result = false;
+      PlsqlRegistry.deploy(destConn, changed, config.getInt("PLSQL_BATCH_UNITS", 20));
+      Map<String, List<String>> errors = PlsqlRegistry.errors(destConn, changed);
+      for (Map.Entry<String, List<String>> error : errors.entrySet()) {
+        logger.error("[PLSQL] {} 컴파일 오류 : {}", error.getKey(), error.getValue());
       }
-
+      logger.info("[PLSQL] 단위 : {} / 배포 : {} / 컴파일 오류 : {}", registry.getUnits().size(), changed.size(), errors.size());
+      return errors.isEmpty();
     } catch (SQLException e) {
+      logger.error("[PLSQL] Exception : {}", e.getMessage());
       e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try {
-          pstmt.close();
-        } catch(SQLException e) {  }
-
-      }
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch(SQLException e) {  }
-
-      }
+      return false;
     }
-
-    return result;
   }
 
   /**
    * 초기 Sequence 생성
+   * START WITH 1 로 만들고, 데이터 적재 후 reseed ({@link SequenceReseedInit}) 에서 MAX(ID) + 1 로 맞춘다.
+   * NEXTVAL 마다 딕셔너리를 갱신하지 않도록 SEQ_CACHE 개씩 캐시한다. (1 이하면 NOCACHE)
    */
-  private void createSequence() {
+  private boolean createSequence() {
     PreparedStatement pstmt = null;
     ResultSet rs = null;
+    boolean result = false;
 
     StringBuilder sb = new StringBuilder();
     sb.append("  SELECT 'CREATE SEQUENCE SEQ_' ");
-    sb.append("   || table_name || ' START WITH 1' || ' MAXVALUE 999999999999999999999999999 MINVALUE 1 NOCYCLE NOCACHE NOORDER '");
+    sb.append("   || table_name || ' START WITH 1' || ' MAXVALUE 999999999999999999999999999 MINVALUE 1 NOCYCLE " + cacheClause(seqCache) + " NOORDER '");
     sb.append("  FROM cols ");
     sb.append("  WHERE column_name = 'ID' ");
     sb.append("    AND table_name NOT IN ( SELECT table_name ");
@@ -307,6 +229,8 @@ public class SeqAndFuncInit {
 
     String logSql = "";
     try {
+      CatalogSnapshot catalog = CatalogSnapshot.load(destConn, owner);   // 시퀀스 존재 여부는 한번에 조회
+
       pstmt = destConn.prepareStatement(sb.toString());
       pstmt.setString(1, owner.toUpperCase());
       pstmt.setString(2, owner.toUpperCase());
@@ -317,17 +241,22 @@ public class SeqAndFuncInit {
         String seqSql = rs.getString(1);
         logSql = seqSql;
         String seqName = seqSql.split(" ")[2];
-        boolean isExists = isExistsSequence(seqName);
+        boolean isExists = catalog.hasSequence(seqName);
         if (!isExists) {
-          pstmt = destConn.prepareStatement(seqSql);
-          pstmt.executeUpdate();
-          pstmt.close();
+          PreparedStatement seqPstmt = destConn.prepareStatement(seqSql);
+          try {
+            seqPstmt.executeUpdate();
+          } finally {
+            seqPstmt.close();
+          }
+          catalog.addSequence(seqName);
 
           logger.debug("[SEQ] - [ {} ] ", seqSql);
         } else {
           logger.info("[SEQ] {} is Exists. Passing ... ", seqName);
         }
       }
+      result = true;
     } catch (SQLException e) {
       logger.error("[SEQ] Error : [ {} ]", logSql);
       e.printStackTrace();
@@ -343,5 +272,40 @@ public class SeqAndFuncInit {
         } catch (SQLException e) {  }
       }
     }
+    return result;
+  }
+
+  /**
+   * @return CACHE n, 1 이하면 NOCACHE (CACHE 는 2 이상이어야 한다)
+   */
+  static String cacheClause(int cache) {
+    return cache <= 1 ? "NOCACHE" : "CACHE " + cache;
+  }
+
+  /**
+   * seqFunc 단계의 입력 해시 (PL/SQL 단위 해시, owner, SEQ_CACHE, 인덱스 재생성 기준)
+   */
+  private String inputsFingerprint() {
+    Fingerprint fingerprint = new Fingerprint().add(owner).add(seqCache)
+        .add(config.getInt("INDEX_REBUILD_MAX_BLEVEL", 4))
+        .add(config.getInt("INDEX_REBUILD_LEAF_PERCENT", 200))
+        .add(config.getInt("INDEX_REBUILD_MIN_BLOCKS", 1000))
+        .add(config.getString("INDEX_TABLESPACE_MAP", ""));
+    for (PlsqlRegistry.Unit unit : registry.getUnits()) {
+      fingerprint.add(unit.getHash());
+    }
+    return fingerprint.toString();
+  }
+
+  /**
+   * @return 대상 DB 카탈로그 지문, 조회하지 못하면 null
+   */
+  private String catalogFingerprint() {
+    try {
+      return CatalogSnapshot.fingerprint(destConn, owner);
+    } catch (SQLException e) {
+      logger.warn("[RUN STATE] Catalog Fingerprint Exception : {}", e.getMessage());
+      return null;
+    }
   }
-}
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskResult;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Resourcer;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 데이터 적재 후 SEQ_<테이블> 시퀀스를 테이블의 MAX(ID) + 1 로 맞춘다.
+ *
+ * seqFunc 는 START WITH 1 로 만들기 때문에 적재된 ID 와 겹치지 않도록 data / import 이후에 실행한다. (애플리케이션 전환 전)
+ * 테이블별 MAX(ID) 는 SEQ_WORKER_COUNT 개의 Connection 으로 큰 테이블부터 동시에 구한다.
+ * 뒤처진 시퀀스는 당기고, 캐시 범위보다 앞선 시퀀스와 테이블 / ID 컬럼이 없는 시퀀스는 로그에 남긴다.
+ */
+public class SequenceReseedInit {
+  private static Logger logger = LoggerFactory.getLogger(SequenceReseedInit.class);
+
+  private Resourcer config = null;
+  private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private int workerCount = 4;
+  private int seqCache = 100;
+
+  public SequenceReseedInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    workerCount = config.getInt("SEQ_WORKER_COUNT", workerCount);
+    seqCache = config.getInt("SEQ_CACHE", seqCache);
+  }
+
+  private void connClose() {
+    try{
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    try {
+      logger.info("==== Sequence Reseed Start. ====");
+      reseed();
+      logger.info("==== Sequence Reseed End. ====");
+    } catch (SQLException e) {
+      logger.error("[RESEED] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  private void reseed() throws SQLException {
+    StringBuilder sb = new StringBuilder();
+    sb.append(" SELECT s.sequence_name, s.last_number, s.cache_size, s.increment_by, c.table_name, NVL(t.num_rows, 0) ");
+    sb.append("   FROM user_sequences s ");
+    sb.append("   LEFT OUTER JOIN user_tab_columns c ");
+    sb.append("     ON c.table_name = SUBSTR(s.sequence_name, 5) AND c.column_name = 'ID' AND c.data_type = 'NUMBER' ");
+    sb.append("   LEFT OUTER JOIN user_tables t ON t.table_name = c.table_name ");
+    sb.append("  WHERE s.sequence_name LIKE 'SEQ\\_%' ESCAPE '\\' ");
+    sb.append("  ORDER BY s.sequence_name ");
+
+    TaskScheduler scheduler = new TaskScheduler("RESEED", destBds, workerCount);
+    List<SequenceReseedTask> tasks = new ArrayList<SequenceReseedTask>();
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = destConn.prepareStatement(sb.toString());
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        SequenceReseedTask task = new SequenceReseedTask(rs.getString(1), rs.getString(5), rs.getLong(2), rs.getLong(3),
+            rs.getLong(4), seqCache);
+        tasks.add(task);
+        scheduler.add(task).weight(rs.getLong(6));
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+
+    TaskReport report = scheduler.run();
+    report.log(logger);
+
+    int ok = 0;
+    int reseeded = 0;
+    int ahead = 0;
+    int noTable = 0;
+    for (SequenceReseedTask task : tasks) {
+      SequenceReseedTask.Status status = task.getStatus();
+      if (status == SequenceReseedTask.Status.OK) {
+        ok++;
+      } else if (status == SequenceReseedTask.Status.RESEEDED) {
+        reseeded++;
+        logger.warn("[RESEED] {} 뒤처짐 : {} -> {} (MAX(ID) {})", task.getSequenceName(), task.getBefore(), task.getMaxId() + 1,
+            task.getMaxId());
+      } else if (status == SequenceReseedTask.Status.AHEAD) {
+        ahead++;
+        logger.info("[RESEED] {} 앞섬 : LAST_NUMBER {} / MAX(ID) {}", task.getSequenceName(), task.getBefore(), task.getMaxId());
+      } else if (status == SequenceReseedTask.Status.NO_TABLE) {
+        noTable++;
+        logger.warn("[RESEED] {} - 테이블 또는 NUMBER 타입 ID 컬럼이 없습니다.", task.getSequenceName());
+      }
+    }
+    logger.info("[RESEED] 시퀀스 : {} / 정상 : {} / 당김 : {} / 앞섬 : {} / 테이블 없음 : {} / 실패 : {}", tasks.size(), ok, reseeded,
+        ahead, noTable, report.count(TaskResult.Status.FAIL));
+  }
+}
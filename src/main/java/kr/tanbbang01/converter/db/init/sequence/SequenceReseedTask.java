@@ -0,0 +1,154 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 시퀀스 하나를 테이블의 MAX(ID) + 1 이후로 맞추는 작업
+ *
+ * 다음 값이 MAX(ID) 이하 (뒤처짐) 면 INCREMENT BY 를 잠시 차이만큼 바꾸고 NEXTVAL 을 한번 호출해서 당긴다. (11g 에서도 되는 방법)
+ * LAST_NUMBER 가 캐시 범위보다 더 앞서 있으면 (앞섬) 값은 건드리지 않고 결과에만 남긴다.
+ * 캐시 크기가 SEQ_CACHE 와 다르면 같이 바꾼다.
+ */
+class SequenceReseedTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(SequenceReseedTask.class);
+
+  enum Status { OK, RESEEDED, AHEAD, NO_TABLE }
+
+  private final String sequenceName;
+  private final String tableName;
+  private final long lastNumber;
+  private final long cacheSize;
+  private final long incrementBy;
+  private final int cache;
+  private Status status = null;
+  private long maxId = 0;
+  private long before = 0;
+
+  /**
+   * @param tableName ID 컬럼 (NUMBER) 이 있는 테이블, 없으면 null
+   * @param lastNumber USER_SEQUENCES.LAST_NUMBER
+   * @param cacheSize USER_SEQUENCES.CACHE_SIZE
+   * @param cache 바꿀 캐시 크기 (SEQ_CACHE)
+   */
+  SequenceReseedTask(String sequenceName, String tableName, long lastNumber, long cacheSize, long incrementBy, int cache) {
+    this.sequenceName = sequenceName;
+    this.tableName = tableName;
+    this.lastNumber = lastNumber;
+    this.cacheSize = cacheSize;
+    this.incrementBy = incrementBy;
+    this.cache = cache;
+  }
+
+  @Override
+  public String getName() {
+    return sequenceName + " : RESEED";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    if (tableName == null) {
+      finish(Status.NO_TABLE, 0, lastNumber);
+      return true;
+    }
+    long max = queryLong(conn, "SELECT NVL(MAX(ID), 0) FROM " + tableName);
+    long target = max + 1;
+    boolean changeCache = cacheSize != (cache <= 1 ? 0 : cache);
+
+    if (lastNumber > target + Math.max(1, cacheSize) * incrementBy) {
+      if (changeCache) {
+        update(conn, "ALTER SEQUENCE " + sequenceName + " " + SeqAndFuncInit.cacheClause(cache));
+      }
+      finish(Status.AHEAD, max, lastNumber);
+      return true;
+    }
+
+    long current = queryLong(conn, "SELECT " + sequenceName + ".NEXTVAL FROM dual");
+    long gap = target - incrementBy - current;
+    if (gap > 0) {
+      update(conn, "ALTER SEQUENCE " + sequenceName + " INCREMENT BY " + gap);
+      try {
+        queryLong(conn, "SELECT " + sequenceName + ".NEXTVAL FROM dual");
+      } finally {
+        update(conn, "ALTER SEQUENCE " + sequenceName + " INCREMENT BY " + incrementBy
+            + (changeCache ? " " + SeqAndFuncInit.cacheClause(cache) : ""));
+      }
+      logger.debug("[RESEED] {} : {} -> {} (MAX(ID) {})", sequenceName, current, target, max);
+    } else if (changeCache) {
+      update(conn, "ALTER SEQUENCE " + sequenceName + " " + SeqAndFuncInit.cacheClause(cache));
+    }
+    finish(gap > 0 ? Status.RESEEDED : Status.OK, max, current);
+    return true;
+  }
+
+  private synchronized void finish(Status status, long maxId, long before) {
+    this.status = status;
+    this.maxId = maxId;
+    this.before = before;
+  }
+
+  private static long queryLong(Connection conn, String sql) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      rs = pstmt.executeQuery();
+      rs.next();
+      return rs.getLong(1);
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  private static void update(Connection conn, String sql) throws SQLException {
+    PreparedStatement pstmt = conn.prepareStatement(sql);
+    try {
+      pstmt.executeUpdate();
+    } finally {
+      try {
+        pstmt.close();
+      } catch (SQLException e) {  }
+    }
+  }
+
+  String getSequenceName() {
+    return sequenceName;
+  }
+
+  String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * @return 결과, 실패했으면 null
+   */
+  synchronized Status getStatus() {
+    return status;
+  }
+
+  synchronized long getMaxId() {
+    return maxId;
+  }
+
+  /**
+   * @return 맞추기 전 값 (NEXTVAL, 앞섬 / 테이블 없음은 LAST_NUMBER)
+   */
+  synchronized long getBefore() {
+    return before;
+  }
+}
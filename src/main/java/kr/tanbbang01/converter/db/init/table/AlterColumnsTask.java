@@ -0,0 +1,54 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link SchemaDiff} 에서 만든 테이블 하나의 컬럼 변경 (ADD / MODIFY) 을 순서대로 실행하는 작업
+ * 같은 테이블의 ALTER TABLE 은 서로 기다리므로 하나의 작업으로 묶는다.
+ */
+class AlterColumnsTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(AlterColumnsTask.class);
+
+  private final String tableName;
+  private final List<String> sqlList;
+
+  AlterColumnsTask(String tableName, List<String> sqlList) {
+    this.tableName = tableName;
+    this.sqlList = sqlList;
+  }
+
+  @Override
+  public String getName() {
+    return tableName + " - " + sqlList.size() + " columns : ALTER";
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    for (String sql : sqlList) {
+      long start = System.currentTimeMillis();
+      PreparedStatement pstmt = null;
+      try {
+        pstmt = conn.prepareStatement(sql);
+        pstmt.executeUpdate();
+      } catch (SQLException e) {
+        logger.error("[ {} ] Query : {}", tableName, sql);
+        throw e;
+      } finally {
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+      logger.info("{} ({} ms)", sql, System.currentTimeMillis() - start);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,603 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.catalog.ColumnDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * ERD 스크립트(LOPE_ERD.sql / SMUF_v2_ERD.sql) 를 한번만 순차적으로 읽으면서 문장 단위로 잘라
+ * {@link DdlStatementHandler} 에 넘겨준다.
+ *
+ * 파일 전체를 메모리에 올리지 않으며, 한번에 들고 있는 것은 읽기 버퍼와 현재 문장 하나 뿐이다.
+ *  - '--' 한줄 주석, '/* * /' 블럭 주석은 제거한다. (단, 힌트 '/*+ ... * /' 는 유지)
+ *  - '...' 문자열, q'[...]' 문자열, "..." 식별자 안의 ';' 는 문장의 끝으로 보지 않는다.
+ *  - CREATE FUNCTION / PROCEDURE / PACKAGE / TRIGGER / TYPE, DECLARE, BEGIN 으로 시작하는 PL/SQL 은
+ *    ';' 가 아니라 한 줄에 단독으로 있는 '/' 를 문장의 끝으로 본다.
+ */
+public class DdlScriptParser {
+  private static Logger logger = LoggerFactory.getLogger(DdlScriptParser.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Pattern PLSQL_HEAD = Pattern.compile(
+      "(CREATE\\s+(OR\\s+REPLACE\\s+)?((NON)?EDITIONABLE\\s+)?(FUNCTION|PROCEDURE|PACKAGE|TRIGGER|TYPE)|DECLARE|BEGIN)\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final List<String> TABLE_CONSTRAINT_HEAD = Arrays.asList(
+      "CONSTRAINT", "PRIMARY", "UNIQUE", "FOREIGN", "CHECK", "SUPPLEMENTAL");
+  private static final List<String> INTEGER_TYPES = Arrays.asList("INTEGER", "INT", "SMALLINT");
+  private static final List<String> DECIMAL_TYPES = Arrays.asList("DECIMAL", "DEC", "NUMERIC");
+
+  private final Reader reader;
+  private final char[] buf = new char[BUFFER_SIZE];
+  private int pos = 0;
+  private int limit = 0;
+
+  private final StringBuilder statement = new StringBuilder(1024);
+  private Boolean plsql = null;           // 현재 문장이 PL/SQL 인지 (처음 ';' 를 만날 때 판단)
+  private int slashIndex = -1;            // 줄의 처음에 나온 '/' 의 위치
+
+  private int statementCount = 0;
+  private int skippedCount = 0;
+
+  public DdlScriptParser(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * 스크립트 파일을 읽어서 handler 로 넘긴다.
+   * @param path 스크립트 파일 경로
+   * @param charset 파일 인코딩
+   * @param handler 문장 처리
+   * @return 넘겨준 문장 수
+   */
+  public static int parse(String path, Charset charset, DdlStatementHandler handler) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    Reader reader = null;
+    try {
+      reader = new InputStreamReader(Channels.newInputStream(channel), charset);
+      DdlScriptParser parser = new DdlScriptParser(reader);
+      parser.parse(handler);
+      logger.debug("[PARSE] {} - statements : {} / skipped : {}", path, parser.getStatementCount(), parser.getSkippedCount());
+      return parser.getStatementCount();
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {  }
+      }
+      channel.close();
+    }
+  }
+
+  public int getStatementCount() {
+    return statementCount;
+  }
+
+  /**
+   * 구분할 수 없어서 무시한 문장 수 (COMMENT ON, INSERT 등)
+   */
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  public void parse(DdlStatementHandler handler) throws IOException {
+    boolean lineStart = true;   // 현재 줄에 공백 외의 문자가 없었는지
+    int c;
+
+    while ((c = next()) != -1) {
+      if (c == '-' && peek() == '-') {
+        skipLineComment();
+        c = '\n';
+      } else if (c == '/' && peek() == '*') {
+        next();
+        if (peek() == '+') {
+          statement.append("/*");
+          copyBlockComment();
+        } else {
+          skipBlockComment();
+          statement.append(' ');
+        }
+        continue;
+      }
+
+      switch (c) {
+        case '\n':
+          if (slashIndex >= 0) {          // '/' 만 있는 줄
+            statement.setLength(slashIndex);
+            flush(handler);
+          } else {
+            statement.append('\n');
+          }
+          lineStart = true;
+          continue;
+        case '/':
+          if (lineStart) {
+            slashIndex = statement.length();
+            statement.append('/');
+            lineStart = false;
+            continue;
+          }
+          break;
+        case '\'':
+          copyQuoted();
+          break;
+        case '"':
+          copyIdentifier();
+          break;
+        case ';':
+          if (!isPlsql()) {
+            flush(handler);
+            lineStart = false;
+            continue;
+          }
+          break;
+        default:
+          break;
+      }
+
+      if (c != '\'' && c != '"') {
+        statement.append((char) c);
+      }
+      if (!Character.isWhitespace(c)) {
+        lineStart = false;
+        if (slashIndex >= 0 && statement.length() > slashIndex + 1) {
+          slashIndex = -1;
+        }
+      }
+    }
+
+    if (slashIndex >= 0) {
+      statement.setLength(slashIndex);
+    }
+    flush(handler);
+  }
+
+  private int next() throws IOException {
+    if (pos >= limit && !fill()) {
+      return -1;
+    }
+    return buf[pos++];
+  }
+
+  private int peek() throws IOException {
+    if (pos >= limit && !fill()) {
+      return -1;
+    }
+    return buf[pos];
+  }
+
+  private boolean fill() throws IOException {
+    int n;
+    do {
+      n = reader.read(buf, 0, buf.length);
+    } while (n == 0);
+    pos = 0;
+    limit = Math.max(n, 0);
+    return n > 0;
+  }
+
+  private void skipLineComment() throws IOException {
+    int c;
+    while ((c = next()) != -1 && c != '\n') {  }
+  }
+
+  private void skipBlockComment() throws IOException {
+    int c;
+    while ((c = next()) != -1) {
+      if (c == '*' && peek() == '/') {
+        next();
+        return;
+      }
+    }
+  }
+
+  private void copyBlockComment() throws IOException {
+    int c;
+    while ((c = next()) != -1) {
+      statement.append((char) c);
+      if (c == '*' && peek() == '/') {
+        statement.append((char) next());
+        return;
+      }
+    }
+  }
+
+  /**
+   * '...' 또는 q'[...]' 문자열을 그대로 복사한다.
+   */
+  private void copyQuoted() throws IOException {
+    int len = statement.length();
+    boolean alternative = len > 0 && (statement.charAt(len - 1) == 'q' || statement.charAt(len - 1) == 'Q')
+        && (len == 1 || !isWordChar(statement.charAt(len - 2)));
+    statement.append('\'');
+
+    int c;
+    if (alternative) {
+      int open = next();
+      if (open == -1) {
+        return;
+      }
+      statement.append((char) open);
+      int close = open == '[' ? ']' : open == '(' ? ')' : open == '{' ? '}' : open == '<' ? '>' : open;
+      while ((c = next()) != -1) {
+        statement.append((char) c);
+        if (c == close && peek() == '\'') {
+          statement.append((char) next());
+          return;
+        }
+      }
+      return;
+    }
+
+    while ((c = next()) != -1) {
+      statement.append((char) c);
+      if (c == '\'') {
+        if (peek() == '\'') {
+          statement.append((char) next());
+        } else {
+          return;
+        }
+      }
+    }
+  }
+
+  private void copyIdentifier() throws IOException {
+    statement.append('"');
+    int c;
+    while ((c = next()) != -1) {
+      statement.append((char) c);
+      if (c == '"') {
+        return;
+      }
+    }
+  }
+
+  private boolean isPlsql() {
+    if (plsql == null) {
+      int start = 0;
+      while (start < statement.length() && Character.isWhitespace(statement.charAt(start))) {
+        start++;
+      }
+      plsql = PLSQL_HEAD.matcher(statement).region(start, statement.length()).lookingAt();
+    }
+    return plsql;
+  }
+
+  private void flush(DdlStatementHandler handler) {
+    String sql = statement.toString().trim();
+    statement.setLength(0);
+    plsql = null;
+    slashIndex = -1;
+
+    if (sql.length() == 0) {
+      return;
+    }
+
+    DdlStatement ddl = classify(sql);
+    if (ddl == null) {
+      skippedCount++;
+      logger.debug("[PARSE] Skip : {}", sql.length() > 80 ? sql.substring(0, 80) : sql);
+      return;
+    }
+    statementCount++;
+    handler.handle(ddl);
+  }
+
+  /**
+   * SQL 을 구분해서 DdlStatement 로 만든다.
+   * @return 처리 대상이 아니면 null
+   */
+  static DdlStatement classify(String sql) {
+    Tokens t = new Tokens(tokenize(sql));
+
+    if (t.accept("CREATE")) {
+      if (t.accept("GLOBAL")) {
+        t.accept("TEMPORARY");
+      }
+      if (t.accept("TABLE")) {
+        return new DdlStatement.CreateTable(sql, t.name(), parseColumns(sql));
+      }
+
+      boolean unique = t.accept("UNIQUE");
+      if (!unique) {
+        t.accept("BITMAP");
+      }
+      if (t.accept("INDEX")) {
+        String indexName = t.name();
+        if (!t.accept("ON")) {
+          return null;
+        }
+        String tableName = t.name();
+        List<String> columns = t.columnList();
+        return unique ? new DdlStatement.CreateUniqueIndex(sql, tableName, indexName, columns)
+                      : new DdlStatement.CreateIndex(sql, tableName, indexName, columns);
+      }
+      return null;
+    }
+
+    if (t.accept("ALTER") && t.accept("TABLE")) {
+      String tableName = t.name();
+      if (!t.accept("ADD")) {
+        return null;
+      }
+      t.accept("(");
+      if (!t.accept("CONSTRAINT")) {
+        return null;
+      }
+      String constraintName = t.name();
+
+      if (t.accept("PRIMARY") && t.accept("KEY")) {
+        return new DdlStatement.AddConstraint(sql, tableName, constraintName, ObjectType.PK, t.columnList(), null);
+      } else if (t.accept("FOREIGN") && t.accept("KEY")) {
+        List<String> columns = t.columnList();
+        String referencedTable = t.accept("REFERENCES") ? t.name() : null;
+        return new DdlStatement.AddConstraint(sql, tableName, constraintName, ObjectType.FK, columns, referencedTable);
+      } else if (t.accept("UNIQUE")) {
+        return new DdlStatement.AddConstraint(sql, tableName, constraintName, ObjectType.UIX, t.columnList(), null);
+      } else if (t.accept("CHECK")) {
+        return new DdlStatement.AddConstraint(sql, tableName, constraintName, ObjectType.CK, new ArrayList<String>(), null);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * CREATE TABLE 의 컬럼 정의를 읽는다. 테이블 제약조건 ( CONSTRAINT / PRIMARY KEY / ... ) 은 제외한다.
+   * 길이 / 정밀도를 읽지 못한 값은 null 로 둔다.
+   */
+  static List<ColumnDefinition> parseColumns(String sql) {
+    List<ColumnDefinition> columns = new ArrayList<ColumnDefinition>();
+    for (String definition : splitElements(sql)) {
+      Tokens t = new Tokens(tokenize(definition));
+      String first = t.peek();
+      if (first == null || TABLE_CONSTRAINT_HEAD.contains(first)) {
+        continue;
+      }
+
+      String name = t.next();
+      String dataType = t.next();
+      if (dataType == null) {
+        continue;
+      }
+      if ("LONG".equals(dataType) && t.accept("RAW")) {
+        dataType = "LONG RAW";
+      } else if ("DOUBLE".equals(dataType) && t.accept("PRECISION")) {
+        dataType = "DOUBLE PRECISION";
+      } else if ("VARCHAR".equals(dataType)) {
+        dataType = "VARCHAR2";    // Oracle 은 VARCHAR 를 VARCHAR2 로 만든다.
+      } else if ("CHARACTER".equals(dataType)) {
+        dataType = "CHAR";
+      }
+      boolean integer = INTEGER_TYPES.contains(dataType);
+      boolean decimal = DECIMAL_TYPES.contains(dataType);
+      if (integer || decimal) {
+        dataType = "NUMBER";      // INTEGER 와 정밀도 없는 DECIMAL 은 NUMBER(*,0), DECIMAL(p,s) / NUMERIC(p,s) 은 NUMBER(p,s) 로 만든다.
+      }
+
+      Integer size = null;
+      Integer scale = null;
+      String semantics = null;
+      if (t.accept("(")) {
+        size = toInteger(t.next());
+        if (t.accept(",")) {
+          scale = toInteger(t.next());
+        }
+        if ("BYTE".equals(t.peek()) || "CHAR".equals(t.peek())) {
+          semantics = t.next();
+        }
+        t.accept(")");
+      }
+
+      boolean nullable = true;
+      String token;
+      while ((token = t.next()) != null) {
+        if ("NOT".equals(token) && t.accept("NULL")) {
+          nullable = false;
+        }
+      }
+
+      ColumnDefinition column;
+      if (integer || decimal && size == null) {
+        column = new ColumnDefinition(name, dataType, null, null, null, 0, nullable, definition);
+      } else if ("NUMBER".equals(dataType)) {
+        column = new ColumnDefinition(name, dataType, null, null, size, size != null && scale == null ? Integer.valueOf(0) : scale,
+            nullable, definition);
+      } else {
+        column = new ColumnDefinition(name, dataType, size, semantics, null, null, nullable, definition);
+      }
+      columns.add(column);
+    }
+    return columns;
+  }
+
+  /**
+   * 첫번째 괄호 안을 최상위 ',' 로 나눈 원문 목록 (따옴표 안의 ',' / 괄호는 무시)
+   */
+  static List<String> splitElements(String sql) {
+    List<String> elements = new ArrayList<String>();
+    int n = sql.length();
+    int depth = 0;
+    int start = -1;
+    char quote = 0;
+
+    for (int i = 0; i < n; i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '(') {
+        if (depth++ == 0) {
+          start = i + 1;
+        }
+      } else if (c == ')' || (c == ',' && depth == 1)) {
+        if (depth == 1) {
+          String element = sql.substring(start, i).trim();
+          if (element.length() > 0) {
+            elements.add(element);
+          }
+          start = i + 1;
+        }
+        if (c == ')' && --depth == 0) {
+          break;
+        }
+      }
+    }
+    return elements;
+  }
+
+  private static Integer toInteger(String token) {
+    try {
+      return token == null ? null : Integer.valueOf(token);
+    } catch (NumberFormatException e) {
+      return null;    // NUMBER(*,0) 등
+    }
+  }
+
+  /**
+   * SQL 을 토큰으로 나눈다.
+   *  - 따옴표 없는 식별자 / 키워드는 대문자로
+   *  - "..." 식별자는 따옴표를 떼고 그대로
+   *  - '...' 문자열은 따옴표 포함 그대로
+   *  - 그 외 문자는 한 글자씩
+   */
+  static List<String> tokenize(CharSequence s) {
+    List<String> tokens = new ArrayList<String>();
+    int n = s.length();
+    int i = 0;
+
+    while (i < n) {
+      char c = s.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '"') {
+        int end = i + 1;
+        while (end < n && s.charAt(end) != '"') {
+          end++;
+        }
+        tokens.add(s.subSequence(i + 1, end).toString());
+        i = end + 1;
+      } else if (c == '\'') {
+        int end = i + 1;
+        while (end < n) {
+          if (s.charAt(end) == '\'') {
+            if (end + 1 < n && s.charAt(end + 1) == '\'') {
+              end += 2;
+              continue;
+            }
+            break;
+          }
+          end++;
+        }
+        end = Math.min(end + 1, n);
+        tokens.add(s.subSequence(i, end).toString());
+        i = end;
+      } else if (isWordChar(c)) {
+        int end = i;
+        while (end < n && isWordChar(s.charAt(end))) {
+          end++;
+        }
+        tokens.add(s.subSequence(i, end).toString().toUpperCase());
+        i = end;
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+  }
+
+  /**
+   * 토큰을 앞에서부터 하나씩 읽는다.
+   */
+  static class Tokens {
+    private final List<String> tokens;
+    private int index = 0;
+
+    Tokens(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    String peek() {
+      return index < tokens.size() ? tokens.get(index) : null;
+    }
+
+    String next() {
+      return index < tokens.size() ? tokens.get(index++) : null;
+    }
+
+    boolean accept(String token) {
+      if (token.equals(peek())) {
+        index++;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * OWNER.NAME 형식이면 NAME 만 돌려준다.
+     */
+    String name() {
+      String name = next();
+      while (".".equals(peek())) {
+        index++;
+        name = next();
+      }
+      return name;
+    }
+
+    /**
+     * ( a, b DESC, UPPER(c) ) 형식의 목록을 읽는다.
+     * @return 괄호가 없으면 빈 목록
+     */
+    List<String> columnList() {
+      List<String> columns = new ArrayList<String>();
+      if (!accept("(")) {
+        return columns;
+      }
+
+      StringBuilder column = new StringBuilder();
+      int depth = 0;
+      String token;
+      while ((token = next()) != null) {
+        if (depth == 0 && (token.equals(",") || token.equals(")"))) {
+          columns.add(column.toString());
+          column.setLength(0);
+          if (token.equals(")")) {
+            break;
+          }
+          continue;
+        }
+        if (token.equals("(")) {
+          depth++;
+        } else if (token.equals(")")) {
+          depth--;
+        }
+        if (column.length() > 0 && isWordChar(token.charAt(0)) && isWordChar(column.charAt(column.length() - 1))) {
+          column.append(' ');
+        }
+        column.append(token);
+      }
+      return columns;
+    }
+  }
+}
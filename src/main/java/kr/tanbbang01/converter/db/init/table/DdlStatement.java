@@ -0,0 +1,144 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.catalog.ColumnDefinition;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ERD 스크립트에서 읽어들인 DDL 한 문장
+ *
+ * CREATE TABLE / ALTER TABLE ... ADD CONSTRAINT / CREATE INDEX / CREATE UNIQUE INDEX 만 구분하며
+ * 나머지 문장은 {@link DdlScriptParser} 에서 무시한다.
+ */
+public abstract class DdlStatement {
+  private final String sql;
+  private final String tableName;
+  private final String objectName;
+
+  protected DdlStatement(String sql, String tableName, String objectName) {
+    this.sql = sql;
+    this.tableName = tableName;
+    this.objectName = objectName;
+  }
+
+  /**
+   * 실행할 SQL (마지막 ';' 와 주석은 제거된 상태)
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * 대상 테이블명
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * 테이블명 / 제약조건명 / 인덱스명
+   */
+  public String getObjectName() {
+    return objectName;
+  }
+
+  public abstract ObjectType getType();
+
+  @Override
+  public String toString() {
+    return getType() + " " + tableName + "." + objectName;
+  }
+
+  /**
+   * CREATE TABLE xxxx ( ... )
+   */
+  public static class CreateTable extends DdlStatement {
+    private final List<ColumnDefinition> columns;
+
+    public CreateTable(String sql, String tableName, List<ColumnDefinition> columns) {
+      super(sql, tableName, tableName);
+      this.columns = Collections.unmodifiableList(columns);
+    }
+
+    @Override
+    public ObjectType getType() {
+      return ObjectType.TABLE;
+    }
+
+    /**
+     * 컬럼 정의 (스크립트 순서)
+     */
+    public List<ColumnDefinition> getColumns() {
+      return columns;
+    }
+  }
+
+  /**
+   * ALTER TABLE xxxx ADD CONSTRAINT yyyy PRIMARY KEY | FOREIGN KEY | UNIQUE | CHECK ...
+   */
+  public static class AddConstraint extends DdlStatement {
+    private final ObjectType type;
+    private final List<String> columns;
+    private final String referencedTable;
+
+    public AddConstraint(String sql, String tableName, String constraintName, ObjectType type,
+                         List<String> columns, String referencedTable) {
+      super(sql, tableName, constraintName);
+      this.type = type;
+      this.columns = Collections.unmodifiableList(columns);
+      this.referencedTable = referencedTable;
+    }
+
+    @Override
+    public ObjectType getType() {
+      return type;
+    }
+
+    public List<String> getColumns() {
+      return columns;
+    }
+
+    /**
+     * FK 일 때 참조하는 테이블명, 그 외에는 null
+     */
+    public String getReferencedTable() {
+      return referencedTable;
+    }
+  }
+
+  /**
+   * CREATE INDEX xxxx ON yyyy ( ... )
+   */
+  public static class CreateIndex extends DdlStatement {
+    private final List<String> columns;
+
+    public CreateIndex(String sql, String tableName, String indexName, List<String> columns) {
+      super(sql, tableName, indexName);
+      this.columns = Collections.unmodifiableList(columns);
+    }
+
+    @Override
+    public ObjectType getType() {
+      return ObjectType.IDX;
+    }
+
+    public List<String> getColumns() {
+      return columns;
+    }
+  }
+
+  /**
+   * CREATE UNIQUE INDEX xxxx ON yyyy ( ... )
+   */
+  public static class CreateUniqueIndex extends CreateIndex {
+    public CreateUniqueIndex(String sql, String tableName, String indexName, List<String> columns) {
+      super(sql, tableName, indexName, columns);
+    }
+
+    @Override
+    public ObjectType getType() {
+      return ObjectType.UIX;
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package kr.tanbbang01.converter.db.init.table;
+
+/**
+ * {@link DdlScriptParser} 가 문장을 하나 읽을 때마다 호출된다.
+ */
+public interface DdlStatementHandler {
+  void handle(DdlStatement statement);
+}
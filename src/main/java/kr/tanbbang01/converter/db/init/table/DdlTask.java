@@ -0,0 +1,172 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.task.DbTask;
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ERD 스크립트의 DDL 한 문장을 실행하는 작업
+ * 이미 존재하는 객체는 실행하지 않는다.
+ *
+ * {@link IndexBuildOptions} 를 주면 인덱스 (PK / UNIQUE 제약조건의 인덱스 포함) 를 PARALLEL / NOLOGGING 으로
+ * 만든 뒤 원래 속성으로 되돌린다. PK / UNIQUE 제약조건은 인덱스를 먼저 만들고 제약조건이 그 인덱스를 사용하게 한다.
+ *
+ * dropSql 을 주면 ({@link SchemaDiff} 에서 정의가 달라진 객체) 기존 객체를 지운 뒤 다시 만든다.
+ */
+class DdlTask implements DbTask {
+  private static Logger logger = LoggerFactory.getLogger(DdlTask.class);
+
+  private final SchemaObject object;
+  private final CatalogSnapshot catalog;
+  private final IndexBuildOptions buildOptions;
+  private final String dropSql;
+
+  DdlTask(SchemaObject object, CatalogSnapshot catalog, IndexBuildOptions buildOptions) {
+    this(object, catalog, buildOptions, null);
+  }
+
+  DdlTask(SchemaObject object, CatalogSnapshot catalog, IndexBuildOptions buildOptions, String dropSql) {
+    this.object = object;
+    this.catalog = catalog;
+    this.buildOptions = buildOptions;
+    this.dropSql = dropSql;
+  }
+
+  SchemaObject getObject() {
+    return object;
+  }
+
+  @Override
+  public String getName() {
+    return object.toString();
+  }
+
+  @Override
+  public boolean execute(Connection conn) throws SQLException {
+    if (dropSql == null && isExistsInDb(object, catalog)) {
+      logger.info("{} is Exists. Passing.. ", object);
+      return false;
+    }
+
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    if (dropSql != null) {
+      executeSql(conn, dropSql);
+      logger.info("{} is Dropped", object);
+    }
+
+    DdlStatement statement = object.getStatement();
+    String sql = statement.getSql();
+    ObjectType type = object.getType();
+
+    if (buildOptions == null || type == ObjectType.TABLE || type == ObjectType.FK || type == ObjectType.CK) {
+      executeSql(conn, sql);
+    } else if (statement instanceof DdlStatement.CreateIndex) {
+      executeSql(conn, sql + buildOptions.buildClause(sql));
+      restore(conn, sql);
+    } else {
+      String tableName = object.getTableName();
+      String indexSql = null;
+      if (!catalog.hasIndex(tableName, object.getName())) {
+        List<String> columns = ((DdlStatement.AddConstraint) statement).getColumns();
+        indexSql = "CREATE UNIQUE INDEX " + object.getName() + " ON " + tableName + " (" + join(columns) + ")";
+        executeSql(conn, indexSql + buildOptions.buildClause(indexSql));
+        catalog.addIndex(tableName, object.getName());
+      }
+      executeSql(conn, sql);    // 같은 컬럼의 인덱스가 있으면 그 인덱스를 사용한다.
+      if (indexSql != null) {   // 이미 있던 인덱스의 속성은 건드리지 않는다.
+        restore(conn, indexSql);
+      }
+    }
+
+    addToCatalog();
+    stopwatch.stop();
+    logger.info("{} is Created ({} ms)", object, stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    return true;
+  }
+
+  private void executeSql(Connection conn, String sql) throws SQLException {
+    PreparedStatement pstmt = null;
+    try {
+      pstmt = conn.prepareStatement(sql);
+      // 결과 값을 받아봐야 의미가 없다... CREATE || ALTER 는 result 가 항상 false 내지 0 이다.
+      pstmt.executeUpdate();
+    } catch (SQLException e) {
+      logger.error("[ {} ] Query : {}", object.getName(), sql);
+      throw e;
+    } finally {
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  /**
+   * 옵션으로 붙인 PARALLEL / NOLOGGING 만 NOPARALLEL / LOGGING 으로 되돌린다.
+   * @param sql 옵션을 붙이기 전의 CREATE INDEX
+   */
+  private void restore(Connection conn, String sql) throws SQLException {
+    String restoreSql = buildOptions.restoreSql(object.getName(), sql);
+    if (restoreSql != null) {
+      executeSql(conn, restoreSql);
+    }
+  }
+
+  private static String join(List<String> columns) {
+    StringBuilder sb = new StringBuilder();
+    for (String column : columns) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(column);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * ConstraintsType 으로 테이블 및 INDEX 가 존재하는지 확인한다.
+   * DB 를 조회하지 않고 catalog 에서 찾는다.
+   */
+  static boolean isExistsInDb(SchemaObject object, CatalogSnapshot catalog) {
+    String tableName = object.getTableName();
+    String name = object.getName();
+
+    if (object.getType() == ObjectType.TABLE) {
+      return catalog.hasTable(tableName);
+    } else if (object.getStatement() instanceof DdlStatement.CreateIndex) {
+      return catalog.hasIndex(tableName, name);
+    } else {
+      return catalog.hasConstraint(tableName, name);    // PK , FK , UNIQUE , CHECK 제약조건
+    }
+  }
+
+  /**
+   * DDL 이 성공한 객체를 catalog 에 반영한다.
+   */
+  private void addToCatalog() {
+    String tableName = object.getTableName();
+    String name = object.getName();
+
+    if (object.getStatement() instanceof DdlStatement.CreateTable) {
+      catalog.addTable(tableName);
+    } else if (object.getStatement() instanceof DdlStatement.CreateIndex) {
+      catalog.addIndex(tableName, name);
+    } else {
+      catalog.addConstraint(tableName, name);
+      if (object.getType() == ObjectType.PK || object.getType() == ObjectType.UIX) {
+        catalog.addIndex(tableName, name);    // PK / UNIQUE 제약조건은 같은 이름의 인덱스를 만든다.
+      }
+    }
+  }
+}
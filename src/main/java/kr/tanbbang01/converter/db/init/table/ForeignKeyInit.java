@@ -0,0 +1,111 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.util.Fingerprint;
+import kr.tanbbang01.converter.util.Resourcer;
+import kr.tanbbang01.converter.util.RunState;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 데이터 적재 후 TableInit 에서 비활성화한 FK 를 다시 활성화
+ *
+ * ENABLE NOVALIDATE 로 모두 활성화한 뒤 VALIDATE 한다.
+ * 서로 다른 테이블은 FK_WORKER_COUNT 개의 Connection 으로 동시에 실행하며,
+ * 검증에 실패한 FK 는 NOVALIDATE 상태로 남고 위반 행의 ROWID 는 FK_EXCEPTIONS_TABLE 에 기록된다.
+ */
+public class ForeignKeyInit {
+  private static Logger logger = LoggerFactory.getLogger(ForeignKeyInit.class);
+
+  private String owner = null;
+  private Resourcer config = null;
+  private RunState runState = null;
+  private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private int workerCount = 4;
+  private String exceptionsTable = null;
+
+  public ForeignKeyInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+    this.runState = RunState.getInstance(configFile);
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    owner = config.getString("DEST_USER");
+    workerCount = config.getInt("FK_WORKER_COUNT", workerCount);
+    exceptionsTable = config.getString("FK_EXCEPTIONS_TABLE", "EXCEPTIONS");
+  }
+
+  private void connClose() {
+    try{
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    String inputs = new Fingerprint().add(owner).add(exceptionsTable).toString();
+    if (runState.isUpToDate("enableFk", inputs, catalogFingerprint())) {
+      logger.info("[RUN STATE] enableFk - 변경 없음. Passing... ({} ms)", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+      connClose();
+      return;
+    }
+
+    try {
+      logger.debug("========================================== ");
+      logger.debug("05. FK Enable ..... ");
+      ForeignKeyManager fkManager = new ForeignKeyManager(destBds, owner, workerCount, exceptionsTable);
+      boolean done = true;
+      for (TaskReport report : fkManager.enableAll(destConn)) {   // ENABLE NOVALIDATE / VALIDATE 모두 성공해야 완료
+        report.log(logger);
+        done &= report.isAllDone();
+      }
+      if (done) {
+        runState.markDone("enableFk", inputs, catalogFingerprint());
+      } else {
+        runState.markFailed("enableFk");
+      }
+      logger.debug("05. FK Enable End ");
+      logger.debug("========================================== ");
+    } catch (SQLException e) {
+      runState.markFailed("enableFk");
+      logger.error("[FK ENABLE] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * @return 대상 DB 카탈로그 지문, 조회하지 못하면 null
+   */
+  private String catalogFingerprint() {
+    try {
+      return CatalogSnapshot.fingerprint(destConn, owner);
+    } catch (SQLException e) {
+      logger.warn("[RUN STATE] Catalog Fingerprint Exception : {}", e.getMessage());
+      return null;
+    }
+  }
+}
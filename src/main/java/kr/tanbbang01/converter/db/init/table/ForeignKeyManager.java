@@ -0,0 +1,291 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.task.DbTask;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FK 비활성화 / 활성화
+ *
+ * 테이블이 다르면 동시에 실행하고, 같은 테이블의 FK 는 ALTER TABLE 끼리 기다리지 않도록 순서대로 실행한다.
+ * 활성화는 두 단계로 나눈다.
+ *  1. ENABLE NOVALIDATE : 기존 데이터를 검사하지 않으므로 바로 끝난다.
+ *  2. VALIDATE : 기존 데이터를 검사한다. 위반한 행은 exceptions 테이블에 남기고 해당 FK 만 실패 처리한다.
+ */
+public class ForeignKeyManager {
+  private static Logger logger = LoggerFactory.getLogger(ForeignKeyManager.class);
+
+  private enum Action {
+    DISABLE, ENABLE_NOVALIDATE, VALIDATE
+  }
+
+  private final DataSource dataSource;
+  private final String owner;
+  private final int workerCount;
+  private final String exceptionsTable;
+
+  /**
+   * @param dataSource 대상 DB
+   * @param owner 스키마
+   * @param workerCount 동시에 실행할 Connection 수
+   * @param exceptionsTable VALIDATE 실패 시 위반 행의 ROWID 를 남길 테이블
+   */
+  public ForeignKeyManager(DataSource dataSource, String owner, int workerCount, String exceptionsTable) {
+    this.dataSource = dataSource;
+    this.owner = owner.toUpperCase();
+    this.workerCount = workerCount;
+    this.exceptionsTable = exceptionsTable.toUpperCase();
+  }
+
+  /**
+   * 활성화되어 있는 FK 를 모두 비활성화한다.
+   */
+  public TaskReport disableAll(Connection conn) throws SQLException {
+    return run("FK DISABLE", Action.DISABLE, findForeignKeys(conn, " AND status = 'ENABLED' "));
+  }
+
+  /**
+   * 비활성화된 FK 를 ENABLE NOVALIDATE 한 뒤, 검증되지 않은 FK 를 모두 VALIDATE 한다.
+   * ENABLE NOVALIDATE 에 실패한 FK 는 DISABLED 로 남아서 VALIDATE 대상이 아니므로 두 결과를 모두 확인해야 한다.
+   * @return [ ENABLE NOVALIDATE 결과, VALIDATE 결과 ]
+   */
+  public List<TaskReport> enableAll(Connection conn) throws SQLException {
+    List<TaskReport> reports = new ArrayList<TaskReport>();
+    reports.add(run("FK ENABLE", Action.ENABLE_NOVALIDATE, findForeignKeys(conn, " AND status = 'DISABLED' ")));
+
+    createExceptionsTable(conn);
+    reports.add(run("FK VALIDATE", Action.VALIDATE, findForeignKeys(conn, " AND status = 'ENABLED' AND validated = 'NOT VALIDATED' ")));
+    return reports;
+  }
+
+  /**
+   * tables 에 있거나 tables 를 참조하는 활성화된 FK (대상 행을 지우고 다시 넣기 전에 비활성화할 FK)
+   * @return [ table_name , constraint_name , 참조 table_name ] 목록
+   */
+  public List<String[]> findEnabledFor(Connection conn, Collection<String> tables) throws SQLException {
+    List<String[]> list = new ArrayList<String[]>();
+    for (String[] fk : findForeignKeys(conn, " AND status = 'ENABLED' ")) {
+      if (tables.contains(fk[0]) || tables.contains(fk[2])) {
+        list.add(fk);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * foreignKeys 만 비활성화한다.
+   */
+  public TaskReport disable(List<String[]> foreignKeys) {
+    return run("FK DISABLE", Action.DISABLE, foreignKeys);
+  }
+
+  /**
+   * foreignKeys 만 ENABLE NOVALIDATE 한 뒤 VALIDATE 한다. ({@link #enableAll} 과 같은 두 단계)
+   * @return [ ENABLE NOVALIDATE 결과, VALIDATE 결과 ]
+   */
+  public List<TaskReport> enable(Connection conn, List<String[]> foreignKeys) throws SQLException {
+    List<TaskReport> reports = new ArrayList<TaskReport>();
+    reports.add(run("FK ENABLE", Action.ENABLE_NOVALIDATE, foreignKeys));
+
+    createExceptionsTable(conn);
+    reports.add(run("FK VALIDATE", Action.VALIDATE, foreignKeys));
+    return reports;
+  }
+
+  /**
+   * @return [ table_name , constraint_name , 참조 table_name ] 목록
+   */
+  private List<String[]> findForeignKeys(Connection conn, String condition) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    List<String[]> list = new ArrayList<String[]>();
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(" SELECT table_name, constraint_name, ");
+    sb.append("        (SELECT p.table_name FROM all_constraints p WHERE p.owner = c.r_owner AND p.constraint_name = c.r_constraint_name) ");
+    sb.append("   FROM all_constraints c ");
+    sb.append("  WHERE owner = ? ");
+    sb.append("    AND constraint_type = 'R' ");
+    sb.append(condition);
+    sb.append("  ORDER BY table_name, constraint_name ");
+
+    try {
+      pstmt = conn.prepareStatement(sb.toString());
+      pstmt.setString(1, owner);
+      rs = pstmt.executeQuery();
+      while (rs.next()) {
+        list.add(new String[] { rs.getString(1), rs.getString(2), rs.getString(3) });
+      }
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+    return list;
+  }
+
+  private TaskReport run(String phase, Action action, List<String[]> foreignKeys) {
+    TaskScheduler scheduler = new TaskScheduler(phase, dataSource, workerCount);
+    Map<String, TaskScheduler.Node> lastOfTable = new HashMap<String, TaskScheduler.Node>();
+
+    for (String[] fk : foreignKeys) {
+      TaskScheduler.Node node = scheduler.add(new ForeignKeyTask(action, fk[0], fk[1]));
+      node.dependsOn(lastOfTable.get(fk[0]));     // 같은 테이블은 순서대로
+      lastOfTable.put(fk[0], node);
+    }
+    return scheduler.run();
+  }
+
+  /**
+   * utlexcpt.sql 과 같은 구조의 exceptions 테이블이 없으면 만든다.
+   */
+  private void createExceptionsTable(Connection conn) throws SQLException {
+    PreparedStatement pstmt = null;
+    ResultSet rs = null;
+    try {
+      pstmt = conn.prepareStatement(" SELECT count(1) FROM all_tables WHERE owner = ? AND table_name = ? ");
+      pstmt.setString(1, owner);
+      pstmt.setString(2, exceptionsTable);
+      rs = pstmt.executeQuery();
+      if (rs.next() && rs.getInt(1) > 0) {
+        return;
+      }
+      pstmt.close();
+
+      logger.info("[FK VALIDATE] Create Exceptions Table : {}", exceptionsTable);
+      pstmt = conn.prepareStatement(" CREATE TABLE " + exceptionsTable
+          + " ( row_id ROWID, owner VARCHAR2(30), table_name VARCHAR2(30), \"CONSTRAINT\" VARCHAR2(30) ) ");
+      pstmt.executeUpdate();
+    } finally {
+      if (rs != null) {
+        try {
+          rs.close();
+        } catch (SQLException e) {  }
+      }
+      if (pstmt != null) {
+        try {
+          pstmt.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  private class ForeignKeyTask implements DbTask {
+    private final Action action;
+    private final String tableName;
+    private final String constraintName;
+
+    ForeignKeyTask(Action action, String tableName, String constraintName) {
+      this.action = action;
+      this.tableName = tableName;
+      this.constraintName = constraintName;
+    }
+
+    @Override
+    public String getName() {
+      return tableName + " - " + constraintName + " : " + action;
+    }
+
+    @Override
+    public boolean execute(Connection conn) throws SQLException {
+      String sql;
+      if (action == Action.DISABLE) {
+        sql = "ALTER TABLE " + tableName + " DISABLE CONSTRAINT " + constraintName;
+      } else if (action == Action.ENABLE_NOVALIDATE) {
+        sql = "ALTER TABLE " + tableName + " ENABLE NOVALIDATE CONSTRAINT " + constraintName;
+      } else {
+        deleteExceptions(conn);
+        sql = "ALTER TABLE " + tableName + " ENABLE VALIDATE CONSTRAINT " + constraintName + " EXCEPTIONS INTO " + exceptionsTable;
+      }
+
+      long start = System.currentTimeMillis();
+      PreparedStatement pstmt = null;
+      try {
+        pstmt = conn.prepareStatement(sql);
+        pstmt.executeUpdate();
+      } catch (SQLException e) {
+        if (action == Action.VALIDATE) {
+          logger.error("[FK VALIDATE] {} - {} : 위반 행 {} 건 ({} 참조). {}", tableName, constraintName,
+              countExceptions(conn), exceptionsTable, e.getMessage());
+        } else {
+          logger.error("SQL Exception !! SQL [ {} ]", sql);
+        }
+        throw e;
+      } finally {
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+      logger.info("[{}] {} - {} ({} ms)", action, tableName, constraintName, System.currentTimeMillis() - start);
+      return true;
+    }
+
+    /**
+     * 이전 실행에서 남은 이 FK 의 위반 행 기록을 지운다.
+     */
+    private void deleteExceptions(Connection conn) throws SQLException {
+      PreparedStatement pstmt = null;
+      try {
+        pstmt = conn.prepareStatement(" DELETE FROM " + exceptionsTable + " WHERE owner = ? AND table_name = ? AND \"CONSTRAINT\" = ? ");
+        pstmt.setString(1, owner);
+        pstmt.setString(2, tableName);
+        pstmt.setString(3, constraintName);
+        pstmt.executeUpdate();
+      } finally {
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+    }
+
+    private int countExceptions(Connection conn) {
+      PreparedStatement pstmt = null;
+      ResultSet rs = null;
+      try {
+        pstmt = conn.prepareStatement(" SELECT count(1) FROM " + exceptionsTable + " WHERE owner = ? AND table_name = ? AND \"CONSTRAINT\" = ? ");
+        pstmt.setString(1, owner);
+        pstmt.setString(2, tableName);
+        pstmt.setString(3, constraintName);
+        rs = pstmt.executeQuery();
+        return rs.next() ? rs.getInt(1) : 0;
+      } catch (SQLException e) {
+        return -1;
+      } finally {
+        if (rs != null) {
+          try {
+            rs.close();
+          } catch (SQLException e) {  }
+        }
+        if (pstmt != null) {
+          try {
+            pstmt.close();
+          } catch (SQLException e) {  }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Fingerprint;
+import kr.tanbbang01.converter.util.Resourcer;
+import kr.tanbbang01.converter.util.RunState;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 데이터 적재 후 PK / UIX / IDX / CK / FK 생성
+ *
+ * DEFER_INDEXES=true 로 TableInit 에서 테이블만 만든 경우, ERD 스크립트에는 있지만 대상 DB 에 없는
+ * 제약조건 / 인덱스를 INDEX_WORKER_COUNT 개의 Connection 으로 동시에 만든다.
+ * 인덱스는 INDEX_PARALLEL_DEGREE / INDEX_NOLOGGING 으로 만든 뒤 LOGGING / NOPARALLEL 로 되돌린다.
+ */
+public class IndexBuildInit {
+  private static Logger logger = LoggerFactory.getLogger(IndexBuildInit.class);
+
+  private String s8FilePath = null;
+  private String smufFilePath = null;
+  private String owner = null;
+  private Charset erdCharset = null;
+  private Resourcer config = null;
+  private RunState runState = null;
+  private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private int workerCount = 4;
+  private IndexBuildOptions buildOptions = null;
+
+  public IndexBuildInit(String configFile) throws SQLException {
+    this.config = Resourcer.getInstance(configFile);
+    this.runState = RunState.getInstance(configFile);
+
+    destBds = new BasicDataSource();
+    destBds.setDriverClassName(config.getString("DEST_JDBC"));
+    destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
+    destBds.setUsername(config.getString("DEST_USER"));
+    destBds.setPassword(config.getString("DEST_PASSWORD"));
+    destBds.setMaxActive(-1);
+    destBds.setMaxIdle(-1);
+    destBds.setDefaultAutoCommit(true);
+    destConn = destBds.getConnection();
+
+    s8FilePath = config.getString("SOLARS8_INIT_FILE_PATH");
+    smufFilePath = config.getString("SMUF2_INIT_FILE_PATH");
+    owner = config.getString("DEST_USER");
+    erdCharset = Charset.forName(config.getString("ERD_FILE_ENCODING", Charset.defaultCharset().name()));
+    workerCount = config.getInt("INDEX_WORKER_COUNT", config.getInt("DDL_WORKER_COUNT", workerCount));
+    buildOptions = new IndexBuildOptions(config.getInt("INDEX_PARALLEL_DEGREE", 4), config.getBoolean("INDEX_NOLOGGING", true));
+  }
+
+  private void connClose() {
+    try{
+      destConn.close();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void create() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    String inputs = new Fingerprint()
+        .addFile(s8FilePath)
+        .addFile(smufFilePath)
+        .add(erdCharset.name())
+        .add(owner)
+        .add(buildOptions.getParallelDegree())
+        .add(buildOptions.isNologging())
+        .toString();
+    if (runState.isUpToDate("index", inputs, catalogFingerprint())) {
+      logger.info("[RUN STATE] index - 변경 없음. Passing... ({} ms)", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+      connClose();
+      return;
+    }
+
+    try {
+      if (buildIndexes()) {
+        runState.markDone("index", inputs, catalogFingerprint(), "enableFk");
+      } else {
+        runState.markFailed("index");
+      }
+    } catch (SQLException e) {
+      runState.markFailed("index");
+      logger.error("[INDEX BUILD] Exception : {}", e.getMessage());
+      e.printStackTrace();
+    }
+    connClose();
+
+    stopwatch.stop();
+    logger.info("실행 시간 : {} ms", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * @return 실패하거나 건너뛴 작업이 없으면 true
+   */
+  private boolean buildIndexes() throws SQLException {
+    logger.debug("========================================== ");
+    logger.debug("04. PK / INDEX / FK Building ..... PARALLEL {} / NOLOGGING {}",
+        buildOptions.getParallelDegree(), buildOptions.isNologging());
+
+    CatalogSnapshot catalog = CatalogSnapshot.load(destConn, owner, true);
+    SchemaModel model = SchemaModel.load(erdCharset, s8FilePath, smufFilePath);
+    SchemaDiff diff = SchemaDiff.compare(model, catalog);
+
+    TaskScheduler scheduler = new TaskScheduler("INDEX BUILD", destBds, workerCount);
+    TableInit.scheduleDdl(model, scheduler, catalog, EnumSet.complementOf(EnumSet.of(ObjectType.TABLE)), buildOptions, diff);
+
+    TaskReport report = scheduler.run();
+    report.log(logger);
+    logger.debug("04. PK / INDEX / FK Build End ");
+    logger.debug("========================================== ");
+    return report.isAllDone();
+  }
+
+  /**
+   * @return 대상 DB 카탈로그 지문, 조회하지 못하면 null
+   */
+  private String catalogFingerprint() {
+    try {
+      return CatalogSnapshot.fingerprint(destConn, owner);
+    } catch (SQLException e) {
+      logger.warn("[RUN STATE] Catalog Fingerprint Exception : {}", e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import java.util.regex.Pattern;
+
+/**
+ * 데이터 적재 후 인덱스를 만들 때 사용하는 옵션
+ *
+ * PARALLEL / NOLOGGING 으로 인덱스를 만든 뒤 옵션으로 붙인 속성만 되돌린다. (스크립트에 직접 쓴 속성은 그대로 둔다)
+ */
+public class IndexBuildOptions {
+  private static final Pattern PARALLEL = Pattern.compile("\\b(NO)?PARALLEL\\b");
+  private static final Pattern LOGGING = Pattern.compile("\\b(NO)?LOGGING\\b");
+
+  private final int parallelDegree;
+  private final boolean nologging;
+
+  public IndexBuildOptions(int parallelDegree, boolean nologging) {
+    this.parallelDegree = Math.max(1, parallelDegree);
+    this.nologging = nologging;
+  }
+
+  public int getParallelDegree() {
+    return parallelDegree;
+  }
+
+  public boolean isNologging() {
+    return nologging;
+  }
+
+  /**
+   * CREATE INDEX 뒤에 붙일 속성. 이미 지정된 속성은 붙이지 않는다.
+   * 속성은 컬럼 목록 괄호 뒤에서 단어 단위로만 찾는다. (AUDIT_LOGGING_HIST 같은 이름은 속성이 아니다)
+   * @param sql 원본 CREATE INDEX
+   */
+  public String buildClause(String sql) {
+    String attributes = attributes(sql).toUpperCase();
+    StringBuilder sb = new StringBuilder();
+    if (injectsParallel(attributes)) {
+      sb.append(" PARALLEL ").append(parallelDegree);
+    }
+    if (injectsNologging(attributes)) {
+      sb.append(" NOLOGGING");
+    }
+    return sb.toString();
+  }
+
+  private boolean injectsParallel(String attributes) {
+    return parallelDegree > 1 && !PARALLEL.matcher(attributes).find();
+  }
+
+  private boolean injectsNologging(String attributes) {
+    return nologging && !LOGGING.matcher(attributes).find();
+  }
+
+  /**
+   * @return 첫 괄호 (컬럼 목록) 가 닫힌 뒤의 문자열, 괄호가 없으면 전체
+   */
+  static String attributes(String sql) {
+    int open = sql.indexOf('(');
+    if (open < 0) {
+      return sql;
+    }
+    int depth = 0;
+    for (int i = open; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return sql.substring(i + 1);
+      }
+    }
+    return "";
+  }
+
+  /**
+   * 인덱스 생성 후 {@link #buildClause(String)} 가 붙인 속성만 기본값 (LOGGING / NOPARALLEL) 으로 되돌리는 SQL
+   * @param sql buildClause 에 넘긴 원본 CREATE INDEX
+   * @return 붙인 속성이 없으면 null
+   */
+  public String restoreSql(String indexName, String sql) {
+    String attributes = attributes(sql).toUpperCase();
+    return restoreSql(indexName, injectsNologging(attributes) ? "LOGGING" : null,
+        injectsParallel(attributes) ? "NOPARALLEL" : null);
+  }
+
+  /**
+   * 기존 인덱스를 buildClause("") 로 REBUILD 한 뒤, 붙인 속성만 인덱스의 원래 값으로 되돌리는 SQL
+   * @param logging 원래 LOGGING 이면 true (DBA_INDEXES.LOGGING)
+   * @param degree 원래 병렬도 (DBA_INDEXES.DEGREE : 1 / n / DEFAULT)
+   * @return 붙인 속성이 없으면 null
+   */
+  public String restoreSql(String indexName, boolean logging, String degree) {
+    String parallel = null;
+    if (injectsParallel("")) {
+      degree = degree == null ? "1" : degree.trim();
+      parallel = "1".equals(degree) ? "NOPARALLEL" : ("DEFAULT".equals(degree) ? "PARALLEL" : "PARALLEL " + degree);
+    }
+    return restoreSql(indexName, injectsNologging("") && logging ? "LOGGING" : null, parallel);
+  }
+
+  private static String restoreSql(String indexName, String logging, String parallel) {
+    if (logging == null && parallel == null) {
+      return null;
+    }
+    return "ALTER INDEX " + indexName + (logging != null ? " " + logging : "") + (parallel != null ? " " + parallel : "");
+  }
+}
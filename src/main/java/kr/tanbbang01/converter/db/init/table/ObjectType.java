@@ -0,0 +1,13 @@
+package kr.tanbbang01.converter.db.init.table;
+
+/**
+ * ERD 스크립트로 만드는 객체 종류
+ */
+public enum ObjectType {
+  TABLE,
+  PK,     // PRIMARY KEY
+  FK,     // FOREIGN KEY
+  UIX,    // UNIQUE INDEX , UNIQUE 제약조건
+  IDX,    // INDEX
+  CK      // CHECK 제약조건
+}
@@ -0,0 +1,249 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.catalog.ColumnDefinition;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * ERD 모델과 대상 DB (컬럼 정의를 읽은 {@link CatalogSnapshot}) 의 차이
+ *
+ * 이미 존재하는 테이블 / 인덱스 / 제약조건 중에서 정의가 달라진 것만 변경 목록으로 만든다.
+ *  - 없는 컬럼 : ALTER TABLE ... ADD
+ *    DEFAULT 없는 NOT NULL 컬럼은 데이터가 있는 테이블에 추가할 수 없으므로 (ORA-01758) NULL 허용으로 추가하고,
+ *    값을 채운 뒤 실행할 MODIFY 를 경고로 남긴다.
+ *  - 길이 / 정밀도가 늘어난 컬럼 : ALTER TABLE ... MODIFY
+ *  - 컬럼 구성이 달라진 인덱스 / FK : DROP 후 다시 생성
+ * 데이터를 잃을 수 있는 변경 (길이 축소, 타입 변경, ERD 에 없는 컬럼, PK / UNIQUE 컬럼 변경) 은 실행하지 않고 경고만 남긴다.
+ * 없는 객체는 비교하지 않는다. (TableInit 에서 그대로 생성)
+ * 타입은 Oracle 이 저장하는 형태로 맞춰서 비교한다. (INTEGER / NUMBER(38) 는 ALL_TAB_COLUMNS 에서 정밀도 없는 NUMBER 로 보인다)
+ */
+public class SchemaDiff {
+  private static final Pattern PLAIN_COLUMN = Pattern.compile("[A-Z][A-Z0-9_$#]*");
+  private static final Pattern NOT_NULL = Pattern.compile(
+      "(\\bCONSTRAINT\\s+(\"[^\"]*\"|\\S+)\\s+)?(?<!\\bIS\\s{1,20})\\bNOT\\s+NULL\\b", Pattern.CASE_INSENSITIVE);
+  private static final int MAX_NUMBER_PRECISION = 38;
+
+  private final Map<String, List<String>> columnChanges = new LinkedHashMap<String, List<String>>();     // 테이블 < ALTER SQL >
+  private final Map<SchemaObject, String> recreates = new HashMap<SchemaObject, String>();              // 객체 < DROP SQL >
+  private final List<String> warnings = new ArrayList<String>();
+
+  private SchemaDiff() {
+  }
+
+  /**
+   * @param catalog {@code withColumns} 로 읽은 catalog
+   */
+  public static SchemaDiff compare(SchemaModel model, CatalogSnapshot catalog) {
+    SchemaDiff diff = new SchemaDiff();
+    for (SchemaObject table : model.getTables()) {
+      if (!catalog.hasTable(table.getTableName())) {
+        continue;
+      }
+      diff.compareColumns(table.getTableName(), (DdlStatement.CreateTable) table.getStatement(), catalog);
+      for (SchemaObject object : model.getObjects(table.getTableName())) {
+        diff.compareObject(object, catalog);
+      }
+    }
+    return diff;
+  }
+
+  private void compareColumns(String tableName, DdlStatement.CreateTable statement, CatalogSnapshot catalog) {
+    Map<String, ColumnDefinition> dbColumns = catalog.getColumns(tableName);
+    if (dbColumns.isEmpty()) {
+      return;   // 컬럼을 읽지 않은 catalog
+    }
+
+    Map<String, ColumnDefinition> erdColumns = new HashMap<String, ColumnDefinition>();
+    for (ColumnDefinition erd : statement.getColumns()) {
+      erdColumns.put(erd.getName(), erd);
+      ColumnDefinition db = dbColumns.get(erd.getName());
+
+      if (db == null) {
+        addColumn(tableName, erd);
+      } else if (erd.isSizedByLength() || erd.isNumber()) {
+        compareType(tableName, erd, db);
+      }
+      if (db != null && db.isNullable() != erd.isNullable()) {
+        warn(tableName + "." + erd.getName() + " NULL 여부 다름 (DB : " + (db.isNullable() ? "NULL" : "NOT NULL") + ")");
+      }
+    }
+
+    for (String name : dbColumns.keySet()) {
+      if (!erdColumns.containsKey(name)) {
+        warn(tableName + "." + name + " 은 스크립트에 없는 컬럼");
+      }
+    }
+  }
+
+  private void addColumn(String tableName, ColumnDefinition erd) {
+    String definition = erd.getDefinition();
+    if (!erd.isNullable() && !DdlScriptParser.tokenize(definition).contains("DEFAULT")) {
+      definition = NOT_NULL.matcher(definition).replaceAll("").trim();
+      warn(tableName + "." + erd.getName() + " 은 DEFAULT 없는 NOT NULL 이라 NULL 허용으로 추가함."
+          + " 값을 채운 뒤 실행 : ALTER TABLE " + tableName + " MODIFY (" + erd.getName() + " NOT NULL)");
+    }
+    addColumnChange(tableName, "ALTER TABLE " + tableName + " ADD (" + definition + ")");
+  }
+
+  private void compareType(String tableName, ColumnDefinition erd, ColumnDefinition db) {
+    String column = tableName + "." + erd.getName();
+    if (!erd.getDataType().equals(db.getDataType())) {
+      warn(column + " 타입 다름 (DB : " + db.getTypeSql() + " / ERD : " + erd.getTypeSql() + ")");
+      return;
+    }
+
+    boolean widen;
+    if (erd.isSizedByLength()) {
+      if (erd.getLength() == null || db.getLength() == null || erd.getLength().equals(db.getLength())) {
+        return;
+      }
+      widen = erd.getLength() > db.getLength();
+    } else {
+      Integer erdPrecision = precisionOf(erd);
+      Integer dbPrecision = precisionOf(db);
+      if (equals(erdPrecision, dbPrecision) && equals(erd.getScale(), db.getScale())) {
+        return;
+      }
+      widen = erdPrecision != null && dbPrecision != null
+          && erdPrecision > dbPrecision && equals(erd.getScale(), db.getScale());
+    }
+
+    if (widen) {
+      addColumnChange(tableName, "ALTER TABLE " + tableName + " MODIFY (" + erd.getName() + " " + erd.getTypeSql() + ")");
+    } else {
+      warn(column + " 크기를 줄이거나 바꿀 수 없음 (DB : " + db.getTypeSql() + " / ERD : " + erd.getTypeSql() + ")");
+    }
+  }
+
+  private void compareObject(SchemaObject object, CatalogSnapshot catalog) {
+    String tableName = object.getTableName();
+    String name = object.getName();
+    DdlStatement statement = object.getStatement();
+
+    if (statement instanceof DdlStatement.CreateIndex) {
+      if (!catalog.hasIndex(tableName, name)) {
+        return;
+      }
+      List<String> erdColumns = ((DdlStatement.CreateIndex) statement).getColumns();
+      if (isChanged(erdColumns, catalog.getIndexColumns(tableName, name))) {
+        if (catalog.hasConstraint(tableName, name)) {
+          warn(object + " 제약조건이 사용하는 인덱스의 컬럼이 다름 " + erdColumns);
+        } else {
+          recreates.put(object, "DROP INDEX " + name);
+        }
+      }
+    } else if (object.getType() == ObjectType.PK || object.getType() == ObjectType.UIX || object.getType() == ObjectType.FK) {
+      if (!catalog.hasConstraint(tableName, name)) {
+        return;
+      }
+      List<String> erdColumns = ((DdlStatement.AddConstraint) statement).getColumns();
+      if (isChanged(erdColumns, catalog.getConstraintColumns(tableName, name))) {
+        if (object.getType() == ObjectType.FK) {
+          recreates.put(object, "ALTER TABLE " + tableName + " DROP CONSTRAINT " + name);
+        } else {
+          warn(object + " 컬럼이 다름 " + erdColumns);
+        }
+      }
+    }
+  }
+
+  /**
+   * 식이나 DESC 가 들어간 컬럼 목록은 DB 의 컬럼명과 비교할 수 없으므로 같은 것으로 본다.
+   */
+  private static boolean isChanged(List<String> erdColumns, List<String> dbColumns) {
+    if (dbColumns == null) {
+      return false;
+    }
+    for (String column : erdColumns) {
+      if (!PLAIN_COLUMN.matcher(column).matches()) {
+        return false;
+      }
+    }
+    for (String column : dbColumns) {
+      if (column.startsWith("SYS_NC")) {
+        return false;
+      }
+    }
+    return !erdColumns.equals(dbColumns);
+  }
+
+  /**
+   * 정밀도 없이 소수 자리수만 0 인 NUMBER (INTEGER, NUMBER(*,0)) 는 NUMBER(38) 과 같다.
+   */
+  private static Integer precisionOf(ColumnDefinition column) {
+    if (column.getPrecision() == null && equals(column.getScale(), 0)) {
+      return MAX_NUMBER_PRECISION;
+    }
+    return column.getPrecision();
+  }
+
+  private void addColumnChange(String tableName, String sql) {
+    List<String> list = columnChanges.get(tableName);
+    if (list == null) {
+      list = new ArrayList<String>();
+      columnChanges.put(tableName, list);
+    }
+    list.add(sql);
+  }
+
+  private void warn(String message) {
+    warnings.add(message);
+  }
+
+  private static boolean equals(Integer a, Integer b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * @return 테이블의 컬럼 변경 SQL (실행 순서), 없으면 빈 목록
+   */
+  public List<String> getColumnChanges(String tableName) {
+    List<String> list = columnChanges.get(tableName);
+    return list == null ? Collections.<String>emptyList() : list;
+  }
+
+  /**
+   * @return 다시 만들어야 하는 객체의 DROP SQL, 바뀌지 않았으면 null
+   */
+  public String getDropSql(SchemaObject object) {
+    return recreates.get(object);
+  }
+
+  public List<String> getWarnings() {
+    return warnings;
+  }
+
+  /**
+   * 실행할 변경 수 (컬럼 변경 + 다시 만들 객체)
+   */
+  public int size() {
+    int count = recreates.size();
+    for (List<String> list : columnChanges.values()) {
+      count += list.size();
+    }
+    return count;
+  }
+
+  public void log(Logger logger) {
+    logger.info("[DIFF] 컬럼 변경 : {} 개 테이블 / 다시 생성 : {} / 경고 : {}", columnChanges.size(), recreates.size(), warnings.size());
+    for (Map.Entry<String, List<String>> entry : columnChanges.entrySet()) {
+      for (String sql : entry.getValue()) {
+        logger.info("[DIFF] {}", sql);
+      }
+    }
+    for (Map.Entry<SchemaObject, String> entry : recreates.entrySet()) {
+      logger.info("[DIFF] {} -> {} 후 다시 생성", entry.getKey(), entry.getValue());
+    }
+    for (String warning : warnings) {
+      logger.warn("[DIFF] {}", warning);
+    }
+  }
+}
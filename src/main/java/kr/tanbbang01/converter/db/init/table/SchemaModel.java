@@ -0,0 +1,151 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 여러 ERD 스크립트를 합친 스키마
+ *
+ * 테이블명, 제약조건 / 인덱스명, 테이블별 객체 목록으로 바로 찾을 수 있다.
+ * 같은 이름이 두번 나오면 먼저 읽은 스크립트의 것을 사용한다.
+ */
+public class SchemaModel {
+  private static Logger logger = LoggerFactory.getLogger(SchemaModel.class);
+
+  private final Map<String, SchemaObject> tables = new LinkedHashMap<String, SchemaObject>();
+  private final Map<String, SchemaObject> objects = new LinkedHashMap<String, SchemaObject>();     // 제약조건 / 인덱스명
+  private final Map<String, List<SchemaObject>> objectsByTable = new HashMap<String, List<SchemaObject>>();
+  private final Map<String, SchemaObject> primaryKeys = new HashMap<String, SchemaObject>();
+  private int duplicateCount = 0;
+
+  /**
+   * ERD 스크립트들을 순서대로 읽어서 하나의 모델로 만든다.
+   * 읽지 못한 파일은 로그만 남기고 건너뛴다.
+   * @param charset 스크립트 인코딩
+   * @param filePaths 스크립트 경로 (앞에 있는 것이 우선)
+   */
+  public static SchemaModel load(Charset charset, String... filePaths) {
+    SchemaModel model = new SchemaModel();
+    for (String filePath : filePaths) {
+      try {
+        DdlScriptParser.parse(filePath, charset, model.handler(new File(filePath).getName()));
+      } catch (IOException e) {
+        logger.error("ERD File Read Exception : {}", filePath);
+        e.printStackTrace();
+      }
+    }
+    logger.info("[MODEL] objects : {} / duplicated : {}", model.size(), model.getDuplicateCount());
+    return model;
+  }
+
+  /**
+   * 스크립트를 읽으면서 바로 모델에 넣는 handler
+   * @param sourceFile 스크립트 파일명
+   */
+  public DdlStatementHandler handler(final String sourceFile) {
+    return new DdlStatementHandler() {
+      @Override
+      public void handle(DdlStatement statement) {
+        add(sourceFile, statement);
+      }
+    };
+  }
+
+  /**
+   * @return 이미 같은 이름이 있어서 무시했으면 false
+   */
+  public boolean add(String sourceFile, DdlStatement statement) {
+    SchemaObject object = new SchemaObject(statement, sourceFile);
+    Map<String, SchemaObject> target = object.getType() == ObjectType.TABLE ? tables : objects;
+
+    SchemaObject exists = target.get(object.getName());
+    if (exists != null) {
+      duplicateCount++;
+      logger.debug("[MODEL] {} is already defined in {}. Passing...", object, exists.getSourceFile());
+      return false;
+    }
+
+    target.put(object.getName(), object);
+    if (object.getType() != ObjectType.TABLE) {
+      List<SchemaObject> list = objectsByTable.get(object.getTableName());
+      if (list == null) {
+        list = new ArrayList<SchemaObject>();
+        objectsByTable.put(object.getTableName(), list);
+      }
+      list.add(object);
+      if (object.getType() == ObjectType.PK) {
+        primaryKeys.put(object.getTableName(), object);
+      }
+    }
+    return true;
+  }
+
+  public SchemaObject getTable(String tableName) {
+    return tables.get(tableName);
+  }
+
+  /**
+   * 제약조건 / 인덱스를 이름으로 찾는다.
+   */
+  public SchemaObject getObject(String name) {
+    return objects.get(name);
+  }
+
+  public SchemaObject getPrimaryKey(String tableName) {
+    return primaryKeys.get(tableName);
+  }
+
+  /**
+   * 테이블의 제약조건 / 인덱스 (스크립트 순서)
+   */
+  public List<SchemaObject> getObjects(String tableName) {
+    List<SchemaObject> list = objectsByTable.get(tableName);
+    return list == null ? Collections.<SchemaObject>emptyList() : Collections.unmodifiableList(list);
+  }
+
+  /**
+   * FK 가 참조할 수 있는 PK / UIX
+   */
+  public List<SchemaObject> getKeys(String tableName) {
+    List<SchemaObject> keys = new ArrayList<SchemaObject>();
+    for (SchemaObject object : getObjects(tableName)) {
+      if (object.getType() == ObjectType.PK || object.getType() == ObjectType.UIX) {
+        keys.add(object);
+      }
+    }
+    return keys;
+  }
+
+  public Collection<SchemaObject> getTables() {
+    return Collections.unmodifiableCollection(tables.values());
+  }
+
+  /**
+   * 전체 제약조건 / 인덱스 (스크립트 순서)
+   */
+  public Collection<SchemaObject> getObjects() {
+    return Collections.unmodifiableCollection(objects.values());
+  }
+
+  public int size() {
+    return tables.size() + objects.size();
+  }
+
+  /**
+   * 이름이 겹쳐서 무시한 문장 수
+   */
+  public int getDuplicateCount() {
+    return duplicateCount;
+  }
+}
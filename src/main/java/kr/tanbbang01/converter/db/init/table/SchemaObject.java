@@ -0,0 +1,55 @@
+package kr.tanbbang01.converter.db.init.table;
+
+/**
+ * ERD 스크립트로 만드는 테이블 / 제약조건 / 인덱스 하나
+ */
+public class SchemaObject {
+  private final DdlStatement statement;
+  private final String sourceFile;
+
+  SchemaObject(DdlStatement statement, String sourceFile) {
+    this.statement = statement;
+    this.sourceFile = sourceFile;
+  }
+
+  public ObjectType getType() {
+    return statement.getType();
+  }
+
+  /**
+   * 테이블명 / 제약조건명 / 인덱스명
+   */
+  public String getName() {
+    return statement.getObjectName();
+  }
+
+  /**
+   * 객체가 속한 테이블명 (TABLE 이면 자기 자신)
+   */
+  public String getTableName() {
+    return statement.getTableName();
+  }
+
+  /**
+   * FK 가 참조하는 테이블명, 그 외에는 null
+   */
+  public String getReferencedTable() {
+    return statement instanceof DdlStatement.AddConstraint ? ((DdlStatement.AddConstraint) statement).getReferencedTable() : null;
+  }
+
+  /**
+   * 이 객체를 정의한 ERD 스크립트 파일명
+   */
+  public String getSourceFile() {
+    return sourceFile;
+  }
+
+  public DdlStatement getStatement() {
+    return statement;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + sourceFile + "] " + getTableName() + " - " + getName() + " : " + getType();
+  }
+}
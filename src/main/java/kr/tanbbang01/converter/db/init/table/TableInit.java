@@ -1,22 +1,25 @@
 package kr.tanbbang01.converter.db.init.table;
 
 import com.google.common.base.Stopwatch;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import kr.tanbbang01.converter.util.Fingerprint;
 import kr.tanbbang01.converter.util.Resourcer;
+import kr.tanbbang01.converter.util.RunState;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -41,15 +44,22 @@ public class TableInit {
   private String smufFilePath = null;
   private String dbLinkName = null;
   private String owner = null;
+  private Charset erdCharset = null;
   private Resourcer config = null;
+  private RunState runState = null;
   private Connection conn = null;
   private Connection destConn = null;
+  private BasicDataSource destBds = null;
+  private int ddlWorkerCount = 4;
+  private int fkWorkerCount = 4;
+  private String exceptionsTable = null;
+  private CatalogSnapshot catalog = null;
 
-  LinkedHashMap<String, LinkedHashMap<String, String>> targetMap = null;
-  LinkedHashMap<String, String> constraintsMap = new LinkedHashMap<String, String>();
+  private boolean deferIndexes = false;
 
   public TableInit(String configFile) throws SQLException {
     this.config = Resourcer.getInstance(configFile);
+    this.runState = RunState.getInstance(configFile);
 
     BasicDataSource sourceBds = new BasicDataSource();
     sourceBds.setDriverClassName(config.getString("SOURCE_JDBC"));
@@ -61,7 +71,7 @@ public class TableInit {
     sourceBds.setDefaultAutoCommit(true);
     conn = sourceBds.getConnection();
 
-    BasicDataSource destBds = new BasicDataSource();
+    destBds = new BasicDataSource();
     destBds.setDriverClassName(config.getString("DEST_JDBC"));
     destBds.setUrl(config.getString("DEST_CONNECTION_STRING"));
     destBds.setUsername(config.getString("DEST_USER"));
@@ -75,6 +85,11 @@ public class TableInit {
     s8FilePath = config.getString("SOLARS8_INIT_FILE_PATH");
     smufFilePath = config.getString("SMUF2_INIT_FILE_PATH");
     owner = config.getString("DEST_USER");
+    erdCharset = Charset.forName(config.getString("ERD_FILE_ENCODING", Charset.defaultCharset().name()));
+    ddlWorkerCount = config.getInt("DDL_WORKER_COUNT", ddlWorkerCount);
+    deferIndexes = config.getBoolean("DEFER_INDEXES", deferIndexes);
+    fkWorkerCount = config.getInt("FK_WORKER_COUNT", fkWorkerCount);
+    exceptionsTable = config.getString("FK_EXCEPTIONS_TABLE", "EXCEPTIONS");
   }
 
   private void connClose() {
@@ -90,11 +105,30 @@ public class TableInit {
     Stopwatch stopwatch = new Stopwatch();
     stopwatch.start();
 
-    targetMap = new LinkedHashMap<String, LinkedHashMap<String, String>>();  // 모든 대상을 담는 Map
-    createSolars8CodeDBLink();      // DB LINK 생성
-    createS8Table();                // Solars8 테이블 생성
-    createSmuf2Table();             // Smuf2 테이블 생성
-    disabledFk();                   // FK 비활성화
+    String inputs = inputsFingerprint();
+    if (runState.isUpToDate("table", inputs, catalogFingerprint())) {   // ERD / 설정 / 대상 DB 가 마지막 성공 실행과 같음
+      logger.info("[RUN STATE] table - 변경 없음. Passing... ({} ms)", stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+      connClose();
+      return;
+    }
+
+    try {
+      catalog = CatalogSnapshot.load(destConn, owner, true);   // 대상 DB 의 객체 / 컬럼 목록
+    } catch (SQLException e) {
+      logger.error("[CATALOG] Exception : {}", owner);
+      e.printStackTrace();
+      connClose();
+      return;
+    }
+
+    boolean done = createSolars8CodeDBLink();      // DB LINK 생성
+    done &= createTables();                         // Solars8 , Smuf2 테이블 생성
+    done &= disabledFk();                           // FK 비활성화
+    if (done) {
+      runState.markDone("table", inputs, catalogFingerprint(), "seqFunc", "index", "enableFk");
+    } else {
+      runState.markFailed("table");
+    }
     connClose();
 
     stopwatch.stop(); // optional
@@ -105,53 +139,46 @@ public class TableInit {
 
   /**
    * 변환을 위해 설정되어 있는 FK 를 비활성화 시킨다.
+   * 테이블별로 FK_WORKER_COUNT 개의 Connection 으로 동시에 실행한다.
    */
-  private void disabledFk() {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    String alterSql = "";
-
-    StringBuilder sb = new StringBuilder();
-    sb.append("  SELECT 'ALTER TABLE '||x.table_name ||' DISABLE CONSTRAINT '|| x.constraint_name ");
-    sb.append("    FROM ( SELECT table_name, constraint_name ");
-    sb.append("             FROM USER_CONSTRAINTS ");
-    sb.append("           WHERE TABLE_NAME IN ( SELECT table_name ");
-    sb.append("                                   FROM all_tables ");
-    sb.append("                                   WHERE owner = ? ) ");
-    sb.append("             AND constraint_type = 'R' ");
-    sb.append("         ) x ");
-    sb.append("   ORDER BY x.table_name , x.constraint_name ");
-
+  private boolean disabledFk() {
     try{
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.setString(1, owner.toUpperCase());
-      rs = pstmt.executeQuery();
-      pstmt.clearParameters();
-
-      while (rs.next()) {
-        alterSql = rs.getString(1);
-        logger.info("Alter SQL [ {} ]", alterSql);
-        pstmt = destConn.prepareStatement(alterSql);
-        pstmt.executeUpdate();
-        pstmt.close();
-      }
-
+      ForeignKeyManager fkManager = new ForeignKeyManager(destBds, owner, fkWorkerCount, exceptionsTable);
+      TaskReport report = fkManager.disableAll(destConn);
+      report.log(logger);
+      return report.isAllDone();
     } catch (SQLException e) {
-      logger.error("SQL Exception !! SQL [ {} ]", alterSql);
+      logger.error("[FK DISABLE] Exception : {}", e.getMessage());
       e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try {
-          pstmt.close();
-        } catch (SQLException e) {  }
-      }
-      if (rs != null) {
-        try {
-          rs.close();
-        } catch (SQLException e) {  }
-      }
+      return false;
     }
+  }
 
+  /**
+   * table 단계의 입력 해시
+   * 실행할 DDL 은 ERD 스크립트 내용과 아래 설정으로만 정해지므로 스크립트를 읽지 않고 파일 해시로 대신한다.
+   */
+  private String inputsFingerprint() {
+    return new Fingerprint()
+        .addFile(s8FilePath)
+        .addFile(smufFilePath)
+        .add(erdCharset.name())
+        .add(dbLinkName)
+        .add(owner)
+        .add(deferIndexes)
+        .toString();
+  }
+
+  /**
+   * @return 대상 DB 카탈로그 지문, 조회하지 못하면 null
+   */
+  private String catalogFingerprint() {
+    try {
+      return CatalogSnapshot.fingerprint(destConn, owner);
+    } catch (SQLException e) {
+      logger.warn("[RUN STATE] Catalog Fingerprint Exception : {}", e.getMessage());
+      return null;
+    }
   }
 
   /**
@@ -165,7 +192,7 @@ public class TableInit {
 
     try{
       logger.debug("========================================== ");
-      boolean isExistsLink = isExistsDatabaseLink();    //DataBase Link 가 존재하는지 여부 확인
+      boolean isExistsLink = catalog.hasDatabaseLink(dbLinkName);    //DataBase Link 가 존재하는지 여부 확인
 
       if(!isExistsLink) {   //없으면 생성
         logger.debug("00.SOLARS8_CODE DBLink Creating Start .....");
@@ -177,12 +204,13 @@ public class TableInit {
 
         pstmt = destConn.prepareStatement(sb.toString());
 
-        result = pstmt.execute();
+        pstmt.execute();
+        catalog.addDatabaseLink(dbLinkName);
       } else {      //있으면 Pass
         logger.debug("00.SOLARS8_CODE DBLINK is Exist. Passing...");
       }
 
-      result = isExistsDatabaseLink();
+      result = catalog.hasDatabaseLink(dbLinkName);
       logger.debug("00.SOLARS8_CODE DBLINK Create END");
       logger.debug("========================================== ");
     } catch(SQLException e) {
@@ -203,470 +231,108 @@ public class TableInit {
   }
 
   /**
-   * DBLINK 가 존재하는지 확인
-   * @return DBLINK 가 존재할 시 true / 없을 시 false
+   * Solars8 , Smuf2 테이블 생성
+   *
+   * 두 스크립트를 모두 읽어서 대상 DB 와 비교한 뒤, 없거나 달라진 객체만 하나의 작업 그래프로 만들어서
+   * DDL_WORKER_COUNT 개의 Connection 으로 동시에 실행한다.
+   * 실패한 작업에 의존하는 작업만 건너뛴다.
+   *
+   * DEFER_INDEXES=true 이면 테이블만 만들고 PK / UIX / IDX / FK / CK 는 데이터 적재 후
+   * {@link IndexBuildInit} 에서 만든다.
+   * @return 실패하거나 건너뛴 작업이 없으면 true
    */
-  private boolean isExistsDatabaseLink() {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    Boolean result = true;
-
-    try {
-      Integer cntTable = 0;
-
-      StringBuffer sb = new StringBuffer();
-      sb.append(" SELECT count(1) ");
-      sb.append(" FROM dba_objects ");
-      sb.append(" WHERE object_type = 'DATABASE LINK' ");
-      sb.append("  AND object_name = ? ");
-
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.setString(1, dbLinkName.toUpperCase());
-      rs = pstmt.executeQuery();
-
-      if(rs.next()) {
-        cntTable = rs.getInt(1);
-      }
-
-      if(cntTable == 0) {
-        result = false;
-      }
-
-    } catch (SQLException e){
-      e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try{
-          pstmt.close();
-        } catch (SQLException e) {        }
-      }
-      if (rs != null) {
-        try{
-          rs.close();
-        } catch (SQLException e) {        }
-      }
+  private boolean createTables() {
+    logger.debug("========================================== ");
+    logger.debug("01. SOLARS8 / SMUF2 Tables && Indexes Creating .....");
+    SchemaModel model = SchemaModel.load(erdCharset, s8FilePath, smufFilePath);
+    SchemaDiff diff = SchemaDiff.compare(model, catalog);
+    diff.log(logger);
+
+    TaskScheduler scheduler = new TaskScheduler("DDL", destBds, ddlWorkerCount);
+    if (deferIndexes) {
+      scheduleDdl(model, scheduler, catalog, EnumSet.of(ObjectType.TABLE), null, diff);
+      logger.info("[DDL] DEFER_INDEXES - {} 개의 PK / INDEX / FK 는 데이터 적재 후 생성", model.size() - model.getTables().size());
+    } else {
+      scheduleDdl(model, scheduler, catalog, EnumSet.allOf(ObjectType.class), null, diff);
     }
 
-    return result;
+    TaskReport report = scheduler.run();
+    report.log(logger);
+    logger.debug("01. SOLARS8 / SMUF2 Tables && Indexes Create End ");
+    logger.debug("========================================== ");
+    return report.isAllDone();
   }
 
   /**
-   * 테이블이 존재하는지 확인
-   * @param tableName
-   * @return 테이블이 존재할 시 true / 없을 시 false
+   * model 과 대상 DB 의 차이만 DDL 작업으로 만들어서 선후 관계와 함께 scheduler 에 등록한다.
+   *   TABLE (또는 컬럼 변경) -> PK -> UIX / IDX / CK
+   *   TABLE , PK , 참조 테이블의 PK / UIX -> FK
+   * 이미 존재하는 객체는 등록하지 않고, 정의가 달라진 객체 (diff) 만 변경 / 재생성 작업으로 등록한다.
+   * 등록되지 않은 객체와의 선후 관계는 이미 만족된 것으로 본다.
+   * 스크립트에 없는 테이블의 제약조건 / 인덱스는 등록하지 않는다.
+   *
+   * @param types 등록할 객체 종류. 등록하지 않은 객체와의 선후 관계는 무시한다.
+   * @param buildOptions 인덱스를 PARALLEL / NOLOGGING 으로 만들 때 지정 (null 이면 스크립트 그대로)
+   * @param diff 정의가 달라진 객체 (null 이면 없는 객체만 만든다)
+   * @return 객체 < 등록된 작업 >
    */
-  private boolean isExistsTable(String tableName) {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    Boolean result = true;
-
-    try {
-      Integer cntTable = 0;
-
-      StringBuffer sb = new StringBuffer();
-      sb.append(" SELECT count(1) ");
-      sb.append("   FROM DBA_TABLES ");
-      sb.append("  WHERE table_name = ? ");
-
-      pstmt = destConn.prepareStatement(sb.toString());
-      pstmt.setString(1, tableName.toUpperCase());
-      rs = pstmt.executeQuery();
-
-      if(rs.next()) {
-        cntTable = rs.getInt(1);
-      }
-
-      if(cntTable == 0) {
-        result = false;
-      }
-
-    } catch (SQLException e){
-      e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try{
-          pstmt.close();
-        } catch (SQLException e) {        }
-      }
-      if (rs != null) {
-        try{
-          rs.close();
-        } catch (SQLException e) {        }
+  static Map<SchemaObject, TaskScheduler.Node> scheduleDdl(SchemaModel model, TaskScheduler scheduler, CatalogSnapshot catalog,
+                                                           Set<ObjectType> types, IndexBuildOptions buildOptions, SchemaDiff diff) {
+    Map<SchemaObject, TaskScheduler.Node> nodes = new HashMap<SchemaObject, TaskScheduler.Node>();
+    int existsCount = 0;
+
+    if (types.contains(ObjectType.TABLE)) {
+      for (SchemaObject table : model.getTables()) {
+        if (!DdlTask.isExistsInDb(table, catalog)) {
+          nodes.put(table, scheduler.add(new DdlTask(table, catalog, buildOptions)));
+        } else if (diff != null && !diff.getColumnChanges(table.getTableName()).isEmpty()) {
+          nodes.put(table, scheduler.add(new AlterColumnsTask(table.getTableName(), diff.getColumnChanges(table.getTableName()))));
+        } else {
+          existsCount++;
+        }
       }
     }
 
-    return result;
-  }
-
-  /**
-   * PK / INDEX 제약 조건이 존재하는 지 여부를 체크한다.
-   * @param tableName
-   * @return
-   */
-  private boolean isExistsIndex(String tableName, String indexName, String gubun) {
-    PreparedStatement pstmt = null;
-    ResultSet rs = null;
-    Boolean result = true;
-
-    try {
-      Integer cntIndex = 0;
-
-      StringBuffer sb = new StringBuffer();
-      if (gubun.equals("PK") || gubun.equals("IDX") || gubun.equals("UIX")) {
-        sb.append(" SELECT count(1) ");
-        sb.append("   FROM ALL_INDEXES A, ALL_IND_COLUMNS B ");
-        sb.append("  WHERE A.INDEX_NAME = B.INDEX_NAME ");
-        sb.append("    AND A.TABLE_NAME= ? ");
-        sb.append("    AND B.INDEX_NAME = ? ");
-      } else if (gubun.equals("FK")) {
-        sb.append(" SELECT count(1) ");
-        sb.append(" FROM ALL_CONSTRAINTS ");
-        sb.append(" WHERE constraint_name = ? ");
-        sb.append("  AND table_name = ? ");
-      }
-
-      pstmt = destConn.prepareStatement(sb.toString());
-
-      if ( gubun.equals("PK") || gubun.equals("IDX") || gubun.equals("UIX") ) {
-        pstmt.setString(1, tableName.toUpperCase());
-        pstmt.setString(2, indexName.toUpperCase());
-      } else if ( gubun.equals("FK") ) {
-        pstmt.setString(1, indexName.toUpperCase());
-        pstmt.setString(2, tableName.toUpperCase());
+    for (SchemaObject object : model.getObjects()) {
+      if (!types.contains(object.getType())) {
+        continue;
       }
-
-      rs = pstmt.executeQuery();
-
-      if(rs.next()) {
-        cntIndex = rs.getInt(1);
+      if (model.getTable(object.getTableName()) == null) {
+        logger.warn("{} Table is not in scripts. Passing...", object);
+        continue;
       }
 
-      if(cntIndex == 0) {
-        result = false;
-      }
-
-    } catch (SQLException e){
-      e.printStackTrace();
-    } finally {
-      if (pstmt != null) {
-        try{
-          pstmt.close();
-        } catch (SQLException e) {        }
-      }
-      if (rs != null) {
-        try{
-          rs.close();
-        } catch (SQLException e) {        }
+      String dropSql = diff == null ? null : diff.getDropSql(object);
+      if (dropSql != null) {
+        nodes.put(object, scheduler.add(new DdlTask(object, catalog, buildOptions, dropSql)));
+      } else if (!DdlTask.isExistsInDb(object, catalog)) {
+        nodes.put(object, scheduler.add(new DdlTask(object, catalog, buildOptions)));
+      } else {
+        existsCount++;
       }
     }
+    logger.info("[DDL] 이미 존재 : {} / 실행할 작업 : {}", existsCount, nodes.size());
 
-    return result;
-  }
-
-  /**
-   * CREATE TABLE  xxx
-   * CREATE INDEX  xxxx
-   * CREATE UNIQUE INDEX  xxxx  ON yyyy
-   * ALTER TABLE xxxxx ADD CONSTRAINT yyyy
-   *
-   * 전체 구조
-   * 테이블명 < 인덱스 Type , Scripts >
-   *   ex> COPY_T < COPY_T , CREATE TABLE .... >
-   *       DB_TOKEN < PK , ALTER TABLE .... >
-   *       DB_TOKEN < UIX , CREATE UNIQUE INDEX .... >
-   *       DB_TOKEN < IDX , CREATE INDEX .... >
-   * @return
-   */
-  private LinkedHashMap<String, LinkedHashMap<String, String>> makeSqlMap(String gubun) {
-
-    BufferedReader fileReadbr = null; // 파일 읽기
-    StringBuffer sb = new StringBuffer();
-    try {
-      if(gubun.equals("Solars8")) {
-        fileReadbr = new BufferedReader(new FileReader(s8FilePath));
-      } else if (gubun.equals("Smuf2")) {
-        fileReadbr = new BufferedReader(new FileReader(smufFilePath));
+    for (SchemaObject object : model.getObjects()) {
+      TaskScheduler.Node node = nodes.get(object);
+      if (node == null) {
+        continue;
       }
 
-      String sqlInfo = "";
-      String str;
-      while ((str = fileReadbr.readLine()) != null) {
-        sqlInfo = sb.append(str).toString();
+      String tableName = object.getTableName();
+      node.dependsOn(nodes.get(model.getTable(tableName)));
+      if (object.getType() != ObjectType.PK) {
+        node.dependsOn(nodes.get(model.getPrimaryKey(tableName)));
       }
-
-      String[] queryArr = sqlInfo.split(";");
-
-      String tableName = "";
-      String indexName = "";
-      LinkedHashMap<String, String> valueMap = null;
-      LinkedHashMap<String, String> existsValueMap = null;
-      LinkedHashMap<String, String> existsConstMap = null;
-
-      for (String query : queryArr) {
-        String[] tmpTarget = query.split(" ");    // CREATE || TABLE || COPY_T
-
-        if (query.indexOf("CREATE TABLE") == 0) {
-          tableName = tmpTarget[2]; // CREATE TABLE xxxxx 에서 xxxx 만 가져온다.
-          if (!targetMap.containsKey(tableName)) {
-            existsConstMap = new LinkedHashMap<String, String>();
-            existsConstMap.put(tableName, "TABLE");
-            constraintsMap.putAll(existsConstMap);
-
-            valueMap = new LinkedHashMap<String, String>();
-            valueMap.put(tableName, query);
-            targetMap.put(tableName, valueMap);
-          }
-        } else if (query.indexOf("ALTER TABLE") == 0 && query.indexOf("ADD CONSTRAINT") > 0) {
-
-          if (targetMap.containsKey(tmpTarget[2])) {
-            existsValueMap = targetMap.get(tmpTarget[2]);
-            String constraintType = tmpTarget[5].substring(0,2);
-
-            if (!existsValueMap.containsKey(tmpTarget[5])) {
-              existsConstMap = new LinkedHashMap<String, String>();
-              existsConstMap.put(tmpTarget[5], constraintType);
-              constraintsMap.putAll(existsConstMap);
-
-              valueMap = new LinkedHashMap<String, String>();
-              valueMap.put(tmpTarget[5], query);
-              existsValueMap.putAll(valueMap);
-            }
-          }
-          targetMap.put(tmpTarget[2], existsValueMap);
-
-        } else if (query.indexOf("ON") > 0) {
-          valueMap = new LinkedHashMap<String, String>();
-
-          if (query.indexOf("CREATE INDEX") == 0 && !valueMap.containsKey(tmpTarget[2])) {
-
-            if (targetMap.containsKey(tmpTarget[4])) {     // 테이블 명으로 찾고
-              existsValueMap = targetMap.get(tmpTarget[4]);      // 있으면 가져온다
-              String constraintType = tmpTarget[2].substring(0,3);
-
-              if (!existsValueMap.containsKey(tmpTarget[2])) {   // 제약조건 명으로 찾고
-                existsConstMap = new LinkedHashMap<String, String>();
-                existsConstMap.put(tmpTarget[2], constraintType);
-                constraintsMap.putAll(existsConstMap);
-
-                //valueMap = new LinkedHashMap<>();
-                valueMap.put(tmpTarget[2], query);         // 없으면 넣는다.
-                existsValueMap.putAll(valueMap);
-              }
-            }
-            targetMap.put(tmpTarget[4], existsValueMap);
-
-          } else if (query.indexOf("CREATE UNIQUE INDEX") == 0 && !valueMap.containsKey(tmpTarget[3])) {
-
-            if (targetMap.containsKey(tmpTarget[5])) {     // 테이블 명으로 찾고
-              existsValueMap = targetMap.get(tmpTarget[5]);      // 있으면 가져온다
-              String constraintType = tmpTarget[3].substring(0,3);
-
-              if (!existsValueMap.containsKey(tmpTarget[3])) {   // 제약조건 명으로 찾고
-                constraintsMap.put(tmpTarget[3], constraintType);
-                //valueMap = new LinkedHashMap<>();
-                valueMap.put(tmpTarget[3], query);         // 없으면 넣는다.
-                existsValueMap.putAll(valueMap);
-              }
-            }
-            targetMap.put(tmpTarget[5], existsValueMap);
-          }
+      if (object.getType() == ObjectType.FK) {
+        String referencedTable = object.getReferencedTable();
+        node.dependsOn(nodes.get(model.getTable(referencedTable)));
+        for (SchemaObject key : model.getKeys(referencedTable)) {
+          node.dependsOn(nodes.get(key));
         }
       }
-    } catch (IOException e) {
-      e.printStackTrace();
-
-    } finally {
-      try{
-        fileReadbr.close();
-      } catch (IOException e) {      }
-
     }
-
-    return targetMap;
-  }
-
-  /**
-   * ConstraintsType 으로 테이블 및 INDEX 가 존재하는지 확인한다.
-   *
-   * @param gubun TABLE 인지 Constraint 인지 여부
-   * @param tableName  인덱스 존재 여부를 체크시 사용
-   * @param constraintName Constraint 명
-   */
-  private boolean isExistsInDb (String tableName, String constraintName, String gubun) {
-    Boolean isExist = false;
-    ArrayList<String> tableKey = new ArrayList<String>();
-    tableKey.add("TABLE");
-
-    ArrayList<String> indexKey = new ArrayList<String>();
-    indexKey.add("IDX");
-    indexKey.add("UIX");
-    indexKey.add("PK");
-    indexKey.add("FK");
-
-    if (tableKey.contains(gubun)) {
-      isExist = isExistsTable(tableName);
-    } else if (indexKey.contains(gubun)) {
-      isExist = isExistsIndex(tableName, constraintName, gubun);
-    }
-
-    return isExist;
-  }
-
-  /**
-   * Solars8 테이블 생성
-   * @return result 개 중 하나만 false 여도 false
-   */
-  private boolean createS8Table() {
-    PreparedStatement pstmt = null;
-    Boolean result = false;
-    String exceptionObjectName = "";
-    String exceptionSql = "";
-
-    try{
-      logger.debug("========================================== ");
-      logger.debug("01. SOLARS8 Tables && Indexes Creating .....");
-      HashMap<String, LinkedHashMap<String, String>> s8SqlMap = makeSqlMap("Solars8");
-      Iterator s8Iterator = s8SqlMap.keySet().iterator();   // 전체 KEY
-
-      while (s8Iterator.hasNext()) {
-        String key = (String) s8Iterator.next();
-        LinkedHashMap<String, String> valuesMap = s8SqlMap.get(key);
-        Iterator queryIter = valuesMap.keySet().iterator();
-
-        while (queryIter.hasNext()) {
-
-          String constKey = queryIter.next().toString();    //tableName
-          exceptionObjectName = constKey;
-          String query = valuesMap.get(constKey);         // CREATE TABLE 일 시는 TableName
-                                                          // ALTER TABLE 일때는 PK || FK
-                                                          // CREATE INDEX 일 때는 UIX || IDX
-          exceptionSql = query;
-          Iterator constIter = constraintsMap.keySet().iterator();
-          while(constIter.hasNext()) {
-            Boolean isExists = false;
-            String constName = (String) constIter.next(); // Constraint Name
-            if (constName.equals(constKey)) {
-
-              String type = constraintsMap.get(constName);
-              if(type.equals("TABLE")) {
-                isExists = isExistsInDb(constKey, constKey, type);
-              } else { // PK 와 FK 를 분리..
-                isExists = isExistsInDb(key, constName, type);
-              }
-
-              if(!isExists) {
-                pstmt = destConn.prepareStatement(query);
-                // 결과 값을 받아봐야 의미가 없다... CREATE || ALTER 는 result 가 항상 false 내지 0 이다.
-                pstmt.executeUpdate();
-                pstmt.close();
-
-                if(type.equals("TABLE")) {
-                  isExists = isExistsInDb(constKey, constKey, type);
-                  logger.info("[Solars8] [ {} ] - [ {}  : {} ] is Exists ? : {}", key, constKey, type, isExists);
-                } else {
-                  isExists = isExistsInDb(key, constName, type);
-                  logger.info("[Solars8] [ {} ] - [ {} : {} ] is Exists ? : {}", key, constName, type, isExists);
-                }
-                result = isExists;
-              } else {
-                logger.info("[Solars8] [ {} ] is Exists. Passing.. ", key);
-              }
-            }
-
-          }
-        }
-      }
-      logger.debug("01. SOLARS8 Tables && Indexes Create End ");
-      logger.debug("========================================== ");
-    }catch(Exception e){
-      logger.error("[ {} ] Query : {}", exceptionObjectName, exceptionSql);
-      e.printStackTrace();
-    } finally {
-      if(pstmt != null) {
-        try{
-          pstmt.close();
-        }catch(SQLException e) { }
-      }
-    }
-    return result;
-  }
-
-
-  /**
-   * Solars8 테이블 생성
-   * @return result 개 중 하나만 false 여도 false
-   */
-  private boolean createSmuf2Table() {
-    PreparedStatement pstmt = null;
-    Boolean result = false;
-    String exceptionObjectName = "";
-    String exceptionSql = "";
-
-    try{
-      logger.debug("========================================== ");
-      logger.debug("02. SMUF2 Tables && Indexes Creating .....");
-      HashMap<String, LinkedHashMap<String, String>> s8SqlMap = makeSqlMap("Smuf2");
-      Iterator s8Iterator = s8SqlMap.keySet().iterator();   // 전체 KEY
-
-      while (s8Iterator.hasNext()) {
-        String key = (String) s8Iterator.next();
-        LinkedHashMap<String, String> valuesMap = s8SqlMap.get(key);
-        Iterator queryIter = valuesMap.keySet().iterator();
-
-        while (queryIter.hasNext()) {
-
-          String constKey = queryIter.next().toString();    //tableName
-          exceptionObjectName = constKey;
-          String query = valuesMap.get(constKey);         // CREATE TABLE 일 시는 TableName
-                                                          // ALTER TABLE 일때는 PK || FK
-                                                          // CREATE INDEX 일 때는 UIX || IDX
-          exceptionSql = query;
-          Iterator constIter = constraintsMap.keySet().iterator();
-          while(constIter.hasNext()) {
-            Boolean isExists = false;
-            String constName = (String) constIter.next(); // Constraint Name
-            if (constName.equals(constKey)) {
-              String type = constraintsMap.get(constName);
-              if(type.equals("TABLE")) {
-                isExists = isExistsInDb(constKey, constKey, type);
-              } else {
-                isExists = isExistsInDb(key, constName, type);
-              }
-
-              if(!isExists) {
-                pstmt = destConn.prepareStatement(query);
-                // 결과 값을 받아봐야 의미가 없다... CREATE || ALTER 는 result 가 항상 false 내지 0 이다.
-                pstmt.executeUpdate();
-                pstmt.close();
-
-                if(type.equals("TABLE")) {
-                  isExists = isExistsInDb(constKey, constKey, type);
-                  logger.info("[SMUF2] [ {} ] - [ {}  : {} ] is Exists ? : {}", key, constKey, type, isExists);
-                } else {
-                  isExists = isExistsInDb(key, constName, type);
-                  logger.info("[SMUF2] [ {} ] - [ {} : {} ] is Exists ? : {}", key, constName, type, isExists);
-                }
-                result = isExists;
-              } else {
-                logger.info("[SMUF2] [ {} ] is Exists. Passing... ", key);
-              }
-            }
-          }
-        }
-      }
-      logger.debug("02. SMUF2 Tables && Indexes Create End ");
-      logger.debug("========================================== ");
-    }catch(Exception e){
-      logger.error("[ {} ] Query : {}", exceptionObjectName, exceptionSql);
-      e.printStackTrace();
-    } finally {
-      if(pstmt != null) {
-        try{
-          pstmt.close();
-        }catch(SQLException e) { }
-      }
-    }
-    return result;
+    return nodes;
   }
 
 }
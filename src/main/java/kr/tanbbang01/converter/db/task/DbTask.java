@@ -0,0 +1,22 @@
+package kr.tanbbang01.converter.db.task;
+
+import java.sql.Connection;
+
+/**
+ * {@link TaskScheduler} 에서 실행하는 작업 하나
+ */
+public interface DbTask {
+
+  /**
+   * 로그 및 결과 요약에 표시할 이름
+   */
+  String getName();
+
+  /**
+   * 작업을 실행한다.
+   * @param conn 작업자 쓰레드가 들고 있는 Connection
+   * @return 실행했으면 true / 이미 되어 있어서 할 일이 없으면 false
+   * @throws Exception 실패 시. 이 작업에 의존하는 작업들은 실행하지 않는다.
+   */
+  boolean execute(Connection conn) throws Exception;
+}
@@ -0,0 +1,93 @@
+package kr.tanbbang01.converter.db.task;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link TaskScheduler} 실행 결과 요약
+ */
+public class TaskReport {
+  private final String phase;
+  private final List<TaskResult> results;
+  private final long elapsedMillis;
+  private final long[] workerBusyMillis;
+  private final int[] workerTaskCounts;
+
+  TaskReport(String phase, List<TaskResult> results, long elapsedMillis, long[] workerBusyMillis, int[] workerTaskCounts) {
+    this.phase = phase;
+    this.results = Collections.unmodifiableList(results);
+    this.elapsedMillis = elapsedMillis;
+    this.workerBusyMillis = workerBusyMillis;
+    this.workerTaskCounts = workerTaskCounts;
+  }
+
+  public List<TaskResult> getResults() {
+    return results;
+  }
+
+  public List<TaskResult> getResults(TaskResult.Status status) {
+    List<TaskResult> list = new ArrayList<TaskResult>();
+    for (TaskResult result : results) {
+      if (result.getStatus() == status) {
+        list.add(result);
+      }
+    }
+    return list;
+  }
+
+  public int count(TaskResult.Status status) {
+    return getResults(status).size();
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * 작업자들이 작업을 실행한 시간의 합 / (작업자 수 * 전체 실행 시간)
+   * 1 에 가까울수록 작업자가 쉬지 않고 일했다.
+   */
+  public double getUtilization() {
+    if (workerBusyMillis.length == 0 || elapsedMillis == 0) {
+      return 0;
+    }
+    long busy = 0;
+    for (long millis : workerBusyMillis) {
+      busy += millis;
+    }
+    return Math.min(1.0, (double) busy / (workerBusyMillis.length * elapsedMillis));
+  }
+
+  /**
+   * 작업자별 실행 시간과 가동률을 남긴다.
+   */
+  public void logWorkers(Logger logger) {
+    for (int i = 0; i < workerBusyMillis.length; i++) {
+      logger.info("[{}] worker-{} : 작업 {} 개 / 실행 {} ms / 가동률 {}%", phase, i, workerTaskCounts[i], workerBusyMillis[i],
+          elapsedMillis == 0 ? 0 : Math.min(100, workerBusyMillis[i] * 100 / elapsedMillis));
+    }
+  }
+
+  /**
+   * 실패하거나 건너뛴 작업이 없으면 true
+   */
+  public boolean isAllDone() {
+    return count(TaskResult.Status.FAIL) == 0 && count(TaskResult.Status.SKIP) == 0;
+  }
+
+  public void log(Logger logger) {
+    logger.info("[{}] 전체 : {} / 성공 : {} / 통과 : {} / 건너뜀 : {} / 실패 : {} / 실행 시간 : {} ms / 가동률 : {}%",
+        phase, results.size(), count(TaskResult.Status.SUCCESS), count(TaskResult.Status.PASS),
+        count(TaskResult.Status.SKIP), count(TaskResult.Status.FAIL), elapsedMillis, Math.round(getUtilization() * 100));
+
+    for (TaskResult result : getResults(TaskResult.Status.FAIL)) {
+      logger.error("[{}] FAIL - {} : {}", phase, result.getName(), result.getError());
+    }
+    for (TaskResult result : getResults(TaskResult.Status.SKIP)) {
+      logger.warn("[{}] SKIP - {} (선행 작업 실패 : {})", phase, result.getName(), result.getCause());
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package kr.tanbbang01.converter.db.task;
+
+/**
+ * 작업 하나의 실행 결과
+ */
+public class TaskResult {
+  public enum Status {
+    SUCCESS,    // 실행 완료
+    PASS,       // 이미 되어 있어서 실행하지 않음
+    SKIP,       // 선행 작업이 실패해서 실행하지 않음
+    FAIL        // 실행 중 오류
+  }
+
+  private final String name;
+  private final Status status;
+  private final long elapsedMillis;
+  private final Throwable error;
+  private final String cause;
+
+  TaskResult(String name, Status status, long elapsedMillis, Throwable error, String cause) {
+    this.name = name;
+    this.status = status;
+    this.elapsedMillis = elapsedMillis;
+    this.error = error;
+    this.cause = cause;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * FAIL 일 때 발생한 오류
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * SKIP 일 때 원인이 된 작업명
+   */
+  public String getCause() {
+    return cause;
+  }
+}
@@ -0,0 +1,307 @@
+package kr.tanbbang01.converter.db.task;
+
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 선후 관계가 있는 작업들을 여러 Connection 으로 동시에 실행한다.
+ *
+ * 작업자 쓰레드마다 DataSource 에서 Connection 을 하나씩 가져와서 끝날 때까지 사용하며,
+ * 선행 작업이 모두 끝난 작업 중에서 무게 (예: 예상 크기) 가 큰 것부터, 같으면 등록 순서대로 실행한다. (LPT)
+ * 큰 작업을 먼저 시작하고 남는 작업자가 작은 작업을 가져가므로 마지막에 큰 작업 하나만 남는 일이 줄어든다.
+ * 작업이 실패하면 그 작업에 (직간접적으로) 의존하는 작업들만 건너뛰고 나머지는 계속 실행한다.
+ *
+ * <pre>
+ *   TaskScheduler scheduler = new TaskScheduler("DDL", destBds, 4);
+ *   TaskScheduler.Node table = scheduler.add(createTable);
+ *   scheduler.add(createPk).dependsOn(table);
+ *   TaskReport report = scheduler.run();
+ * </pre>
+ */
+public class TaskScheduler {
+  private static Logger logger = LoggerFactory.getLogger(TaskScheduler.class);
+
+  private final String phase;
+  private final DataSource dataSource;
+  private final int workerCount;
+
+  private final List<Node> nodes = new ArrayList<Node>();
+  private final PriorityBlockingQueue<Node> ready = new PriorityBlockingQueue<Node>(64, new Comparator<Node>() {
+    @Override
+    public int compare(Node o1, Node o2) {
+      if (o1.weight != o2.weight) {
+        return o1.weight > o2.weight ? -1 : 1;
+      }
+      return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+    }
+  });
+  private final Node poison = new Node(null, Integer.MAX_VALUE).weight(Long.MIN_VALUE);
+
+  private final Object lock = new Object();
+  private final List<TaskResult> results = new ArrayList<TaskResult>();
+  private int liveWorkers = 0;
+  private long[] workerBusyMillis = new long[0];
+  private int[] workerTaskCounts = new int[0];
+
+  /**
+   * @param phase 로그에 표시할 단계명
+   * @param dataSource 작업자 Connection 을 가져올 DataSource
+   * @param workerCount 동시에 실행할 작업 수 (= 사용할 Connection 수)
+   */
+  public TaskScheduler(String phase, DataSource dataSource, int workerCount) {
+    this.phase = phase;
+    this.dataSource = dataSource;
+    this.workerCount = Math.max(1, workerCount);
+  }
+
+  public Node add(DbTask task) {
+    Node node = new Node(task, nodes.size());
+    nodes.add(node);
+    return node;
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * 등록된 작업을 모두 실행하고 끝날 때까지 기다린다.
+   */
+  public TaskReport run() {
+    Stopwatch stopwatch = new Stopwatch();
+    stopwatch.start();
+
+    synchronized (lock) {
+      failCycles();
+      for (Node node : nodes) {
+        if (node.status == null && node.waiting == 0) {
+          ready.add(node);
+        }
+      }
+      if (isFinished()) {
+        addPoison();
+      }
+    }
+
+    int threads = Math.min(workerCount, Math.max(1, nodes.size()));
+    logger.info("[{}] {} 개 작업 시작. 작업자 : {}", phase, nodes.size(), threads);
+
+    List<Thread> workers = new ArrayList<Thread>();
+    liveWorkers = threads;
+    workerBusyMillis = new long[threads];
+    workerTaskCounts = new int[threads];
+    for (int i = 0; i < threads; i++) {
+      Thread worker = new Thread(new Worker(i), phase + "-worker-" + i);
+      workers.add(worker);
+      worker.start();
+    }
+
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+
+    stopwatch.stop();
+    synchronized (lock) {
+      return new TaskReport(phase, new ArrayList<TaskResult>(results), stopwatch.elapsedTime(TimeUnit.MILLISECONDS),
+          workerBusyMillis.clone(), workerTaskCounts.clone());
+    }
+  }
+
+  private boolean isFinished() {
+    return results.size() == nodes.size();
+  }
+
+  private void addPoison() {
+    for (int i = 0; i < workerCount; i++) {
+      ready.add(poison);
+    }
+  }
+
+  /**
+   * 순환 참조로 영원히 실행될 수 없는 작업은 실패 처리한다.
+   */
+  private void failCycles() {
+    int[] waiting = new int[nodes.size()];
+    Deque<Node> queue = new ArrayDeque<Node>();
+    for (Node node : nodes) {
+      waiting[node.seq] = node.waiting;
+      if (node.waiting == 0) {
+        queue.add(node);
+      }
+    }
+    while (!queue.isEmpty()) {
+      for (Node dependent : queue.poll().dependents) {
+        if (--waiting[dependent.seq] == 0) {
+          queue.add(dependent);
+        }
+      }
+    }
+    for (Node node : nodes) {
+      if (waiting[node.seq] > 0 && node.status == null) {
+        finish(node, TaskResult.Status.FAIL, 0, new IllegalStateException("dependency cycle"), null);
+      }
+    }
+  }
+
+  private void complete(Node node, TaskResult.Status status, long elapsedMillis, Throwable error) {
+    synchronized (lock) {
+      finish(node, status, elapsedMillis, error, null);
+
+      if (status == TaskResult.Status.SUCCESS || status == TaskResult.Status.PASS) {
+        for (Node dependent : node.dependents) {
+          if (dependent.status == null && --dependent.waiting == 0) {
+            ready.add(dependent);
+          }
+        }
+      } else {
+        skipDependents(node);
+      }
+
+      if (isFinished()) {
+        addPoison();
+      }
+    }
+  }
+
+  private void skipDependents(Node failed) {
+    Deque<Node> stack = new ArrayDeque<Node>(failed.dependents);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      if (node.status == null) {
+        finish(node, TaskResult.Status.SKIP, 0, null, failed.task.getName());
+        stack.addAll(node.dependents);
+      }
+    }
+  }
+
+  private void finish(Node node, TaskResult.Status status, long elapsedMillis, Throwable error, String cause) {
+    node.status = status;
+    results.add(new TaskResult(node.task.getName(), status, elapsedMillis, error, cause));
+  }
+
+  /**
+   * Connection 을 하나도 얻지 못해서 남은 작업을 실행할 수 없을 때 모두 실패 처리한다.
+   */
+  private void abandon(SQLException e) {
+    synchronized (lock) {
+      if (--liveWorkers > 0) {
+        return;
+      }
+      for (Node node : nodes) {
+        if (node.status == null) {
+          finish(node, TaskResult.Status.FAIL, 0, e, null);
+        }
+      }
+      ready.clear();
+    }
+  }
+
+  private class Worker implements Runnable {
+    private final int index;
+
+    Worker(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      Connection conn;
+      try {
+        conn = dataSource.getConnection();
+      } catch (SQLException e) {
+        logger.error("[{}] Connection Exception : {}", phase, e.getMessage());
+        abandon(e);
+        return;
+      }
+
+      try {
+        while (true) {
+          Node node = ready.take();
+          if (node == poison) {
+            break;
+          }
+
+          long start = System.nanoTime();
+          TaskResult.Status status;
+          Throwable error = null;
+          try {
+            status = node.task.execute(conn) ? TaskResult.Status.SUCCESS : TaskResult.Status.PASS;
+          } catch (Throwable e) {
+            logger.error("[{}] {} Exception : {}", phase, node.task.getName(), e.getMessage());
+            status = TaskResult.Status.FAIL;
+            error = e;
+          }
+          long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+          synchronized (lock) {
+            workerBusyMillis[index] += elapsedMillis;
+            workerTaskCounts[index]++;
+          }
+          complete(node, status, elapsedMillis, error);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        try {
+          conn.close();
+        } catch (SQLException e) {  }
+      }
+    }
+  }
+
+  /**
+   * 스케줄러에 등록된 작업
+   */
+  public static class Node {
+    private final DbTask task;
+    private final int seq;
+    private long weight = 0;
+    private final List<Node> dependents = new ArrayList<Node>();
+    private int waiting = 0;
+    private TaskResult.Status status = null;
+
+    private Node(DbTask task, int seq) {
+      this.task = task;
+      this.seq = seq;
+    }
+
+    public DbTask getTask() {
+      return task;
+    }
+
+    /**
+     * 실행 가능한 작업 중에서 무게가 큰 것부터 실행한다. (기본값 0 : 등록 순서)
+     */
+    public Node weight(long weight) {
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * other 가 성공(또는 통과)한 다음에 실행되도록 한다.
+     */
+    public Node dependsOn(Node other) {
+      if (other != null && other != this) {
+        other.dependents.add(this);
+        waiting++;
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package kr.tanbbang01.converter.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 여러 입력 (문자열 / 파일 내용) 을 순서대로 합친 SHA-256 해시
+ *
+ * <pre>
+ *   String hash = new Fingerprint().addFile(erdPath).add(dbLinkName).toString();
+ * </pre>
+ */
+public class Fingerprint {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final MessageDigest digest;
+
+  public Fingerprint() {
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 문자열을 더한다. null 도 구분해서 더한다.
+   */
+  public Fingerprint add(String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+    } else {
+      digest.update((byte) 1);
+      digest.update(value.getBytes(UTF8));
+    }
+    digest.update((byte) '\n');
+    return this;
+  }
+
+  public Fingerprint add(Object value) {
+    return add(value == null ? null : value.toString());
+  }
+
+  /**
+   * 파일 내용을 더한다. 파일을 읽지 못하면 경로만 더한다. (다음 실행에서 파일이 생기면 달라진다)
+   */
+  public Fingerprint addFile(String path) {
+    add(path);
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    } catch (IOException e) {
+      add("<unreadable>");
+    } finally {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {  }
+      }
+    }
+    return this;
+  }
+
+  /**
+   * 16진수 해시. 호출한 뒤에는 더 이상 add 하지 않는다.
+   */
+  @Override
+  public String toString() {
+    byte[] hash = digest.digest();
+    StringBuilder sb = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,135 @@
+package kr.tanbbang01.converter.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * 단계별 마지막 성공 실행 기록 (RUN_STATE_FILE, 기본값 convert-state.properties)
+ *
+ * 단계마다 입력 해시 (ERD 파일 / 함수 소스 / 설정) 를 남기고, 마지막으로 성공한 단계가 끝났을 때의
+ * 대상 DB 카탈로그 지문 (객체 수 / 마지막 DDL 시간 / 제약조건 상태) 을 함께 남긴다.
+ * 입력 해시가 같고 현재 카탈로그 지문이 마지막 기록과 같으면 그 단계는 다시 실행하지 않아도 된다.
+ * 외부에서 DDL 이 실행되면 카탈로그 지문이 달라지므로 모든 단계를 다시 실행한다.
+ *
+ * force 를 켜면 ( ConvertStarter configFile target --force ) 기록과 상관없이 모두 실행한다.
+ */
+public class RunState {
+  private static Logger logger = LoggerFactory.getLogger(RunState.class);
+
+  private static final String CATALOG_KEY = "catalog";
+  private static RunState runState = null;
+
+  private final File file;
+  private final Properties state = new Properties();
+  private boolean force = false;
+
+  public static synchronized RunState getInstance(String config) {
+    if (runState == null) {
+      runState = new RunState(new File(Resourcer.getInstance(config).getString("RUN_STATE_FILE", "convert-state.properties")));
+    }
+    return runState;
+  }
+
+  private RunState(File file) {
+    this.file = file;
+    if (!file.exists()) {
+      return;
+    }
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      state.load(in);
+    } catch (IOException e) {
+      logger.warn("[RUN STATE] {} 을 읽지 못했습니다. 모든 단계를 실행합니다. {}", file, e.getMessage());
+      state.clear();
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {  }
+      }
+    }
+  }
+
+  public void setForce(boolean force) {
+    this.force = force;
+  }
+
+  public boolean isForce() {
+    return force;
+  }
+
+  /**
+   * @param phase 단계명
+   * @param inputs 단계의 입력 해시
+   * @param catalogFingerprint 현재 대상 DB 카탈로그 지문 (읽지 못했으면 null)
+   * @return 마지막 성공 실행과 입력 / 카탈로그가 같으면 true
+   */
+  public synchronized boolean isUpToDate(String phase, String inputs, String catalogFingerprint) {
+    if (force || catalogFingerprint == null) {
+      return false;
+    }
+    return inputs.equals(state.getProperty(phase)) && catalogFingerprint.equals(state.getProperty(CATALOG_KEY));
+  }
+
+  /**
+   * 단계가 성공했음을 기록한다.
+   * @param catalogFingerprint 단계가 끝난 뒤의 카탈로그 지문 (읽지 못했으면 null, 기록하지 않는다)
+   * @param invalidates 이 단계가 다시 실행되었으므로 다시 실행해야 하는 뒤 단계들
+   */
+  public synchronized void markDone(String phase, String inputs, String catalogFingerprint, String... invalidates) {
+    if (catalogFingerprint == null) {
+      state.remove(phase);
+    } else {
+      state.setProperty(phase, inputs);
+      state.setProperty(CATALOG_KEY, catalogFingerprint);
+    }
+    for (String next : invalidates) {
+      state.remove(next);
+    }
+    save();
+  }
+
+  /**
+   * 단계가 실패하면 기록을 지운다.
+   */
+  public synchronized void markFailed(String phase) {
+    if (state.remove(phase) != null) {
+      save();
+    }
+  }
+
+  /**
+   * 임시 파일에 쓴 뒤 바꿔치기해서 쓰다가 멈춰도 기록이 깨지지 않게 한다.
+   */
+  private void save() {
+    File temp = new File(file.getPath() + ".tmp");
+    OutputStream out = null;
+    try {
+      out = new FileOutputStream(temp);
+      state.store(out, "convert run state");
+      out.close();
+      out = null;
+      if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+        logger.warn("[RUN STATE] {} 에 저장하지 못했습니다.", file);
+      }
+    } catch (IOException e) {
+      logger.warn("[RUN STATE] {} 에 저장하지 못했습니다. {}", file, e.getMessage());
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {  }
+      }
+    }
+  }
+}
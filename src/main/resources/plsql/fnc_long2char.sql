@@ -0,0 +1,15 @@
+CREATE OR REPLACE FUNCTION fnc_long2char (
+  ori_rowid    ROWID,
+  ori_column   VARCHAR2,
+  ori_table    VARCHAR2
+  )
+  RETURN VARCHAR
+AS
+  longcont   VARCHAR2 (32767);
+  sqlquery   VARCHAR2 (2000);
+BEGIN
+  sqlquery := 'SELECT ' || ori_column || ' FROM ' || ori_table || ' WHERE rowid = ' || CHR (39) || ori_rowid || CHR (39);
+  EXECUTE IMMEDIATE sqlquery INTO longcont;
+  longcont := SUBSTR (longcont, 1, 1000);
+  RETURN longcont;
+END fnc_long2char;
@@ -0,0 +1,27 @@
+CREATE OR REPLACE FUNCTION get_insert_table ( p_table_name VARCHAR2 )
+RETURN VARCHAR2
+IS
+  v_result        VARCHAR2 (32767);
+  v_column_list   VARCHAR2 (32767);
+  v_data          cols.column_name%TYPE;
+  CURSOR curdata
+  IS
+    SELECT column_name
+      FROM cols
+     WHERE table_name = p_table_name
+     ORDER BY column_name;
+BEGIN
+  v_column_list := '';
+  OPEN curdata;
+  LOOP
+    FETCH curdata
+    INTO v_data;
+    EXIT WHEN curdata%NOTFOUND;
+    v_column_list := v_column_list || ',' || v_data;
+  END LOOP;
+  CLOSE curdata;
+  v_column_list := substr(v_column_list, 2, length(v_column_list));
+  v_result := 'INSERT INTO ' || p_table_name || '(' || v_column_list || ')' ||
+              ' SELECT ' || v_column_list || ' FROM ' || p_table_name || '@${DB_LINK_NAME}';
+  RETURN v_result;
+END get_insert_table;
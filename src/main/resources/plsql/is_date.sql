@@ -0,0 +1,14 @@
+CREATE OR REPLACE FUNCTION is_date(v_str_date IN char, V_FORMAT IN VARCHAR2 DEFAULT 'YYYYMMDD' )
+RETURN NUMBER
+IS
+  V_DATE DATE;
+BEGIN
+  IF TRIM(v_str_date) IS NOT NULL OR LENGTH(v_str_date) > 0 THEN
+    V_DATE := TO_DATE(v_str_date);
+  ELSE
+    RETURN 0;
+  END IF;
+  RETURN 1;
+EXCEPTION
+  WHEN OTHERS THEN RETURN 0;
+END is_date;
@@ -0,0 +1,13 @@
+CREATE OR REPLACE FUNCTION is_num (v_str_num IN VARCHAR2) RETURN NUMBER
+IS
+  v_num   NUMBER;
+BEGIN
+  IF TRIM(v_str_num) IS NOT NULL AND LENGTH(v_str_num) > 0 AND REGEXP_INSTR(v_str_num, '[^0-9]') = 0 THEN
+    v_num := v_str_num + 0;
+  ELSE
+    RETURN 0;
+  END IF;
+  RETURN 1;
+EXCEPTION WHEN OTHERS
+  THEN RETURN 0;
+END is_num;
@@ -0,0 +1,8 @@
+CREATE OR REPLACE FUNCTION random_uuid return VARCHAR2
+IS
+  v_uuid VARCHAR2(40);
+BEGIN
+  SELECT lower(regexp_replace(rawtohex(sys_guid()), '([A-F0-9]{8})([A-F0-9]{4})([A-F0-9]{4})([A-F0-9]{4})([A-F0-9]{12})', '\1-\2-\3-\4-\5'))
+    INTO v_uuid FROM dual;
+  RETURN v_uuid;
+END random_uuid;
@@ -0,0 +1,207 @@
+package kr.tanbbang01.converter.db;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.List;
+
+/**
+ * 테스트에서 DB 대신 쓰는 가짜 JDBC 객체 (java.lang.reflect.Proxy)
+ *
+ * 각 객체는 테스트가 쓰는 메소드만 처리하고, 나머지는 UnsupportedOperationException 을 던진다.
+ */
+public final class FakeJdbc {
+
+  /**
+   * Connection.prepareStatement 로 받은 SQL 에 맞는 PreparedStatement 를 만든다.
+   */
+  public interface Statements {
+    PreparedStatement prepare(String sql);
+  }
+
+  private FakeJdbc() {
+  }
+
+  /**
+   * getConnection 마다 새 {@link #connection(Statements)} 을 돌려주는 DataSource
+   */
+  public static DataSource dataSource(final Statements statements) {
+    return proxy(DataSource.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getConnection")) {
+          return connection(statements);
+        }
+        throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  /**
+   * prepareStatement 는 statements 에 넘기고, 트랜잭션 / close 는 무시하는 Connection
+   */
+  public static Connection connection(final Statements statements) {
+    return proxy(Connection.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("prepareStatement")) {
+          return statements.prepare((String) args[0]);
+        }
+        if (name.equals("setAutoCommit") || name.equals("commit") || name.equals("rollback") || name.equals("close")) {
+          return null;
+        }
+        throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  /**
+   * executeQuery 에 result 를 돌려주는 PreparedStatement (바인딩 값은 버린다)
+   */
+  public static PreparedStatement query(final ResultSet result) {
+    return proxy(PreparedStatement.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("executeQuery")) {
+          return result;
+        }
+        if (name.startsWith("set") || name.equals("close")) {
+          return null;
+        }
+        throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  /**
+   * executeUpdate 한 sql 을 executed 에 적는 PreparedStatement. executeQuery 는 빈 ResultSet 을 돌려준다.
+   */
+  public static PreparedStatement update(final String sql, final List<String> executed) {
+    return proxy(PreparedStatement.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("executeUpdate")) {
+          executed.add(sql);
+          return 0;
+        }
+        if (name.equals("executeQuery")) {
+          return resultSet();
+        }
+        if (name.startsWith("set") || name.equals("close")) {
+          return null;
+        }
+        throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  /**
+   * 바인딩된 값을 values[파라미터 번호] 에 적는 PreparedStatement. setNull 은 SQL 타입을 적는다.
+   */
+  public static PreparedStatement binder(final Object[] values) {
+    return proxy(PreparedStatement.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (!method.getName().startsWith("set")) {
+          throw new UnsupportedOperationException(method.getName());
+        }
+        values[(Integer) args[0]] = args[1];
+        return null;
+      }
+    });
+  }
+
+  /**
+   * rows 를 차례로 돌려주는 ResultSet. 컬럼 번호는 1 부터, null 은 SQL NULL 이다.
+   */
+  public static ResultSet resultSet(final Object[]... rows) {
+    final int[] row = { -1 };
+    final boolean[] wasNull = new boolean[1];
+    return proxy(ResultSet.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("next")) {
+          return ++row[0] < rows.length;
+        }
+        if (name.equals("wasNull")) {
+          return wasNull[0];
+        }
+        if (name.equals("close")) {
+          return null;
+        }
+        if (name.equals("getMetaData")) {
+          return metaData(rows.length == 0 ? 0 : rows[0].length);
+        }
+        if (!name.startsWith("get") || !(args[0] instanceof Integer)) {
+          throw new UnsupportedOperationException(name);
+        }
+        Object value = rows[row[0]][(Integer) args[0] - 1];
+        wasNull[0] = value == null;
+        return convert(name, value);
+      }
+    });
+  }
+
+  private static Object convert(String getter, Object value) {
+    if (getter.equals("getObject")) {
+      return value;
+    }
+    if (getter.equals("getLong")) {
+      return value == null ? 0L : ((Number) value).longValue();
+    }
+    if (getter.equals("getInt")) {
+      return value == null ? 0 : ((Number) value).intValue();
+    }
+    if (getter.equals("getDouble")) {
+      return value == null ? 0d : ((Number) value).doubleValue();
+    }
+    if (value == null) {
+      return null;
+    }
+    if (getter.equals("getString")) {
+      return value.toString();
+    }
+    if (getter.equals("getBigDecimal")) {
+      return value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+    }
+    if (getter.equals("getBytes")) {
+      return value;
+    }
+    if (getter.equals("getCharacterStream")) {
+      return new StringReader((String) value);
+    }
+    if (getter.equals("getBinaryStream")) {
+      return new ByteArrayInputStream((byte[]) value);
+    }
+    throw new UnsupportedOperationException(getter);
+  }
+
+  private static ResultSetMetaData metaData(final int columnCount) {
+    return proxy(ResultSetMetaData.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getColumnCount")) {
+          return columnCount;
+        }
+        throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+  }
+}
@@ -0,0 +1,68 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import static kr.tanbbang01.converter.db.FakeJdbc.binder;
+import static kr.tanbbang01.converter.db.FakeJdbc.resultSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ColumnBatch 가 읽은 값과 NULL 을 그대로 바인딩하는지, 배치를 다시 채울 때 이전 행의 값이 남지 않는지 확인한다.
+ */
+public class ColumnBatchTest {
+  private static final int COLUMNS = 4;   // ID, AMOUNT (NUMBER), NAME, CODE (VARCHAR2)
+
+  private final List<ColumnCodec> codecs = Arrays.asList(
+      ColumnCodec.of("ID", "NUMBER", 18, 0),
+      ColumnCodec.of("AMOUNT", "NUMBER", 12, 0),
+      ColumnCodec.of("NAME", "VARCHAR2", 100, null),
+      ColumnCodec.of("CODE", "VARCHAR2", 10, null));
+
+  @Test
+  public void batchCopiesValuesAndNulls() throws SQLException {
+    ColumnBatch batch = new ColumnBatch(codecs, 10);
+    ResultSet rs = resultSet(
+        new Object[] { 1L, 100L, "NAME-1", "A" },
+        new Object[] { 2L, null, "NAME-2", null },
+        new Object[] { 3L, 300L, null, "C" });
+
+    assertEquals(3, batch.readFrom(rs));
+    assertArrayEquals(new Object[] { null, 1L, 100L, "NAME-1", "A" }, bind(batch, 0));
+    assertArrayEquals(new Object[] { null, 2L, Types.NUMERIC, "NAME-2", Types.VARCHAR }, bind(batch, 1));
+    assertArrayEquals(new Object[] { null, 3L, 300L, Types.VARCHAR, "C" }, bind(batch, 2));
+    assertEquals(0, batch.readFrom(rs));
+    assertEquals(0, batch.size());
+  }
+
+  @Test
+  public void refillReadsAtMostBatchSizeAndOverwritesRows() throws SQLException {
+    ColumnBatch batch = new ColumnBatch(codecs, 2);
+    ResultSet rs = resultSet(
+        new Object[] { 1L, 100L, "NAME-1", "A" },
+        new Object[] { 2L, 200L, "NAME-2", "B" },
+        new Object[] { 3L, null, null, null });
+
+    assertEquals(2, batch.readFrom(rs));
+    assertArrayEquals(new Object[] { null, 2L, 200L, "NAME-2", "B" }, bind(batch, 1));
+
+    assertEquals(1, batch.readFrom(rs));   // 첫 행 자리에 NULL 이 다시 채워진다.
+    assertArrayEquals(new Object[] { null, 3L, Types.NUMERIC, Types.VARCHAR, Types.VARCHAR }, bind(batch, 0));
+    assertEquals(0, batch.readFrom(rs));
+  }
+
+  /**
+   * @return 바인딩된 값 (파라미터 번호 1 부터, NULL 은 SQL 타입)
+   */
+  private static Object[] bind(ColumnBatch batch, int row) throws SQLException {
+    Object[] values = new Object[COLUMNS + 1];
+    batch.bind(binder(values), row);
+    return values;
+  }
+}
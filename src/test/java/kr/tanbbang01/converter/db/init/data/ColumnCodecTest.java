@@ -0,0 +1,99 @@
+package kr.tanbbang01.converter.db.init.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static kr.tanbbang01.converter.db.FakeJdbc.binder;
+import static kr.tanbbang01.converter.db.FakeJdbc.resultSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 스트림 컬럼 (LONG / LONG RAW) 을 스냅샷 형식으로 쓰고 다시 읽어서 같은 값이 바인딩되는지 확인한다.
+ * 값은 조각 크기 (8192) 보다 길고, 조각 경계에 surrogate pair 가 걸치게 만든다.
+ */
+public class ColumnCodecTest {
+
+  @Test
+  public void charStreamRoundTripsAcrossPieces() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 8191; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    sb.append("\uD83D\uDE00");    // 8192, 8193 번째 char 가 한 글자 (조각 경계)
+    for (int i = 0; i < 20000; i++) {
+      sb.append(i % 2 == 0 ? '\uAC00' : 'z');
+    }
+    String value = sb.toString();
+
+    Object[] bound = roundTrip(ColumnCodec.of("TEXT", "LONG", null, null), value, null);
+
+    assertEquals(value, read((Reader) bound[1]));
+    assertEquals(Types.LONGVARCHAR, bound[2]);
+  }
+
+  @Test
+  public void byteStreamRoundTripsAcrossPieces() throws Exception {
+    byte[] value = new byte[3 * 8192 + 5];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+
+    Object[] bound = roundTrip(ColumnCodec.of("DATA", "LONG RAW", null, null), value, new byte[0]);
+
+    assertArrayEquals(value, read((InputStream) bound[1]));
+    assertEquals(0, read((InputStream) bound[2]).length);   // 빈 값은 NULL 이 아니다.
+  }
+
+  /**
+   * 두 행 (first, second) 을 쓰고 읽는다.
+   * @return 바인딩된 값 [ -, 첫 행, 둘째 행 ] (NULL 은 SQL 타입)
+   */
+  private static Object[] roundTrip(ColumnCodec codec, Object first, Object second) throws SQLException, IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(block);
+    ResultSet rs = resultSet(new Object[] { first }, new Object[] { second });
+    while (rs.next()) {
+      codec.exportValue(rs, 1, out);
+    }
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(block.toByteArray()));
+    Object[] bound = new Object[3];
+    codec.importValue(in, binder(bound), 1);
+    Object[] next = new Object[2];
+    codec.importValue(in, binder(next), 1);
+    bound[2] = next[1];
+    assertEquals(-1, in.read());    // 값을 모두 읽었다.
+    return bound;
+  }
+
+  private static String read(Reader reader) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[1000];
+    int n;
+    while ((n = reader.read(buffer)) > 0) {
+      sb.append(buffer, 0, n);
+    }
+    return sb.toString();
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1000];
+    int n;
+    while ((n = in.read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,164 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import kr.tanbbang01.converter.db.FakeJdbc;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * IdAllocator 를 여러 쓰레드에서 동시에 호출해서 겹치는 ID 가 없는지, 블록을 몇 번 받아오는지 확인한다.
+ * DB 대신 시퀀스 하나를 흉내내는 DataSource 를 쓴다.
+ */
+public class IdAllocatorTest {
+  private static final int THREADS = 8;
+  private static final int IDS_PER_THREAD = 100000;
+
+  @Test
+  public void incrementByOneFetchesBlockSizeValuesAtOnce() throws Exception {
+    FakeSequence sequence = new FakeSequence(1);
+    IdAllocator ids = new IdAllocator(sequence.dataSource(), "seq_users", 1000);
+
+    long[] values = run(ids);
+
+    assertUnique(values);
+    assertEquals(THREADS * IDS_PER_THREAD / 1000, ids.getFetchCount());
+    assertEquals(ids.getFetchCount(), sequence.nextvalQueries.get());
+    assertEquals(1, sequence.incrementQueries.get());
+    assertEquals(THREADS * IDS_PER_THREAD, sequence.last.get());   // 받아온 값을 버리지 않았다.
+  }
+
+  @Test
+  public void hiLoSequenceHandsOutContiguousRanges() throws Exception {
+    FakeSequence sequence = new FakeSequence(500);
+    IdAllocator ids = new IdAllocator(sequence.dataSource(), "SEQ_USERS", 1000);
+
+    long[] values = run(ids);
+
+    Arrays.sort(values);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(i + 1, values[i]);
+    }
+    assertEquals(THREADS * IDS_PER_THREAD / 500, ids.getFetchCount());
+    assertEquals(ids.getFetchCount(), sequence.nextvalQueries.get());
+  }
+
+  @Test
+  public void missingSequenceFails() throws Exception {
+    FakeSequence sequence = new FakeSequence(0);
+    IdAllocator ids = new IdAllocator(sequence.dataSource(), "SEQ_NONE", 1000);
+    try {
+      ids.next();
+      fail();
+    } catch (SQLException e) {
+      assertTrue(e.getMessage().contains("SEQ_NONE"));
+    }
+  }
+
+  private static long[] run(final IdAllocator ids) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() throws Exception {
+            long[] values = new long[IDS_PER_THREAD];
+            for (int i = 0; i < values.length; i++) {
+              values[i] = ids.next();
+            }
+            return values;
+          }
+        }));
+      }
+      long[] all = new long[THREADS * IDS_PER_THREAD];
+      for (int t = 0; t < THREADS; t++) {
+        System.arraycopy(futures.get(t).get(), 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+      }
+      return all;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertUnique(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (int i = 1; i < sorted.length; i++) {
+      if (sorted[i] == sorted[i - 1]) {
+        fail("중복 ID : " + sorted[i]);
+      }
+    }
+  }
+
+  /**
+   * user_sequences 조회, NEXTVAL FROM dual, NEXTVAL ... CONNECT BY LEVEL <= ? 만 처리하는 시퀀스
+   * increment 가 0 이면 시퀀스가 없는 것으로 본다.
+   */
+  private static class FakeSequence {
+    private final long increment;
+    private final AtomicLong last = new AtomicLong();
+    private final AtomicInteger incrementQueries = new AtomicInteger();
+    private final AtomicInteger nextvalQueries = new AtomicInteger();
+
+    FakeSequence(long increment) {
+      this.increment = increment;
+    }
+
+    DataSource dataSource() {
+      return FakeJdbc.dataSource(new FakeJdbc.Statements() {
+        @Override
+        public PreparedStatement prepare(String sql) {
+          return statement(sql);
+        }
+      });
+    }
+
+    private PreparedStatement statement(final String sql) {
+      final int[] level = new int[1];
+      return FakeJdbc.proxy(PreparedStatement.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          String name = method.getName();
+          if (name.equals("setInt")) {
+            level[0] = (Integer) args[1];
+            return null;
+          }
+          if (name.equals("setString") || name.equals("setFetchSize") || name.equals("close")) {
+            return null;
+          }
+          if (!name.equals("executeQuery")) {
+            throw new UnsupportedOperationException(name);
+          }
+          if (sql.contains("user_sequences")) {
+            incrementQueries.incrementAndGet();
+            return increment == 0 ? FakeJdbc.resultSet() : FakeJdbc.resultSet(new Object[] { increment });
+          }
+          nextvalQueries.incrementAndGet();
+          int rows = sql.contains("CONNECT BY") ? level[0] : 1;
+          Object[][] values = new Object[rows][];
+          for (int i = 0; i < rows; i++) {
+            values[i] = new Object[] { last.addAndGet(increment) - increment + 1 };
+          }
+          return FakeJdbc.resultSet(values);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package kr.tanbbang01.converter.db.init.sequence;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * UuidGenerator 가 random_uuid 와 같은 형식으로, 여러 쓰레드에서 겹치지 않는 값을 만드는지 확인한다.
+ */
+public class UuidGeneratorTest {
+  private static final Pattern FORMAT = Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-4[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}$");
+  private static final int THREADS = 8;
+  private static final int UUIDS_PER_THREAD = 100000;
+
+  @Test
+  public void formatIsLowercase8_4_4_4_12() {
+    assertEquals("01234567-89ab-cdef-fedc-ba9876543210", UuidGenerator.format(0x0123456789ABCDEFL, 0xFEDCBA9876543210L));
+    assertEquals("00000000-0000-0000-0000-000000000000", UuidGenerator.format(0, 0));
+  }
+
+  @Test
+  public void concurrentValuesAreUniqueVersion4() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<UUID[]>> futures = new ArrayList<Future<UUID[]>>();
+    try {
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(new Callable<UUID[]>() {
+          @Override
+          public UUID[] call() {
+            UUID[] values = new UUID[UUIDS_PER_THREAD];
+            for (int i = 0; i < values.length; i++) {
+              String uuid = UuidGenerator.next();
+              assertTrue(uuid, FORMAT.matcher(uuid).matches());
+              values[i] = UUID.fromString(uuid);
+            }
+            return values;
+          }
+        }));
+      }
+      UUID[] all = new UUID[THREADS * UUIDS_PER_THREAD];
+      for (int t = 0; t < THREADS; t++) {
+        System.arraycopy(futures.get(t).get(), 0, all, t * UUIDS_PER_THREAD, UUIDS_PER_THREAD);
+      }
+
+      Arrays.sort(all);
+      for (int i = 1; i < all.length; i++) {
+        if (all[i].equals(all[i - 1])) {
+          fail("중복 UUID : " + all[i]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
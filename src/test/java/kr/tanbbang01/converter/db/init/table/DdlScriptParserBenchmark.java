@@ -0,0 +1,107 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * 테이블 2만개짜리 ERD 스크립트를 만들어서 파싱 처리량과 힙 증가량을 기록한다.
+ *
+ * 시간 / 힙은 GC 와 JIT 에 따라 달라지므로 단위 테스트가 아니라 직접 실행한다. (JUnit 이 실행하지 않는다)
+ *   java -cp <test classes>:<classes>:<libs> kr.tanbbang01.converter.db.init.table.DdlScriptParserBenchmark [테이블 수]
+ */
+public class DdlScriptParserBenchmark {
+  private static Logger logger = LoggerFactory.getLogger(DdlScriptParserBenchmark.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int PLSQL_EVERY = 1000;          // 테이블 1000개마다 프로시저 하나
+  private static final int WARM_RUNS = 4;
+
+  public static void main(String[] args) throws IOException {
+    int tables = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    File script = File.createTempFile("erd", ".sql");
+    try {
+      write(script, tables);
+      run(script);
+    } finally {
+      script.delete();
+    }
+  }
+
+  private static void write(File script, int tables) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(script), UTF8));
+    try {
+      for (int i = 1; i <= tables; i++) {
+        writeTable(writer, i);
+        if (i % PLSQL_EVERY == 0) {
+          writer.write("CREATE OR REPLACE PROCEDURE P_" + i + " IS\nBEGIN\n  NULL;\nEND;\n/\n");
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * 테이블 하나에 CREATE TABLE / PK / FK / INDEX / UNIQUE INDEX 와 무시되는 COMMENT ON.
+   * 주석과 문자열 안에 ';' 를 넣는다.
+   */
+  private static void writeTable(Writer writer, int i) throws IOException {
+    String table = "T_" + i;
+    writer.write("-- " + table + " ; 테이블\n");
+    writer.write("CREATE TABLE " + table + " (\n"
+        + "  ID NUMBER(18) NOT NULL,\n"
+        + "  NAME VARCHAR2(100) DEFAULT 'a;b',\n"
+        + "  PARENT_ID NUMBER(18),\n"
+        + "  /* 비고 ; */ REMARK VARCHAR2(4000)\n"
+        + ");\n");
+    writer.write("ALTER TABLE " + table + " ADD CONSTRAINT PK_" + table + " PRIMARY KEY (ID);\n");
+    writer.write("ALTER TABLE " + table + " ADD CONSTRAINT FK_" + table + " FOREIGN KEY (PARENT_ID) REFERENCES T_" + Math.max(1, i - 1) + " (ID);\n");
+    writer.write("CREATE INDEX IX_" + table + " ON " + table + " (NAME);\n");
+    writer.write("CREATE UNIQUE INDEX UX_" + table + " ON " + table + " (NAME, ID);\n");
+    writer.write("COMMENT ON TABLE " + table + " IS '비고; " + i + "';\n\n");
+  }
+
+  private static void run(File script) throws IOException {
+    final long[] maxHeap = new long[1];
+    long heapBefore = usedHeap();
+    int statements = DdlScriptParser.parse(script.getPath(), UTF8, new DdlStatementHandler() {
+      private int count = 0;
+
+      @Override
+      public void handle(DdlStatement statement) {
+        if (++count % 10000 == 0) {
+          maxHeap[0] = Math.max(maxHeap[0], usedHeap());
+        }
+      }
+    });
+    logger.info("[BENCH] {} byte, {} statements, heap growth {} byte",
+        script.length(), statements, Math.max(0, maxHeap[0] - heapBefore));
+
+    for (int run = 1; run <= WARM_RUNS; run++) {   // 처리량은 JIT 워밍업 뒤의 마지막 회차로 본다.
+      long start = System.nanoTime();
+      DdlScriptParser.parse(script.getPath(), UTF8, new DdlStatementHandler() {
+        @Override
+        public void handle(DdlStatement statement) {
+        }
+      });
+      long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+      logger.info("[BENCH] run {} : {} ms, {} MB/s", run, millis, script.length() / 1000 / millis);
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,93 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DdlScriptParser 가 문장을 어디서 나누는지 확인한다. (문자열 / 식별자 / 주석 안의 ';', PL/SQL 블록과 '/')
+ * 큰 스크립트의 처리량은 {@link DdlScriptParserBenchmark} 로 잰다.
+ */
+public class DdlScriptParserTest {
+
+  @Test
+  public void semicolonInsideQuotesAndCommentsDoesNotSplit() throws IOException {
+    Parsed parsed = parse(
+        "-- 주석 ; CREATE TABLE X (A NUMBER);\n"
+        + "CREATE TABLE T (\n"
+        + "  ID NUMBER(18) NOT NULL, /* 비고 ; */\n"
+        + "  NAME VARCHAR2(100) DEFAULT 'a;b''c',\n"
+        + "  \"A;B\" VARCHAR2(10)\n"
+        + ");\n"
+        + "COMMENT ON TABLE T IS q'[x;'y]';\n"
+        + "CREATE INDEX IX_T ON T (NAME);");
+
+    assertEquals(2, parsed.statements.size());
+    assertEquals(1, parsed.skipped);    // COMMENT ON
+    DdlStatement.CreateTable table = (DdlStatement.CreateTable) parsed.statements.get(0);
+    assertEquals("T", table.getTableName());
+    assertEquals(3, table.getColumns().size());
+    assertEquals("A;B", table.getColumns().get(2).getName());
+    assertTrue(table.getSql().contains("DEFAULT 'a;b''c'"));
+    assertEquals(-1, table.getSql().indexOf("비고"));   // 주석은 지운다.
+    assertEquals(Arrays.asList("NAME"), ((DdlStatement.CreateIndex) parsed.statements.get(1)).getColumns());
+  }
+
+  @Test
+  public void hintIsKept() throws IOException {
+    Parsed parsed = parse("CREATE INDEX IX_T ON T (NAME) /*+ keep */ /* drop */;");
+
+    assertEquals(1, parsed.statements.size());
+    String sql = parsed.statements.get(0).getSql();
+    assertTrue(sql, sql.contains("/*+ keep */"));
+    assertEquals(sql, -1, sql.indexOf("drop"));
+  }
+
+  @Test
+  public void plsqlBlockEndsAtSlashLine() throws IOException {
+    Parsed parsed = parse(
+        "CREATE OR REPLACE PROCEDURE P IS\n"
+        + "BEGIN\n"
+        + "  UPDATE T SET A = A / 2;\n"
+        + "  NULL;\n"
+        + "END;\n"
+        + "/\n"
+        + "ALTER TABLE T ADD CONSTRAINT PK_T PRIMARY KEY (ID);\n"
+        + "ALTER TABLE T ADD CONSTRAINT FK_T FOREIGN KEY (PARENT_ID) REFERENCES P.T2 (ID)\n"
+        + "/\n"
+        + "CREATE UNIQUE INDEX UX_T ON T (NAME, ID)");
+
+    assertEquals(1, parsed.skipped);    // PROCEDURE
+    assertEquals(3, parsed.statements.size());
+    assertEquals(ObjectType.PK, parsed.statements.get(0).getType());
+    DdlStatement.AddConstraint fk = (DdlStatement.AddConstraint) parsed.statements.get(1);
+    assertEquals(ObjectType.FK, fk.getType());
+    assertEquals("T2", fk.getReferencedTable());
+    assertEquals(ObjectType.UIX, parsed.statements.get(2).getType());   // 마지막 문장은 ';' 가 없어도 된다.
+  }
+
+  private static Parsed parse(String script) throws IOException {
+    final Parsed parsed = new Parsed();
+    DdlScriptParser parser = new DdlScriptParser(new StringReader(script));
+    parser.parse(new DdlStatementHandler() {
+      @Override
+      public void handle(DdlStatement statement) {
+        parsed.statements.add(statement);
+      }
+    });
+    parsed.skipped = parser.getSkippedCount();
+    return parsed;
+  }
+
+  private static class Parsed {
+    private final List<DdlStatement> statements = new ArrayList<DdlStatement>();
+    private int skipped;
+  }
+}
@@ -0,0 +1,61 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.FakeJdbc;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ERD 의 CREATE TABLE 과 대상 DB 의 ALL_TAB_COLUMNS 를 비교한 컬럼 변경을 확인한다.
+ */
+public class SchemaDiffTest {
+
+  @Test
+  public void addsNotNullWithoutDefaultAsNullableAndIgnoresTypeAliases() throws SQLException {
+    SchemaModel model = new SchemaModel();
+    model.add("LOPE_ERD.sql", DdlScriptParser.classify("CREATE TABLE T ("
+        + " ID NUMBER(38) NOT NULL, CNT INTEGER, AMT DECIMAL(10,2), CODE VARCHAR2(20) NOT NULL,"
+        + " NEW_COL VARCHAR2(10) CONSTRAINT NN_NEW NOT NULL, NEW_DEF NUMBER(1) DEFAULT 0 NOT NULL, WIDER NUMBER(12) )"));
+
+    // INTEGER / NUMBER(38) 는 ALL_TAB_COLUMNS 에서 정밀도 없이 소수 자리수 0 으로 보인다.
+    SchemaDiff diff = SchemaDiff.compare(model, catalog(
+        new Object[] { "T", "ID", "NUMBER", null, null, null, "0", "N" },
+        new Object[] { "T", "CNT", "NUMBER", null, null, null, "0", "Y" },
+        new Object[] { "T", "AMT", "NUMBER", null, null, "10", "2", "Y" },
+        new Object[] { "T", "CODE", "VARCHAR2", "10", "B", null, null, "N" },
+        new Object[] { "T", "WIDER", "NUMBER", null, null, "10", "0", "Y" }));
+
+    assertEquals(Arrays.asList(
+        "ALTER TABLE T MODIFY (CODE VARCHAR2(20))",
+        "ALTER TABLE T ADD (NEW_COL VARCHAR2(10))",
+        "ALTER TABLE T ADD (NEW_DEF NUMBER(1) DEFAULT 0 NOT NULL)",
+        "ALTER TABLE T MODIFY (WIDER NUMBER(12,0))"), diff.getColumnChanges("T"));
+    assertEquals(1, diff.getWarnings().size());
+    assertTrue(diff.getWarnings().get(0), diff.getWarnings().get(0).endsWith("ALTER TABLE T MODIFY (NEW_COL NOT NULL)"));
+  }
+
+  /**
+   * 테이블 T 하나와 columns (ALL_TAB_COLUMNS 행) 만 있는 카탈로그
+   */
+  private static CatalogSnapshot catalog(final Object[]... columns) throws SQLException {
+    return CatalogSnapshot.load(FakeJdbc.connection(new FakeJdbc.Statements() {
+      @Override
+      public PreparedStatement prepare(String sql) {
+        if (sql.contains("all_tables")) {
+          return FakeJdbc.query(FakeJdbc.resultSet(new Object[] { "T" }));
+        }
+        if (sql.contains("all_tab_columns")) {
+          return FakeJdbc.query(FakeJdbc.resultSet(columns));
+        }
+        return FakeJdbc.update(sql, Collections.<String>emptyList());
+      }
+    }), "CONVERT", true);
+  }
+}
@@ -0,0 +1,152 @@
+package kr.tanbbang01.converter.db.init.table;
+
+import kr.tanbbang01.converter.db.FakeJdbc;
+import kr.tanbbang01.converter.db.catalog.CatalogSnapshot;
+import kr.tanbbang01.converter.db.catalog.ColumnDefinition;
+import kr.tanbbang01.converter.db.task.TaskReport;
+import kr.tanbbang01.converter.db.task.TaskScheduler;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 테이블마다 객체 5개 (TABLE / PK / FK / IDX / UIX) 인 합성 스키마로 SchemaModel 과 TableInit.scheduleDdl 을 확인한다.
+ * FK 는 다른 테이블 (i + tables / 2) 을 참조한다. 대상 DB 는 비어 있는 카탈로그를 돌려주는 가짜 Connection 이다.
+ */
+public class SchemaModelTest {
+  private static final String ERD = "LOPE_ERD.sql";
+  private static final int OBJECTS_PER_TABLE = 5;
+
+  @Test
+  public void modelIndexes20kObjects() {
+    int tables = 4000;
+    SchemaModel model = build(tables);
+
+    assertEquals(tables * OBJECTS_PER_TABLE, model.size());
+    assertEquals(tables, model.getTables().size());
+    assertEquals("PK_T_10", model.getPrimaryKey("T_10").getName());
+    assertEquals(4, model.getObjects("T_10").size());
+    assertEquals(Arrays.asList(model.getObject("PK_T_10"), model.getObject("UX_T_10")), model.getKeys("T_10"));
+    assertEquals("T_" + (10 + tables / 2), model.getObject("FK_T_10").getReferencedTable());
+    assertTrue(model.getObjects("T_NONE").isEmpty());
+
+    // 두번째 스크립트의 같은 이름은 무시하고 처음 정의를 유지한다.
+    assertFalse(model.add("SMUF_v2_ERD.sql", table(10)));
+    assertFalse(model.add("SMUF_v2_ERD.sql", new DdlStatement.CreateIndex("CREATE INDEX IX_T_10 ON T_10 (NAME)", "T_10", "IX_T_10", Arrays.asList("NAME"))));
+    assertEquals(2, model.getDuplicateCount());
+    assertEquals(tables * OBJECTS_PER_TABLE, model.size());
+    assertEquals(ERD, model.getTable("T_10").getSourceFile());
+  }
+
+  @Test
+  public void schedulesOneTaskPerObject() throws SQLException {
+    int tables = 100;
+    FakeDb db = new FakeDb();
+    CatalogSnapshot catalog = CatalogSnapshot.load(db.connection(), "CONVERT");
+    SchemaModel model = build(tables);
+    TaskScheduler scheduler = new TaskScheduler("DDL", db.dataSource(), 8);
+
+    Map<SchemaObject, TaskScheduler.Node> nodes = TableInit.scheduleDdl(model, scheduler, catalog,
+        EnumSet.allOf(ObjectType.class), null, null);
+
+    assertEquals(tables * OBJECTS_PER_TABLE, nodes.size());
+    assertEquals(tables * OBJECTS_PER_TABLE, scheduler.size());
+    for (SchemaObject object : model.getObjects()) {
+      assertTrue(object.toString(), nodes.containsKey(object));
+    }
+    assertTrue(db.executed.isEmpty());   // 등록만 하고 실행하지 않는다.
+  }
+
+  @Test
+  public void scheduledDdlRunsAfterItsDependencies() throws SQLException {
+    int tables = 500;
+    FakeDb db = new FakeDb();
+    CatalogSnapshot catalog = CatalogSnapshot.load(db.connection(), "CONVERT");
+    SchemaModel model = build(tables);
+    TaskScheduler scheduler = new TaskScheduler("DDL", db.dataSource(), 8);
+    TableInit.scheduleDdl(model, scheduler, catalog, EnumSet.allOf(ObjectType.class), null, null);
+
+    TaskReport report = scheduler.run();
+    assertTrue(report.isAllDone());
+    assertEquals(tables * OBJECTS_PER_TABLE, db.executed.size());
+
+    Map<String, Integer> order = new HashMap<String, Integer>();
+    for (int i = 0; i < db.executed.size(); i++) {
+      order.put(db.executed.get(i), i);
+    }
+    for (SchemaObject object : model.getObjects()) {
+      int position = order.get(object.getStatement().getSql());
+      assertTrue(object.toString(), position > order.get(model.getTable(object.getTableName()).getStatement().getSql()));
+      if (object.getType() != ObjectType.PK) {
+        assertTrue(object.toString(), position > order.get(model.getPrimaryKey(object.getTableName()).getStatement().getSql()));
+      }
+      if (object.getType() == ObjectType.FK) {
+        String referencedTable = object.getReferencedTable();
+        assertTrue(object.toString(), position > order.get(model.getTable(referencedTable).getStatement().getSql()));
+        for (SchemaObject key : model.getKeys(referencedTable)) {
+          assertTrue(object.toString(), position > order.get(key.getStatement().getSql()));
+        }
+      }
+    }
+    assertTrue(catalog.hasTable("T_1"));   // 만든 객체는 카탈로그에 추가된다.
+    assertTrue(catalog.hasIndex("T_1", "UX_T_1"));
+  }
+
+  private static SchemaModel build(int tables) {
+    SchemaModel model = new SchemaModel();
+    for (int i = 0; i < tables; i++) {
+      String table = "T_" + i;
+      String referenced = "T_" + ((i + tables / 2) % tables);
+      model.add(ERD, table(i));
+      model.add(ERD, new DdlStatement.AddConstraint("ALTER TABLE " + table + " ADD CONSTRAINT PK_" + table + " PRIMARY KEY (ID)",
+          table, "PK_" + table, ObjectType.PK, Arrays.asList("ID"), null));
+      model.add(ERD, new DdlStatement.AddConstraint("ALTER TABLE " + table + " ADD CONSTRAINT FK_" + table
+          + " FOREIGN KEY (PARENT_ID) REFERENCES " + referenced + " (ID)",
+          table, "FK_" + table, ObjectType.FK, Arrays.asList("PARENT_ID"), referenced));
+      model.add(ERD, new DdlStatement.CreateIndex("CREATE INDEX IX_" + table + " ON " + table + " (NAME)",
+          table, "IX_" + table, Arrays.asList("NAME")));
+      model.add(ERD, new DdlStatement.CreateUniqueIndex("CREATE UNIQUE INDEX UX_" + table + " ON " + table + " (NAME, ID)",
+          table, "UX_" + table, Arrays.asList("NAME", "ID")));
+    }
+    return model;
+  }
+
+  private static DdlStatement table(int i) {
+    return new DdlStatement.CreateTable("CREATE TABLE T_" + i + " (ID NUMBER(18) NOT NULL, NAME VARCHAR2(100), PARENT_ID NUMBER(18))",
+        "T_" + i, Collections.<ColumnDefinition>emptyList());
+  }
+
+  /**
+   * 카탈로그 조회에는 빈 결과를, DDL 에는 실행 순서 기록만 하는 가짜 DB
+   */
+  private static class FakeDb implements FakeJdbc.Statements {
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public PreparedStatement prepare(String sql) {
+      return FakeJdbc.update(sql, executed);
+    }
+
+    DataSource dataSource() {
+      return FakeJdbc.dataSource(this);
+    }
+
+    Connection connection() {
+      return FakeJdbc.connection(this);
+    }
+  }
+}